@@ -0,0 +1,215 @@
+package com.primalimited.gis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses the ASCII text of a fixed-width dBASE numeric ('N', 'F') field straight from the record
+ * bytes into a long or a double, without building a String and independent of the default locale:
+ * '.' is always the decimal point. One instance may be reused for any number of fields, but not by
+ * several threads at once.
+ *
+ * <p>Leading and trailing spaces, NULs and '+' signs are ignored, as are ',' grouping separators
+ * in the integer part; parsing stops at the first other character, as NumberFormat does. A value
+ * with no fraction (or only zeros after the decimal point) and no exponent is a long; anything else
+ * is a double. Up to 15 significant digits with a decimal exponent of at most 22 are converted
+ * exactly with one multiply or divide; longer values fall back to {@link Double#parseDouble}.
+ */
+final class AsciiNumberParser {
+    // most significant digits accumulated into a long; more are counted, not accumulated
+    private static final int MAX_LONG_DIGITS = 18;
+    // doubles with at most this many digits, and powers of ten up to MAX_EXACT_POWER, are exact
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final int MAX_EXACT_POWER = 22;
+    // larger exponents overflow or underflow any double anyway
+    private static final int MAX_EXPONENT = 9999;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_POWER + 1];
+    private static final long[] LONG_POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        LONG_POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < LONG_POWERS_OF_TEN.length; i++)
+            LONG_POWERS_OF_TEN[i] = LONG_POWERS_OF_TEN[i - 1] * 10L;
+    }
+
+    private boolean isLong;
+    private long longValue;
+    private double doubleValue;
+
+    /**
+     * Parse a field.
+     *
+     * @param byteBuffer buffer holding the field; its position is not changed.
+     * @param offset index of the first byte of the field.
+     * @param length field width in bytes.
+     * @return false if the field is blank or does not start with a number.
+     */
+    boolean parse(ByteBuffer byteBuffer, int offset, int length) {
+        int index = offset;
+        int end = offset + length;
+        while (index < end && isBlank(byteBuffer.get(index)))
+            index++;
+
+        boolean negative = false;
+        if (index < end && byteBuffer.get(index) == '-') {
+            negative = true;
+            index++;
+        }
+
+        long significand = 0;
+        int nSignificant = 0;   // digits from the first non-zero digit on
+        int decimalExponent = 0;
+        boolean truncated = false;
+        boolean anyDigit = false;
+
+        // integer part
+        for (; index < end; index++) {
+            byte b = byteBuffer.get(index);
+            if (b == ',')
+                continue;
+            int digit = b - '0';
+            if (digit < 0 || digit > 9)
+                break;
+            anyDigit = true;
+            if (nSignificant < MAX_LONG_DIGITS) {
+                significand = significand * 10 + digit;
+                if (significand != 0)
+                    nSignificant++;
+            } else {
+                decimalExponent++;
+                truncated |= digit != 0;
+            }
+        }
+
+        // fraction
+        if (index < end && byteBuffer.get(index) == '.') {
+            for (index++; index < end; index++) {
+                int digit = byteBuffer.get(index) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                anyDigit = true;
+                if (nSignificant < MAX_LONG_DIGITS) {
+                    significand = significand * 10 + digit;
+                    if (significand != 0)
+                        nSignificant++;
+                    decimalExponent--;
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+        }
+        if (!anyDigit)
+            return false;
+
+        // exponent
+        boolean hasExponent = false;
+        if (index < end && (byteBuffer.get(index) == 'E' || byteBuffer.get(index) == 'e')) {
+            index++;
+            while (index < end && isBlank(byteBuffer.get(index)))
+                index++;
+            boolean negativeExponent = false;
+            if (index < end && byteBuffer.get(index) == '-') {
+                negativeExponent = true;
+                index++;
+            }
+            int exponent = 0;
+            boolean anyExponentDigit = false;
+            for (; index < end; index++) {
+                int digit = byteBuffer.get(index) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                anyExponentDigit = true;
+                exponent = Math.min(exponent * 10 + digit, MAX_EXPONENT);
+            }
+            if (!anyExponentDigit)
+                return false;
+            hasExponent = true;
+            decimalExponent += negativeExponent ? -exponent : exponent;
+        }
+
+        if (!hasExponent && !truncated && decimalExponent <= 0
+                && -decimalExponent <= MAX_LONG_DIGITS
+                && significand % LONG_POWERS_OF_TEN[-decimalExponent] == 0
+                && !(negative && significand == 0)) {
+            isLong = true;
+            longValue = significand / LONG_POWERS_OF_TEN[-decimalExponent];
+            if (negative)
+                longValue = -longValue;
+            return true;
+        }
+
+        isLong = false;
+        if (significand == 0) {
+            doubleValue = negative ? -0.0 : 0.0;
+            return true;
+        }
+        while (significand % 10 == 0) {
+            significand /= 10;
+            nSignificant--;
+            decimalExponent++;
+        }
+        if (!truncated && nSignificant <= MAX_EXACT_DIGITS && Math.abs(decimalExponent) <= MAX_EXACT_POWER) {
+            double value = decimalExponent < 0
+                    ? significand / POWERS_OF_TEN[-decimalExponent]
+                    : significand * POWERS_OF_TEN[decimalExponent];
+            doubleValue = negative ? -value : value;
+            return true;
+        }
+
+        doubleValue = slowParse(byteBuffer, offset, index);
+        return true;
+    }
+
+    /*
+     * Correctly rounded conversion of the characters parse() accepted, for long significands and
+     * large exponents.
+     */
+    private static double slowParse(ByteBuffer byteBuffer, int offset, int end) {
+        StringBuilder sb = new StringBuilder(end - offset);
+        for (int index = offset; index < end; index++) {
+            byte b = byteBuffer.get(index);
+            if (!isBlank(b) && b != ',')
+                sb.append((char) b);
+        }
+        return Double.parseDouble(sb.toString());
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == 0 || b == '+';
+    }
+
+    /**
+     * @return true if the last successful parse produced a long, false if a double.
+     */
+    boolean isLong() {
+        return isLong;
+    }
+
+    long longValue() {
+        return longValue;
+    }
+
+    /**
+     * @return the value of the last successful parse as a double, whether it was a long or not.
+     */
+    double doubleValue() {
+        return isLong ? longValue : doubleValue;
+    }
+
+    /**
+     * Parse a field to a Long or Double. The boxed result is the only allocation, so reuse one
+     * parser for all the fields a thread decodes.
+     *
+     * @param byteBuffer buffer holding the field; its position is not changed.
+     * @param offset index of the first byte of the field.
+     * @param length field width in bytes.
+     * @return Long or Double, or null if the field is blank or does not start with a number.
+     */
+    Number parseNumber(ByteBuffer byteBuffer, int offset, int length) {
+        if (!parse(byteBuffer, offset, length))
+            return null;
+        return isLong ? (Number) longValue : (Number) doubleValue;
+    }
+}
@@ -0,0 +1,180 @@
+package com.primalimited.gis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * EndianDataInputStream that decodes directly from a ByteBuffer (e.g. a memory-mapped .shp file),
+ * using big- and little-endian views of the same bytes instead of per-byte stream calls.
+ */
+class ByteBufferEndianDataInputStream extends EndianDataInputStream {
+    private final ByteBuffer bigEndian;
+    private final ByteBuffer littleEndian;
+    private int position;
+    private int limit;
+    private int markedPosition = -1;
+
+    /**
+     * Creates a stream over the remaining bytes of the buffer. The buffer's own position is not changed.
+     *
+     * @param buffer the bytes to decode.
+     */
+    ByteBufferEndianDataInputStream(ByteBuffer buffer) {
+        ByteBuffer slice = buffer.slice();
+        bigEndian = slice.duplicate().order(ByteOrder.BIG_ENDIAN);
+        littleEndian = slice.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        position = 0;
+        limit = slice.limit();
+    }
+
+    /** start again at the beginning of the buffer, decoding only its first newLimit bytes */
+    void rewind(int newLimit) {
+        if (newLimit < 0 || newLimit > bigEndian.limit())
+            throw new IllegalArgumentException("limit " + newLimit + " out of range [0, " + bigEndian.limit() + "]");
+        position = 0;
+        limit = newLimit;
+        markedPosition = -1;
+    }
+
+    /** current position, relative to the start of the buffer */
+    int position() {
+        return position;
+    }
+
+    /** move to an absolute position, relative to the start of the buffer */
+    void position(int newPosition) {
+        if (newPosition < 0 || newPosition > limit)
+            throw new IllegalArgumentException("position " + newPosition + " out of range [0, " + limit + "]");
+        position = newPosition;
+    }
+
+    /** number of bytes between the current position and the end of the buffer */
+    int remaining() {
+        return limit - position;
+    }
+
+    private int advance(int nBytes) throws EOFException {
+        if (nBytes < 0 || nBytes > limit - position)
+            throw new EOFException();
+        int current = position;
+        position += nBytes;
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to release; mapped buffers are unmapped when garbage collected
+    }
+
+    @Override
+    public byte readByteBE() throws IOException {
+        return bigEndian.get(advance(1));
+    }
+
+    @Override
+    public byte readByteLE() throws IOException {
+        return littleEndian.get(advance(1));
+    }
+
+    @Override
+    public void readByteLEnum(byte[] b) throws IOException {
+        littleEndian.get(advance(b.length), b);
+    }
+
+    @Override
+    public int readUnsignedByteBE() throws IOException {
+        return readByteBE() & 0xff;
+    }
+
+    @Override
+    public int readUnsignedByteLE() throws IOException {
+        return readByteLE() & 0xff;
+    }
+
+    @Override
+    public short readShortBE() throws IOException {
+        return bigEndian.getShort(advance(2));
+    }
+
+    @Override
+    public short readShortLE() throws IOException {
+        return littleEndian.getShort(advance(2));
+    }
+
+    @Override
+    public int readIntBE() throws IOException {
+        return bigEndian.getInt(advance(4));
+    }
+
+    @Override
+    public int readIntLE() throws IOException {
+        return littleEndian.getInt(advance(4));
+    }
+
+    @Override
+    public long readLongBE() throws IOException {
+        return bigEndian.getLong(advance(8));
+    }
+
+    @Override
+    public long readLongLE() throws IOException {
+        return littleEndian.getLong(advance(8));
+    }
+
+    @Override
+    public double readDoubleBE() throws IOException {
+        return bigEndian.getDouble(advance(8));
+    }
+
+    @Override
+    public double readDoubleLE() throws IOException {
+        return littleEndian.getDouble(advance(8));
+    }
+
+    @Override
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        littleEndian.get(advance(len), b, off, len);
+    }
+
+    @Override
+    public void readIntsLE(int[] dst, int offset, int length) throws IOException {
+        int start = advance(4 * length);
+        littleEndian.slice(start, 4 * length).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(dst, offset, length);
+    }
+
+    @Override
+    public void readDoublesLE(double[] dst, int offset, int length) throws IOException {
+        int start = advance(8 * length);
+        littleEndian.slice(start, 8 * length).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(dst, offset, length);
+    }
+
+    /** the bytes are already in memory, so the block is a view of them rather than a copy */
+    @Override
+    EndianDataInputStream readBlock(int nBytes) throws IOException {
+        if (nBytes < 0)
+            throw new IOException("invalid block length: " + nBytes);
+        int start = advance(nBytes);
+        return new ByteBufferEndianDataInputStream(littleEndian.slice(start, nBytes));
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        markedPosition = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        if (markedPosition < 0)
+            throw new IOException("reset() without mark()");
+        position = markedPosition;
+    }
+
+    @Override
+    public int skipBytes(int num) throws IOException {
+        int n = Math.max(0, Math.min(num, remaining()));
+        position += n;
+        return n;
+    }
+}
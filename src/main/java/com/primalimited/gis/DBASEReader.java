@@ -2,11 +2,14 @@ package com.primalimited.gis;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.*;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.sql.Timestamp;
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * dBASE (.dbf) file reader.
@@ -15,13 +18,41 @@ import java.util.*;
  */
 public class DBASEReader {
     private static final int DBASE_HEADER_LENGTH_BYTES = 32;
-    private static final int FIELD_NAME_LENGTH = 11;
 
     // debug flags
     private static final boolean DEBUG_HEADER = false;
     private static final boolean DEBUG_COARSE = false;
     private static final boolean DEBUG_FINE = false;
 
+    private DbfCharset charset = DbfCharset.DEFAULT;
+
+    /**
+     * Set the character set of character fields, e.g. from the shapefile's .cpg file
+     * (see {@link #charsetForCodePage(String)}). ISO-8859-1 by default.
+     *
+     * @param charset the character set.
+     */
+    public void setCharset(Charset charset) {
+        this.charset = DbfCharset.of(charset);
+    }
+
+    /**
+     * @return the character set of character fields.
+     */
+    public Charset getCharset() {
+        return charset.charset();
+    }
+
+    /**
+     * Character set for a code page as written in a .cpg file, e.g. "UTF-8", "1252", "ANSI 1252".
+     *
+     * @param codePage the .cpg file contents.
+     * @return the character set, or ISO-8859-1 if the code page is not supported.
+     */
+    public static Charset charsetForCodePage(String codePage) {
+        return DbfCharset.forCodePage(codePage);
+    }
+
     /**
      * Constructor
      *
@@ -129,7 +160,7 @@ public class DBASEReader {
         return readHeader(byteBuffer);
     }
 
-    private DBASEHeaderInfo readHeader(ByteBuffer byteBuffer)  {
+    static DBASEHeaderInfo readHeader(ByteBuffer byteBuffer)  {
         DBASEHeaderInfo headerInfo = new DBASEHeaderInfo();
 
         /* make sure we have proper byte order */
@@ -193,67 +224,48 @@ public class DBASEReader {
     /*
      * Process a field for a record, returning an Object which represents
      * the data for that field (e.g. a String, Double, Integer, Boolean, etc.).
+     * Numeric fields are parsed with the parser, which the caller reuses for all the fields it decodes.
      */
-    private Object processField(
+    static Object processField(
             ByteBuffer byteBuffer,
             String fieldName,
             char fieldType,
             int fieldLength,
-            int decimalCount
+            int decimalCount,
+            DbfCharset charset,
+            AsciiNumberParser parser
     ) {
         if (fieldLength < 0)
             return(null);
 
         int terminatorIndex = 0;
         switch (fieldType) {
-            case 'C': // ASCII
+            case 'C': // Character, in the .dbf file's character set
+                int start = byteBuffer.position();
+                int end = start + fieldLength;
+                byteBuffer.position(end);
+                end = textEnd(byteBuffer, start, end);
+                start = textStart(byteBuffer, start, end);
+                String text = charset.decode(byteBuffer, start, end - start);
                 if (DEBUG_FINE)
-                    System.out.print(fieldName+" ASCII Field ("+fieldLength+" chars):");
-                char[] chars = new char[fieldLength];
-                for (int index=0; index<fieldLength; index++) {
-                    byte b = byteBuffer.get();
-                    chars[index] = (char)b;
-                }
-                String name = new String(chars);
-                if (DEBUG_FINE)
-                    System.out.print(" padded:"+name);
-                terminatorIndex = name.indexOf('\u0000');
-                if (terminatorIndex > 0 && terminatorIndex < name.length())
-                    name = name.substring(0, terminatorIndex);
-                if (DEBUG_FINE)
-                    System.out.println(" unpadded:"+name);
-                return(name.trim());
+                    System.out.println(fieldName+" Character Field ("+fieldLength+" bytes): "+text);
+                return(text);
 
             case 'D': // Date
-                char[] dateChars = new char[fieldLength/*8*/];
-                for (int index=0; index < fieldLength/*8*/; index++) {
-                    byte b = byteBuffer.get();
-                    dateChars[index] = (char)b;
-                }
-                String dateString = new String(dateChars);
-                return(dateString);
+                int dateStart = byteBuffer.position();
+                byteBuffer.position(dateStart + fieldLength);
+                return(charset.decode(byteBuffer, dateStart, fieldLength));
 
             case 'N': // Numeric (integer)
                 // do not assume that the creator of the file intended an integer here
             case 'F': // Numeric (floating point)
                 if (DEBUG_FINE)
                     System.out.print(fieldName+" Numeric Field ("+fieldLength+" digits):");
-                char[] fDigits = new char[fieldLength];
-                for (int index=0; index<fieldLength; index++) {
-                    byte b = byteBuffer.get();
-                    char c = (char)b;
-                    // replace unruly characters with 0's
-                    if (c == ' ' || c == '\u0000')
-                        fDigits[index] = ' ';
-                    else
-                        fDigits[index] = (char)b;
-                }
-                String fName = new String(fDigits).trim();
+                int numberStart = byteBuffer.position();
+                Number numberObject = parser.parseNumber(byteBuffer, numberStart, fieldLength);
+                byteBuffer.position(numberStart + fieldLength);
                 if (DEBUG_FINE)
-                    System.out.print("'"+fName+"'");
-                Number numberObject = getNumberObject(fName);
-                if (DEBUG_FINE)
-                    System.out.println("="+numberObject + ", class: " + numberObject.getClass());
+                    System.out.println("="+numberObject);
 
                 return(numberObject);
 
@@ -289,59 +301,17 @@ public class DBASEReader {
         return(null);
     }
 
-    private Number getNumberObject(String value) {
-        if (value == null) {
-            return(null);
-        }
-
-        Number number = null;
-
-        /* replace any + with spaces, then trim string of spaces */
-        String cleanedStr = value.replace('+', ' ').trim();
-        if (cleanedStr.isEmpty()) {
-            return(null);
-        }
-
-        NumberFormat decimalFormat = NumberFormat.getNumberInstance(Locale.getDefault());
-
-        if (cleanedStr.toUpperCase().contains("E")) {
-            /* if string contains '+', the parse() will blow up */
-            int eIndex = cleanedStr.toUpperCase().indexOf('E');
-            String mantissa = cleanedStr.substring(0, eIndex);
-
-            Number mantissaNumber = null;
-            try {
-                mantissaNumber = decimalFormat.parse(mantissa.trim());
-            } catch (ParseException ex) {
-            }
-
-            String exp = cleanedStr.substring(eIndex+1, cleanedStr.length());
-
-            Number expNumber = null;
-            try {
-                expNumber = decimalFormat.parse(exp.trim());
-            } catch (ParseException ex) {
-            }
-
-            if (mantissaNumber == null || expNumber == null) {
-                return(null);
-            }
-
-            double val = mantissaNumber.doubleValue() * Math.pow(10.0, expNumber.intValue());
-            return(Double.valueOf(val));
-        }
-
-        try {
-            number = decimalFormat.parse(cleanedStr);
-
-        } catch (ParseException e) {
-            /* do nothing */
-        }
-
-        if (number == null)
-            return(null);
-
-        return(number);
+    /**
+     * Read the header and field descriptors of the .dbf file, and nothing more; see
+     * {@link DbfSchema#read(java.nio.file.Path)} to read (and cache) them by path.
+     *
+     * @param inputStream the .dbf input stream, positioned at the start of the file; it is left
+     *                    positioned at the first record.
+     * @return the schema.
+     * @throws IOException if there was an error reading from the input stream
+     */
+    public DbfSchema readSchema(InputStream inputStream) throws IOException {
+        return DbfSchema.read(Channels.newChannel(inputStream));
     }
 
     /**
@@ -352,54 +322,14 @@ public class DBASEReader {
      * @throws IOException if there was an error reading from the input stream
      */
     public String[] readColumnNames(InputStream inputStream) throws IOException {
-        ByteBuffer byteBuffer = createByteBuffer(inputStream);
-
-        // process the file header
-        DBASEHeaderInfo headerInfo = readHeader(byteBuffer);
-        if (headerInfo.nRecords <= 0)
+        // the header is all that is needed
+        DbfSchema schema = readSchema(inputStream);
+        if (schema.getRecordCount() <= 0)
             return(null);
-
-        if (debug())
-            System.out.println("nRecords:"+headerInfo.nRecords);
-
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
-        if (debug())
-            System.out.println("nFields:"+nFields);
-        if (nFields <= 0)
+        if (schema.getFieldCount() <= 0)
             return(null);
-        String[] fieldNames = new String[nFields];
-        for (int field = 0; field < nFields; field++) {
-            /*
-             * Read the Field Descriptor Array (starting at byte 32)
-             */
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldNames[field] = fieldName;
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            charBuffer.get();
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            unsignedValue(byteBuffer.get());
-
-            // decimal count
-            byteBuffer.get();
-        }
 
-        return(fieldNames);
+        return(schema.getNames());
     }
 
     /**
@@ -412,138 +342,90 @@ public class DBASEReader {
         return (b & 0xFF);
     }
 
+    /**
+     * End of a character value held in bytes [start, end) of a buffer: the value is cut at the first
+     * NUL after its first byte, then trailing blanks are dropped.
+     */
+    static int textEnd(ByteBuffer buffer, int start, int end) {
+        for (int index = start + 1; index < end; index++) {
+            if (buffer.get(index) == 0) {
+                end = index;
+                break;
+            }
+        }
+        while (end > start && unsignedValue(buffer.get(end - 1)) <= ' ')
+            end--;
+        return end;
+    }
+
+    /**
+     * Start of a character value held in bytes [start, end) of a buffer, without leading blanks.
+     */
+    static int textStart(ByteBuffer buffer, int start, int end) {
+        while (start < end && unsignedValue(buffer.get(start)) <= ' ')
+            start++;
+        return start;
+    }
+
     /**
      * Read a column of data from the .dbf file.
      *
      * @param inputStream the .dbf file input stream.
      * @param columnName the .dbf column name.
-     * @return array of objects from the column.
+     * @return array of objects from the column, or null if there is no column with the name.
      * @throws Exception if error occurred while reading.
      */
     public Object[] readColumn(InputStream inputStream, String columnName) throws Exception {
-        ByteBuffer byteBuffer = createByteBuffer(inputStream);
-
-        // process the file header
-        DBASEHeaderInfo headerInfo = readHeader(byteBuffer);
-        if (headerInfo.nRecords <= 0)
+        DbfCursor cursor = new DbfCursor(inputStream, charset.charset());
+        if (cursor.getSchema().indexOf(columnName) == -1)
             return(null);
-
-        if (debug())
-            System.out.println("nRecords:"+headerInfo.nRecords);
-
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
-        if (debug())
-            System.out.println("nFields:"+nFields);
-        if (nFields <= 0)
+        Object[][] columns = readColumns(cursor, columnName);
+        if (columns == null)
             return(null);
 
-        String[] fieldNames = new String[nFields];
-        char[] fieldTypes = new char[nFields];
-        int[] fieldLengths = new int[nFields];
-        int[] decimalCounts = new int[nFields];
-        int targetFieldIndex = -1;
-        for (int field = 0; field < nFields; field++) {
-            /*
-             * Read the Field Descriptor Array (starting at byte 32)
-             */
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            if (DEBUG_FINE)
-                System.out.println("byteBuffer position:"+initialPosition);
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldName = fieldName.trim();
-            fieldNames[field] = fieldName;
-            if (columnName.compareTo(fieldName) == 0) {
-                targetFieldIndex = field;
-            }
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            char fieldType = charBuffer.get();
-            fieldTypes[field] = fieldType;
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            int fieldLength = unsignedValue(byteBuffer.get());
-            fieldLengths[field] = fieldLength;
+        return(columns[0]);
+    }
 
-            byte decimalCount = byteBuffer.get();
-            decimalCounts[field] = decimalCount;
+    /**
+     * Read several columns of data from the .dbf file in one pass over the records.
+     *
+     * @param inputStream the .dbf file input stream.
+     * @param columnNames the .dbf column names.
+     * @return one array of objects per column name, in the order given.
+     * @throws IOException if error occurred while reading.
+     * @throws IllegalArgumentException if there is no column with one of the names, as for
+     * {@link DbfFile#readColumns(String...)}.
+     */
+    public Object[][] readColumns(InputStream inputStream, String... columnNames) throws IOException {
+        DbfCursor cursor = new DbfCursor(inputStream, charset.charset());
+        for (String columnName : columnNames) {
+            if (cursor.getSchema().indexOf(columnName) == -1)
+                throw new IllegalArgumentException("no field named " + columnName);
         }
+        return readColumns(cursor, columnNames);
+    }
 
-        if (targetFieldIndex == -1)
+    private static Object[][] readColumns(DbfCursor cursor, String... columnNames) throws IOException {
+        DbfSchema schema = cursor.getSchema();
+        if (schema.getRecordCount() <= 0)
             return(null);
 
-        if (debug()) {
-            System.out.print("Fields: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldNames[field]+",");
-            System.out.println();
-
-            System.out.print("Types: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldTypes[field]+",");
-            System.out.println();
-
-            System.out.print("Lengths: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldLengths[field]+",");
-            System.out.println();
-
-            System.out.print("Decimal Counts: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(decimalCounts[field]+",");
-            System.out.println();
+        int[] fieldIndexes = new int[columnNames.length];
+        char[] fieldTypes = new char[columnNames.length];
+        Object[][] columns = new Object[columnNames.length][];
+        for (int column = 0; column < columnNames.length; column++) {
+            fieldIndexes[column] = schema.indexOf(columnNames[column]);
+            fieldTypes[column] = schema.getType(fieldIndexes[column]);
+            columns[column] = new Object[schema.getRecordCount()];
         }
 
-        if (DEBUG_COARSE)
-            System.out.println("targetColumnIndex="+targetFieldIndex);
-
-        // read the Header Record Terminator byte
-        byteBuffer.get();
-
-        /*
-         * Read records
-         */
-        Object[] data = new Object[headerInfo.nRecords];
-        for (int record = 0; record < headerInfo.nRecords; record++) {
-            // set byteBuffer position
-            int initialPosition = headerInfo.headerSize + (record * headerInfo.recordSize);
-            if (DEBUG_FINE)
-                System.out.println("record "+record+" byteBuffer position:"+initialPosition);
-            byteBuffer.position(initialPosition);
-
-            // read deleted byte for this record
-            /* byte deletedByte = */ byteBuffer.get();
-
-            int position = byteBuffer.position();
-            for (int field = 1; field <= targetFieldIndex; field++) {
-                if (field > 0)
-                    position += fieldLengths[field-1];
-            }
-            byteBuffer.position(position);
-            if (DEBUG_FINE)
-                System.out.println("record:"+record+ " position:"+position);
-            data[record] = processField(
-                    byteBuffer,
-                    fieldNames[targetFieldIndex],
-                    fieldTypes[targetFieldIndex],
-                    fieldLengths[targetFieldIndex],
-                    decimalCounts[targetFieldIndex]
-            );
+        while (cursor.next()) {
+            int record = cursor.getRecordIndex();
+            for (int column = 0; column < columns.length; column++)
+                columns[column][record] = cursor.decode(fieldIndexes[column], fieldTypes[column]);
         }
 
-        return(data);
+        return(columns);
     }
 
     /**
@@ -558,83 +440,16 @@ public class DBASEReader {
         if (DEBUG_COARSE)
             System.out.println("readColumn() columnName="+columnName);
 
-        // process the file header
-        inputStream.mark(DBASE_HEADER_LENGTH_BYTES * 100);
-        DBASEHeaderInfo headerInfo = readHeader(inputStream);
-        if (headerInfo.nRecords <= 0)
+        // the header is all that is needed
+        DbfSchema schema = readSchema(inputStream);
+        if (schema.getRecordCount() <= 0)
             return(null);
-        inputStream.reset();
-
-        // Allocate byte buffer to read column names
-        byte[] data = inputStream.readAllBytes();
-        ByteBuffer byteBuffer = ByteBuffer.wrap(data);
-
-        /* make sure we have proper byte order */
-        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        /* make sure we are positioned at the start of the file */
-        byteBuffer.rewind();
-
-        /* make sure we have proper byte order */
-        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        /* make sure we are positioned at the start of the file */
-        byteBuffer.rewind();
-
-        if (debug())
-            System.out.println("nRecords:"+headerInfo.nRecords);
-
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
-        if (debug())
-            System.out.println("nFields:"+nFields);
-        if (nFields <= 0)
-            return(null);
-        String[] fieldNames = new String[nFields];
-        char[] fieldTypes = new char[nFields];
-        int[] fieldLengths = new int[nFields];
-        int[] decimalCounts = new int[nFields];
-        int targetFieldIndex = -1;
-        for (int field = 0; field < nFields; field++) {
-            /*
-             * Read the Field Descriptor Array (starting at byte 32)
-             */
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            if (DEBUG_FINE)
-                System.out.println("byteBuffer position:"+initialPosition);
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldName = fieldName.trim();
-            fieldNames[field] = fieldName;
-            if (columnName.compareTo(fieldName) == 0) {
-                targetFieldIndex = field;
-            }
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            char fieldType = charBuffer.get();
-            fieldTypes[field] = fieldType;
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            int fieldLength = unsignedValue(byteBuffer.get());
-            fieldLengths[field] = fieldLength;
-
-            byte decimalCount = byteBuffer.get();
-            decimalCounts[field] = decimalCount;
-        }
 
+        int targetFieldIndex = schema.indexOf(columnName);
         if (targetFieldIndex == -1)
             return(null);
 
-        char fieldType = fieldTypes[targetFieldIndex];
+        char fieldType = schema.getType(targetFieldIndex);
         switch (fieldType) {
             case 'C': // ASCII
                 return String.class;
@@ -671,231 +486,63 @@ public class DBASEReader {
      * @throws IOException if there was an error reading from the input stream.
      */
     public List<DBField> readRecord(InputStream stream, int record) throws IOException {
-        ByteBuffer byteBuffer = createByteBuffer(stream);
-
-        // process the file header
-        DBASEHeaderInfo headerInfo = readHeader(byteBuffer);
-        if (headerInfo.nRecords <= 0)
+        DbfCursor cursor = new DbfCursor(stream, charset.charset());
+        DbfSchema schema = cursor.getSchema();
+        if (schema.getRecordCount() <= 0)
             return Collections.emptyList();
 
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
+        int nFields = schema.getFieldCount();
         if (nFields <= 0)
             return Collections.emptyList();
 
-        String[] fieldNames = new String[nFields];
-        char[] fieldTypes = new char[nFields];
-        int[] fieldLengths = new int[nFields];
-        int[] decimalCounts = new int[nFields];
-        for (int field = 0; field < nFields; field++) {
-            // Read the Field Descriptor Array (starting at byte 32)
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldNames[field] = fieldName;
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            char fieldType = charBuffer.get();
-            fieldTypes[field] = fieldType;
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            int fieldLength = unsignedValue(byteBuffer.get());
-            fieldLengths[field] = fieldLength;
-
-            byte decimalCount = byteBuffer.get();
-            decimalCounts[field] = decimalCount;
-
-            if (DEBUG_FINE)
-                System.out.println(String.format("name %s type %c length %d\n", fieldName, fieldType, fieldLength));
-        }
-
-        int nBytesToSkip = nFields * DBASE_HEADER_LENGTH_BYTES;
-
-        // read the Header Record Terminator byte
-        nBytesToSkip++;
-
-        nBytesToSkip += headerInfo.headerSize + (record * headerInfo.recordSize);
-
-        byteBuffer.position(nBytesToSkip);
-
-        // set byteBuffer position
-        int initialPosition = headerInfo.headerSize + (record * headerInfo.recordSize);
-        if (DEBUG_FINE)
-            System.out.println("record "+record+" byteBuffer position:"+initialPosition);
-        byteBuffer.position(initialPosition);
-
-        // read deleted byte for this record
-        byteBuffer.get();
+        if (!cursor.moveTo(record))
+            throw new IllegalArgumentException("record " + record + " is not in the .dbf file");
 
         List<DBField> dbFields = new ArrayList<>(nFields);
-
-        int position = byteBuffer.position();
         for (int field = 0; field < nFields; field++) {
-            if (field > 0)
-                position += fieldLengths[field-1];
-            byteBuffer.position(position);
-            if (DEBUG_FINE)
-                System.out.println("record:"+record+ " field:" + field + " position:"+position);
-            Object value = processField(
-                    byteBuffer,
-                    fieldNames[field],
-                    fieldTypes[field],
-                    fieldLengths[field],
-                    decimalCounts[field]
-            );
-
-            dbFields.add(new DBField(fieldNames[field], String.valueOf(fieldTypes[field]), value));
+            char fieldType = schema.getType(field);
+            Object value = cursor.decode(field, fieldType);
+            dbFields.add(new DBField(schema.getName(field), String.valueOf(fieldType), value));
         }
 
         return Collections.unmodifiableList(dbFields);
     }
 
-    private ByteBuffer createByteBuffer(InputStream stream) throws IOException {
-        // Allocate byte buffer to read column names
-        byte[] bytes = stream.readAllBytes();
-        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-
-        /* make sure we have proper byte order */
-        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        /* make sure we are positioned at the start of the file */
-        byteBuffer.rewind();
-
-        return byteBuffer;
-    }
-
     /**
      * Reads the entire .dbf file into memory as a DBASETableData object. NOT Recommended to use
-     * due to the possibility of OutOfMemoryError for larger .dbf files.
+     * due to the possibility of OutOfMemoryError for larger .dbf files. The table has the header's
+     * record count; if the file ends early, the values of the missing records are null.
      *
      * @param inputStream the .dbf input stream.
      * @return new instance of a DBASETableData, populated with the DBASE data.
      * @throws IOException if an error occurred while reading the shapefile.
      */
     public DBASETableData read(InputStream inputStream) throws IOException {
-        ByteBuffer byteBuffer = createByteBuffer(inputStream);
-
-        // process the file header
-        DBASEHeaderInfo headerInfo = readHeader(byteBuffer);
-        if (headerInfo.nRecords <= 0)
+        DbfCursor cursor = new DbfCursor(inputStream, charset.charset());
+        DbfSchema schema = cursor.getSchema();
+        if (schema.getRecordCount() <= 0)
             return(null);
 
-        if (debug())
-            System.out.println("nRecords:"+headerInfo.nRecords);
-
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
-        if (debug())
-            System.out.println("nFields:"+nFields);
+        int nFields = schema.getFieldCount();
         if (nFields <= 0)
             return(null);
-        String[] fieldNames = new String[nFields];
-        char[] fieldTypes = new char[nFields];
-        int[] fieldLengths = new int[nFields];
-        int[] decimalCounts = new int[nFields];
-        for (int field = 0; field < nFields; field++) {
-            /*
-             * Read the Field Descriptor Array (starting at byte 32)
-             */
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldNames[field] = fieldName;
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            char fieldType = charBuffer.get();
-            fieldTypes[field] = fieldType;
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            int fieldLength = unsignedValue(byteBuffer.get());
-            fieldLengths[field] = fieldLength;
-
-            byte decimalCount = byteBuffer.get();
-            decimalCounts[field] = decimalCount;
-        }
-
-        if (debug()) {
-            System.out.print("Fields: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldNames[field]+",");
-            System.out.println();
-
-            System.out.print("Types: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldTypes[field]+",");
-            System.out.println();
-
-            System.out.print("Lengths: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(fieldLengths[field]+",");
-            System.out.println();
-
-            System.out.print("Decimal Counts: ");
-            for (int field = 0; field < nFields; field++)
-                System.out.print(decimalCounts[field]+",");
-            System.out.println();
-        }
-
-        // read the Header Record Terminator byte
-        byteBuffer.get();
 
         /*
          * Read records
          */
-        Object[][] data = new Object[headerInfo.nRecords][nFields];
-        for (int record = 0; record < headerInfo.nRecords; record++) {
-            // set byteBuffer position
-            int initialPosition = headerInfo.headerSize + (record * headerInfo.recordSize);
-            if (DEBUG_FINE)
-                System.out.println("record "+record+" byteBuffer position:"+initialPosition);
-            byteBuffer.position(initialPosition);
-
-            // read deleted byte for this record
-            /* byte deletedByte = */ byteBuffer.get();
-
-            int position = byteBuffer.position();
-            for (int field = 0; field < nFields; field++) {
-                if (field > 0)
-                    position += fieldLengths[field-1];
-                byteBuffer.position(position);
-                if (DEBUG_FINE)
-                    System.out.println("record:"+record+ " field:" + field + " position:"+position);
-                data[record][field] = processField(
-                        byteBuffer,
-                        fieldNames[field],
-                        fieldTypes[field],
-                        fieldLengths[field],
-                        decimalCounts[field]
-                );
-            }
+        Object[][] data = new Object[schema.getRecordCount()][nFields];
+        while (cursor.next()) {
+            Object[] row = data[cursor.getRecordIndex()];
+            for (int field = 0; field < nFields; field++)
+                row[field] = cursor.decode(field, schema.getType(field));
         }
 
         DBASETableData returnData = new DBASETableData(
                 data,
-                headerInfo.nRecords,
+                schema.getRecordCount(),
                 nFields,
-                fieldNames
+                schema.getNames(),
+                schema.getFieldTypes()
         );
         if (debug())
             returnData.dump(0/*indent*/);
@@ -903,6 +550,114 @@ public class DBASEReader {
         return(returnData);
     }
 
+    /**
+     * Reads the entire .dbf file into memory, as {@link #read(InputStream)}, decoding disjoint
+     * ranges of records in parallel on the common ForkJoinPool.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new instance of a DBASETableData, populated with the DBASE data.
+     * @throws IOException if an error occurred while reading the file.
+     */
+    public DBASETableData readParallel(Path dbfPath) throws IOException {
+        return readParallel(dbfPath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads the entire .dbf file into memory, as {@link #read(InputStream)}, decoding disjoint
+     * ranges of records in parallel. Records are fixed-width, so each range is read with its own
+     * positional reads and decoded straight into its rows of the preallocated table. As with
+     * read, if the file ends before the header's record count, the missing records' values are null.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param pool the pool to decode on.
+     * @return new instance of a DBASETableData, populated with the DBASE data.
+     * @throws IOException if an error occurred while reading the file.
+     */
+    public DBASETableData readParallel(Path dbfPath, ForkJoinPool pool) throws IOException {
+        try (DbfFile dbfFile = DbfFile.open(dbfPath, charset.charset())) {
+            DbfSchema schema = dbfFile.getSchema();
+            if (schema.getRecordCount() <= 0)
+                return(null);
+
+            int nFields = schema.getFieldCount();
+            if (nFields <= 0)
+                return(null);
+
+            Object[][] data = new Object[schema.getRecordCount()][nFields];
+            int recordSize = schema.getRecordSize();
+            dbfFile.forEachBlockParallel(pool, (block, firstRecord, nRecords) -> {
+                AsciiNumberParser parser = new AsciiNumberParser();
+                for (int record = 0; record < nRecords; record++) {
+                    Object[] row = data[firstRecord + record];
+                    for (int field = 0; field < nFields; field++) {
+                        block.position(record * recordSize + schema.getOffset(field));
+                        row[field] = processField(
+                                block,
+                                schema.getName(field),
+                                schema.getType(field),
+                                schema.getLength(field),
+                                schema.getDecimalCount(field),
+                                charset,
+                                parser
+                        );
+                    }
+                }
+            });
+
+            return(new DBASETableData(
+                    data,
+                    schema.getRecordCount(),
+                    nFields,
+                    schema.getNames(),
+                    schema.getFieldTypes()
+            ));
+        }
+    }
+
+    /**
+     * Reads the records that match a filter into memory, with the record number added to the data
+     * as in {@link #readWithRecordNumberRowHeaders(ByteBuffer)}. The filter is tested on the record
+     * bytes, so only matching records are decoded.
+     *
+     * @param inputStream the .dbf input stream.
+     * @param filter the filter.
+     * @return new instance of DBASETableData holding the matching records.
+     * @throws IOException if an error occurred while reading.
+     * @throws IllegalArgumentException if the filter names a missing field, or compares a field of the wrong type.
+     */
+    public DBASETableData scan(InputStream inputStream, DbfFilter filter) throws IOException {
+        DbfCursor cursor = new DbfCursor(inputStream, charset.charset());
+        DbfSchema schema = cursor.getSchema();
+        if (schema.getRecordCount() <= 0)
+            return(null);
+
+        int nFields = schema.getFieldCount();
+        if (nFields <= 0)
+            return(null);
+        String[] fieldNames = new String[nFields + 1];
+        fieldNames[0] = "Record No.";
+        for (int field = 0; field < nFields; field++)
+            fieldNames[field + 1] = schema.getName(field);
+
+        cursor.setFilter(filter);
+        List<Object[]> rows = new ArrayList<>();
+        while (cursor.next()) {
+            Object[] row = new Object[nFields + 1/*row header*/];
+            row[0] = Integer.valueOf(cursor.getRecordIndex() + 1);
+            for (int field = 0; field < nFields; field++)
+                row[field + 1] = cursor.decode(field, schema.getType(field));
+            rows.add(row);
+        }
+
+        return(new DBASETableData(
+                rows.toArray(new Object[0][]),
+                rows.size(),
+                nFields + 1,
+                fieldNames,
+                fieldTypesWithRecordNumbers(schema)
+        ));
+    }
+
     /**
      * Read all records with the record number added to the data.
      *
@@ -916,84 +671,104 @@ public class DBASEReader {
         byteBuffer.rewind();
 
         // process the file header
-        DBASEHeaderInfo headerInfo = readHeader(byteBuffer);
-        if (headerInfo.nRecords <= 0)
+        DbfSchema schema = DbfSchema.parse(byteBuffer);
+        if (schema.getRecordCount() <= 0)
             return(null);
 
-        int nFields = (headerInfo.headerSize / DBASE_HEADER_LENGTH_BYTES) - 1;
+        int nFields = schema.getFieldCount();
         if (nFields <= 0)
             return(null);
         String[] fieldNames = new String[nFields + 1];
         fieldNames[0] = "Record No.";
-        char[] fieldTypes = new char[nFields];
-        int[] fieldLengths = new int[nFields];
-        int[] decimalCounts = new int[nFields];
-        for (int field = 0; field < nFields; field++) {
-            /* Read the Field Descriptor Array (starting at byte 32) */
-            int initialPosition = (field+1) * DBASE_HEADER_LENGTH_BYTES;
-            byteBuffer.position(initialPosition);
-            // field name (11 bytes)--convert bytes to unicode chars
-            char[] uniChars = new char[FIELD_NAME_LENGTH];
-            for (int index=0; index<FIELD_NAME_LENGTH; index++) {
-                byte charByte = byteBuffer.get();
-                char uniChar = (char)charByte;
-                uniChars[index] = uniChar;
-            }
-            String fieldName = new String(uniChars);
-            int terminatorIndex = fieldName.indexOf('\u0000');
-            if (terminatorIndex > 0 && terminatorIndex < fieldName.length())
-                fieldName = fieldName.substring(0, terminatorIndex);
-            fieldNames[field + 1] = fieldName;
-
-            // field type
-            CharBuffer charBuffer = byteBuffer.asCharBuffer();
-            char fieldType = charBuffer.get();
-            fieldTypes[field] = fieldType;
-
-            // position buffer to 16th byte in record (field length)
-            byteBuffer.position(initialPosition + 16);
-            int fieldLength = unsignedValue(byteBuffer.get());
-            fieldLengths[field] = fieldLength;
-
-            byte decimalCount = byteBuffer.get();
-            decimalCounts[field] = decimalCount;
+        for (int field = 0; field < nFields; field++)
+            fieldNames[field + 1] = schema.getName(field);
+
+        Object[][] data = new Object[schema.getRecordCount()][nFields + 1/*row header*/];
+        decodeWithRecordNumbers(byteBuffer, schema, data, 0, schema.getRecordCount());
+        DBASETableData returnData = new DBASETableData(
+                data,
+                schema.getRecordCount(),
+                nFields + 1,
+                fieldNames,
+                fieldTypesWithRecordNumbers(schema)
+        );
+        return(returnData);
+    }
+
+    /**
+     * Read all records with the record number added to the data, as
+     * {@link #readWithRecordNumberRowHeaders(ByteBuffer)}, decoding disjoint ranges of records
+     * in parallel. Each range decodes from its own view of the buffer.
+     *
+     * @param byteBuffer the .dbf file byte buffer.
+     * @param pool the pool to decode on.
+     * @return new instance of DBASETableData, including record numbers.
+     */
+    public DBASETableData readWithRecordNumberRowHeaders(ByteBuffer byteBuffer, ForkJoinPool pool) {
+        /* make sure we have proper byte order */
+        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        /* make sure we are positioned at the start of the file */
+        byteBuffer.rewind();
+
+        // process the file header
+        DbfSchema schema = DbfSchema.parse(byteBuffer);
+        if (schema.getRecordCount() <= 0)
+            return(null);
+
+        int nFields = schema.getFieldCount();
+        if (nFields <= 0)
+            return(null);
+        String[] fieldNames = new String[nFields + 1];
+        fieldNames[0] = "Record No.";
+        for (int field = 0; field < nFields; field++)
+            fieldNames[field + 1] = schema.getName(field);
+
+        Object[][] data = new Object[schema.getRecordCount()][nFields + 1/*row header*/];
+        int recordsPerRange = Math.max(1, DbfCursor.BLOCK_BYTES / Math.max(1, schema.getRecordSize()));
+        try {
+            RecordRanges.decodeParallel(pool, schema.getRecordCount(), recordsPerRange, (range, from, to) ->
+                    decodeWithRecordNumbers(byteBuffer.duplicate().order(ByteOrder.LITTLE_ENDIAN), schema, data, from, to));
+        } catch (IOException e) {
+            // decoding from memory does no I/O
+            throw new UncheckedIOException(e);
         }
-        // read the Header Record Terminator byte
-        byteBuffer.get();
-        Object[][] data = new Object[headerInfo.nRecords][nFields + 1/*row header*/];
-        for (int record = 0; record < headerInfo.nRecords; record++) {
-            // set byteBuffer position
-            int initialPosition = headerInfo.headerSize + (record * headerInfo.recordSize);
-            if (DEBUG_FINE)
-                System.out.println("record "+record+" byteBuffer position:"+initialPosition);
-            byteBuffer.position(initialPosition);
-
-            // read deleted byte for this record
-            byteBuffer.get();
+        return(new DBASETableData(
+                data,
+                schema.getRecordCount(),
+                nFields + 1,
+                fieldNames,
+                fieldTypesWithRecordNumbers(schema)
+        ));
+    }
+
+    private static DBASETableData.FieldType[] fieldTypesWithRecordNumbers(DbfSchema schema) {
+        DBASETableData.FieldType[] fieldTypes = new DBASETableData.FieldType[schema.getFieldCount() + 1];
+        fieldTypes[0] = DBASETableData.FieldType.Number;
+        System.arraycopy(schema.getFieldTypes(), 0, fieldTypes, 1, schema.getFieldCount());
+        return fieldTypes;
+    }
+
+    /*
+     * Decode records [from, to) into their rows of data, after the record number.
+     */
+    private void decodeWithRecordNumbers(ByteBuffer byteBuffer, DbfSchema schema, Object[][] data, int from, int to) {
+        AsciiNumberParser parser = new AsciiNumberParser();
+        for (int record = from; record < to; record++) {
+            int recordPosition = schema.getHeaderSize() + (record * schema.getRecordSize());
             data[record][0] = Integer.valueOf(record + 1);
-            int position = byteBuffer.position();
-            for (int field = 0; field < nFields; field++) {
-                if (field > 0)
-                    position += fieldLengths[field-1];
-                byteBuffer.position(position);
-                if (DEBUG_FINE)
-                    System.out.println("record:"+record+ " field:" + field + " position:"+position);
+            for (int field = 0; field < schema.getFieldCount(); field++) {
+                byteBuffer.position(recordPosition + schema.getOffset(field));
                 data[record][field+1] = processField(
                         byteBuffer,
-                        fieldNames[field],
-                        fieldTypes[field],
-                        fieldLengths[field],
-                        decimalCounts[field]
+                        schema.getName(field),
+                        schema.getType(field),
+                        schema.getLength(field),
+                        schema.getDecimalCount(field),
+                        charset,
+                        parser
                 );
             }
         }
-        DBASETableData returnData = new DBASETableData(
-                data,
-                headerInfo.nRecords,
-                nFields + 1,
-                fieldNames
-        );
-        return(returnData);
     }
 
   /*
@@ -8,7 +8,7 @@ import java.util.List;
 
 /**
  * Holder for all data in the .dbf file. Not recommended to use this as it could definitely cause
- * an OutOfMemory exception for larger shapefile .dbf files.
+ * an OutOfMemory exception for larger shapefile .dbf files; see {@link DbfColumnarTable}.
  */
 public class DBASETableData {
     public static final double DVAL_DOUBLE = 3.4E+38;
@@ -41,6 +41,21 @@ public class DBASETableData {
                 this.columnNames.add(columnNamesArray[index]);
     }
 
+    /**
+     * Table with the column types declared by the .dbf header, which {@link #getColumnTypes()}
+     * then returns without scanning the data.
+     */
+    DBASETableData(
+            Object[][] data,
+            int nRecords,
+            int nFields,
+            String[] columnNamesArray,
+            FieldType[] fieldTypes
+    ) {
+        this(data, nRecords, nFields, columnNamesArray);
+        this.fieldTypeArray = fieldTypes;
+    }
+
     /**
      * @return column names.
      */
@@ -0,0 +1,171 @@
+package com.primalimited.gis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Character set of the text in a .dbf file, from the code page named in the sidecar .cpg file,
+ * and decoding of character field bytes with it. Text that is all ASCII, in any ASCII-compatible
+ * character set, and Latin-1 text are decoded without a CharsetDecoder.
+ */
+final class DbfCharset {
+    /** used when there is no .cpg file, or it names a code page that is not supported */
+    static final DbfCharset DEFAULT = new DbfCharset(StandardCharsets.ISO_8859_1);
+
+    private final Charset charset;
+    private final boolean latin1;
+    private final boolean asciiCompatible;
+
+    private DbfCharset(Charset charset) {
+        this.charset = charset;
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        this.asciiCompatible = isAsciiCompatible(charset);
+    }
+
+    static DbfCharset of(Charset charset) {
+        return charset == null || charset.equals(DEFAULT.charset) ? DEFAULT : new DbfCharset(charset);
+    }
+
+    /**
+     * The character set named in the .cpg file next to a .dbf file.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return the character set, or {@link #DEFAULT} if there is no .cpg file.
+     * @throws IOException if the .cpg file exists but could not be read.
+     */
+    static DbfCharset forDbf(Path dbfPath) throws IOException {
+        Path cpgPath = cpgPath(dbfPath);
+        if (cpgPath == null || !Files.isRegularFile(cpgPath))
+            return DEFAULT;
+        return of(forCodePage(Files.readString(cpgPath, StandardCharsets.ISO_8859_1)));
+    }
+
+    /*
+     * The .cpg file with the same base name, following the case of the .dbf extension.
+     */
+    static Path cpgPath(Path dbfPath) {
+        Path fileName = dbfPath.getFileName();
+        if (fileName == null)
+            return null;
+        String name = fileName.toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        String suffix = dot < 0 ? "" : name.substring(dot + 1);
+        String extension = ShapefileConstants.SHAPEFILE_CODE_PAGE_EXTENSION;
+        if (!suffix.isEmpty() && suffix.equals(suffix.toUpperCase(Locale.ROOT)))
+            extension = extension.toUpperCase(Locale.ROOT);
+        return dbfPath.resolveSibling(baseName + "." + extension);
+    }
+
+    /**
+     * Character set for a code page as written in .cpg files, e.g. "UTF-8", "1252", "ANSI 1252",
+     * "88591", "65001", "ISO-8859-1". A bare number is a Windows code page if there is one, as
+     * Esri writes them (936 is GBK, 932 windows-31j), otherwise an OEM (IBM) code page such as 850.
+     *
+     * @param codePage the .cpg file contents.
+     * @return the character set, or ISO-8859-1 if the code page is blank or not supported.
+     */
+    static Charset forCodePage(String codePage) {
+        String name = codePage == null ? "" : codePage.trim().toUpperCase(Locale.ROOT);
+        if (name.startsWith("ANSI "))
+            name = name.substring("ANSI ".length()).trim();
+        if (name.isEmpty())
+            return DEFAULT.charset;
+
+        switch (name) {
+            case "UTF8":
+            case "65001":
+                return StandardCharsets.UTF_8;
+            case "88591":
+                return StandardCharsets.ISO_8859_1;
+            default:
+                break;
+        }
+        if (name.startsWith("8859") && name.length() > 4 && isDigits(name.substring(4)))
+            name = "ISO-8859-" + name.substring(4);
+        else if (isDigits(name)) {
+            Charset windows = forName("windows-" + name);
+            return windows != null ? windows : orDefault(forName("IBM" + name));
+        }
+        return orDefault(forName(name));
+    }
+
+    private static Charset forName(String name) {
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
+    private static Charset orDefault(Charset charset) {
+        return charset != null ? charset : DEFAULT.charset;
+    }
+
+    private static boolean isDigits(String s) {
+        for (int index = 0; index < s.length(); index++) {
+            if (!Character.isDigit(s.charAt(index)))
+                return false;
+        }
+        return !s.isEmpty();
+    }
+
+    /*
+     * True if bytes 0x00-0x7F are the ASCII characters, e.g. UTF-8, windows-125x, ISO-8859-x, IBM437.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        byte[] ascii = new byte[128];
+        for (int index = 0; index < ascii.length; index++)
+            ascii[index] = (byte) index;
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ascii.length)
+            return false;
+        for (int index = 0; index < ascii.length; index++) {
+            if (decoded.charAt(index) != index)
+                return false;
+        }
+        return true;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Decode text from a buffer; the buffer position is not changed.
+     */
+    String decode(ByteBuffer byteBuffer, int start, int length) {
+        byte[] bytes = new byte[length];
+        byteBuffer.get(start, bytes, 0, length);
+        return decode(bytes, 0, length);
+    }
+
+    /**
+     * Decode text from an array.
+     */
+    String decode(byte[] bytes, int start, int length) {
+        if (latin1 || (asciiCompatible && isAscii(bytes, start, length)))
+            return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+        return new String(bytes, start, length, charset);
+    }
+
+    private static boolean isAscii(byte[] bytes, int start, int length) {
+        for (int index = start; index < start + length; index++) {
+            if (bytes[index] < 0)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return charset.name();
+    }
+}
@@ -0,0 +1,989 @@
+package com.primalimited.gis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * All data in a .dbf file, held by column in primitive arrays: a smaller-footprint alternative to
+ * {@link DBASETableData}, which boxes every value.
+ *
+ * <ul>
+ *     <li>Numeric ('N', 'F') columns are a long[] while every value is a whole number with no
+ *     exponent, otherwise a double[]. Blank values are flagged in a null BitSet, and are
+ *     {@link DBASETableData#DVAL_DOUBLE} in a double[].</li>
+ *     <li>Logical ('L') columns are a BitSet of true values; blank and '?' values are null.</li>
+ *     <li>Character ('C') columns are dictionary-encoded: an int code per row into a table of the
+ *     distinct values, each decoded to one shared String. Columns with many distinct values fall
+ *     back to the layout of date columns. Values are trimmed as {@link DBASEReader} trims them.</li>
+ *     <li>Date ('D') columns are the bytes of every value in one byte[] with an int[] of value end
+ *     offsets.</li>
+ *     <li>Text is kept as bytes, and decoded with the .dbf file's character set only when a value
+ *     is asked for.</li>
+ *     <li>Memo, picture and other unsupported columns hold no data; every value is null.</li>
+ * </ul>
+ */
+public class DbfColumnarTable {
+    private final String[] columnNames;
+    private final char[] fieldTypes;
+    private final Column[] columns;
+    private final int nRecords;
+
+    // records decoded together by readParallel
+    private static final int RECORDS_PER_RANGE = 64 * 1024;
+
+    private DbfColumnarTable(String[] columnNames, char[] fieldTypes, Column[] columns, int nRecords) {
+        this.columnNames = columnNames;
+        this.fieldTypes = fieldTypes;
+        this.columns = columns;
+        this.nRecords = nRecords;
+    }
+
+    /**
+     * Read a whole .dbf file. Character fields are decoded with the character set named in the .cpg
+     * file next to it, if there is one. If the file ends before the header's record count, the
+     * table holds the whole records that are present.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new instance of DbfColumnarTable.
+     * @throws IOException if the file could not be read.
+     */
+    public static DbfColumnarTable read(Path dbfPath) throws IOException {
+        try (DbfCursor cursor = DbfCursor.open(dbfPath)) {
+            return read(cursor);
+        }
+    }
+
+    /**
+     * Read a whole .dbf input stream. The stream is not closed.
+     *
+     * @param inputStream the .dbf input stream, positioned at the start of the file.
+     * @return new instance of DbfColumnarTable.
+     * @throws IOException if the stream could not be read.
+     */
+    public static DbfColumnarTable read(InputStream inputStream) throws IOException {
+        return read(inputStream, null);
+    }
+
+    /**
+     * Read a whole .dbf input stream. The stream is not closed.
+     *
+     * @param inputStream the .dbf input stream, positioned at the start of the file.
+     * @param charset character set of character fields, e.g. from the .cpg file; null for ISO-8859-1.
+     * @return new instance of DbfColumnarTable.
+     * @throws IOException if the stream could not be read.
+     */
+    public static DbfColumnarTable read(InputStream inputStream, Charset charset) throws IOException {
+        return read(new DbfCursor(inputStream, charset));
+    }
+
+    private static DbfColumnarTable read(DbfCursor cursor) throws IOException {
+        DbfSchema schema = cursor.getSchema();
+        Column[] columns = newColumns(schema, Math.max(0, schema.getRecordCount()), cursor.getCharset());
+
+        AsciiNumberParser parser = new AsciiNumberParser();
+        int nRecords = 0;
+        while (cursor.next())
+            decodeRecord(columns, schema, nRecords++, cursor.getBuffer(), cursor.getRecordPosition(), parser);
+        for (Column column : columns)
+            column.finish(nRecords);
+
+        return new DbfColumnarTable(schema.getNames(), fieldTypes(schema), columns, nRecords);
+    }
+
+    /**
+     * Read a whole .dbf file, decoding disjoint ranges of records in parallel on the common
+     * ForkJoinPool. The table is the same as the one {@link #read(Path)} reads.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new instance of DbfColumnarTable.
+     * @throws IOException if the file could not be read.
+     */
+    public static DbfColumnarTable readParallel(Path dbfPath) throws IOException {
+        return readParallel(dbfPath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Read a whole .dbf file, decoding disjoint ranges of records in parallel. Each range is read
+     * with its own positional reads into columns of its own, which are then joined in record
+     * order. The table is the same as the one {@link #read(Path)} reads.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param pool the pool to decode on.
+     * @return new instance of DbfColumnarTable.
+     * @throws IOException if the file could not be read.
+     */
+    public static DbfColumnarTable readParallel(Path dbfPath, ForkJoinPool pool) throws IOException {
+        return readParallel(dbfPath, pool, RECORDS_PER_RANGE);
+    }
+
+    static DbfColumnarTable readParallel(Path dbfPath, ForkJoinPool pool, int recordsPerRange) throws IOException {
+        try (DbfFile dbfFile = DbfFile.open(dbfPath)) {
+            DbfSchema schema = dbfFile.getSchema();
+            DbfCharset charset = dbfFile.getCharset();
+            // as read(Path), only the records present if the file ends early
+            int nRecords = dbfFile.getRecordsPresent();
+            int recordSize = schema.getRecordSize();
+
+            Column[][] ranges = new Column[RecordRanges.rangeCount(nRecords, recordsPerRange)][];
+            RecordRanges.decodeParallel(pool, nRecords, recordsPerRange, (range, from, to) -> {
+                Column[] columns = newColumns(schema, to - from, charset);
+                AsciiNumberParser parser = new AsciiNumberParser();
+                dbfFile.forEachBlock(from, to, (block, firstRecord, nBlockRecords) -> {
+                    for (int record = 0; record < nBlockRecords; record++)
+                        decodeRecord(columns, schema, firstRecord - from + record, block, record * recordSize, parser);
+                });
+                for (Column column : columns)
+                    column.finish(to - from);
+                ranges[range] = columns;
+            });
+
+            // fields are independent, so each is joined on a thread of its own
+            Column[] columns = new Column[schema.getFieldCount()];
+            RecordRanges.decodeParallel(pool, columns.length, 1, (field, from, to) -> {
+                Column[] fieldRanges = new Column[ranges.length];
+                for (int range = 0; range < ranges.length; range++)
+                    fieldRanges[range] = ranges[range][field];
+                columns[field] = join(fieldRanges, recordsPerRange, nRecords, schema.getType(field), schema.getLength(field), charset);
+            });
+            return new DbfColumnarTable(schema.getNames(), fieldTypes(schema), columns, nRecords);
+        }
+    }
+
+    private static char[] fieldTypes(DbfSchema schema) {
+        char[] fieldTypes = new char[schema.getFieldCount()];
+        for (int field = 0; field < fieldTypes.length; field++)
+            fieldTypes[field] = schema.getType(field);
+        return fieldTypes;
+    }
+
+    private static Column[] newColumns(DbfSchema schema, int capacity, DbfCharset charset) {
+        Column[] columns = new Column[schema.getFieldCount()];
+        for (int field = 0; field < columns.length; field++)
+            columns[field] = newColumn(schema.getType(field), schema.getLength(field), capacity, charset);
+        return columns;
+    }
+
+    private static void decodeRecord(Column[] columns, DbfSchema schema, int row, ByteBuffer buffer, int recordPosition, AsciiNumberParser parser) {
+        for (int field = 0; field < columns.length; field++)
+            columns[field] = columns[field].decode(row, buffer, recordPosition + schema.getOffset(field), schema.getLength(field), parser);
+    }
+
+    /*
+     * Join the columns of one field decoded from consecutive ranges of records, all full but the
+     * last. Dictionaries are merged by remapping each range's codes, and character ranges are
+     * copied whole; text is fed row by row only where a range and the joined column differ in
+     * kind. Either way the joined column makes the same dictionary or fallback choice, with the
+     * same codes, as a sequential read.
+     */
+    private static Column join(Column[] ranges, int recordsPerRange, int nRecords, char fieldType, int fieldLength, DbfCharset charset) {
+        Column column = newColumn(fieldType, fieldLength, nRecords, charset);
+        if (column instanceof LongColumn longColumn) {
+            boolean isLong = Arrays.stream(ranges).allMatch(range -> range instanceof LongColumn);
+            DoubleColumn doubleColumn = isLong ? null : new DoubleColumn(new double[nRecords], longColumn.nulls);
+            for (int range = 0; range < ranges.length; range++) {
+                int firstRow = range * recordsPerRange;
+                int nRows = Math.min(recordsPerRange, nRecords - firstRow);
+                if (isLong) {
+                    System.arraycopy(((LongColumn) ranges[range]).values, 0, longColumn.values, firstRow, nRows);
+                } else {
+                    for (int row = 0; row < nRows; row++)
+                        doubleColumn.values[firstRow + row] = ranges[range].getDouble(row);
+                }
+                orShifted(longColumn.nulls, ranges[range].getNulls(nRows), firstRow);
+            }
+            return isLong ? longColumn : doubleColumn;
+        }
+        if (column instanceof LogicalColumn logicalColumn) {
+            for (int range = 0; range < ranges.length; range++) {
+                orShifted(logicalColumn.values, ((LogicalColumn) ranges[range]).values, range * recordsPerRange);
+                orShifted(logicalColumn.nulls, ((LogicalColumn) ranges[range]).nulls, range * recordsPerRange);
+            }
+            return logicalColumn;
+        }
+        if (column instanceof UnsupportedColumn) {
+            column.finish(nRecords);
+            return column;
+        }
+
+        for (int range = 0; range < ranges.length; range++) {
+            TextColumn textColumn = (TextColumn) ranges[range];
+            int firstRow = range * recordsPerRange;
+            int nRows = Math.min(recordsPerRange, nRecords - firstRow);
+            if (column instanceof CharacterColumn characterColumn && textColumn instanceof CharacterColumn characterRange)
+                characterColumn.append(firstRow, characterRange, nRows);
+            else if (column instanceof DictionaryColumn dictionaryColumn && textColumn instanceof DictionaryColumn dictionaryRange)
+                column = dictionaryColumn.merge(firstRow, dictionaryRange, nRows);
+            else
+                column = feed(column, textColumn, firstRow, 0, nRows);
+        }
+        column.finish(nRecords);
+        return column;
+    }
+
+    /*
+     * Decode rows [fromRow, nRows) of a range into a column, row by row.
+     */
+    private static Column feed(Column column, TextColumn range, int firstRow, int fromRow, int nRows) {
+        ByteBuffer bytes = ByteBuffer.wrap(range.bytes());
+        for (int row = fromRow; row < nRows; row++) {
+            int start = range.rowStart(row);
+            column = column.decode(firstRow + row, bytes, start, range.rowEnd(row) - start, null);
+        }
+        return column;
+    }
+
+    private static void orShifted(BitSet target, BitSet source, int shift) {
+        for (int bit = source.nextSetBit(0); bit >= 0; bit = source.nextSetBit(bit + 1))
+            target.set(shift + bit);
+    }
+
+    private static Column newColumn(char fieldType, int fieldLength, int capacity, DbfCharset charset) {
+        switch (fieldType) {
+            case 'N':
+            case 'F':
+                return new LongColumn(capacity);
+            case 'L':
+                return new LogicalColumn();
+            case 'C':
+                return new DictionaryColumn(capacity, fieldLength, charset);
+            case 'D':
+                return new CharacterColumn(capacity, fieldLength, false, charset);
+            case 'M': // Memo--requires memo file: unsupported by shapefiles
+            case 'V': // Variable--requires memo file: unsupported by shapefiles
+            case 'P': // Picture--requires picture file: unsupported by shapefiles
+            default:
+                return new UnsupportedColumn();
+        }
+    }
+
+    /**
+     * @return number of records (rows).
+     */
+    public int getNRecords() {
+        return nRecords;
+    }
+
+    /**
+     * @return number of fields (columns).
+     */
+    public int getNFields() {
+        return columnNames.length;
+    }
+
+    /**
+     * @return column names.
+     */
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    public String getColumnName(int col) {
+        return columnNames[col];
+    }
+
+    /**
+     * @param columnName the column name.
+     * @return index of the column, or -1 if there is none with the name.
+     */
+    public int getColumnIndex(String columnName) {
+        if (columnName == null)
+            return -1;
+        for (int col = 0; col < columnNames.length; col++) {
+            if (columnName.equals(columnNames[col]))
+                return col;
+        }
+        return -1;
+    }
+
+    /**
+     * @param col column index.
+     * @return the .dbf field type, e.g. 'C', 'N'.
+     */
+    public char getFieldType(int col) {
+        return fieldTypes[col];
+    }
+
+    /**
+     * @param col column index.
+     * @return class of the values returned by {@link #getValueAt(int, int)}: Long, Double, Boolean or String,
+     * or Object for unsupported field types.
+     */
+    public Class<?> getColumnClass(int col) {
+        return columns[col].getValueClass();
+    }
+
+    /**
+     * @param row row index.
+     * @param col column index.
+     * @return true if the value is blank (numeric and logical columns) or of an unsupported type.
+     */
+    public boolean isNull(int row, int col) {
+        checkRow(row);
+        return columns[col].isNull(row);
+    }
+
+    /**
+     * @param row row index.
+     * @param col column index.
+     * @return the value, boxed, or null.
+     */
+    public Object getValueAt(int row, int col) {
+        checkRow(row);
+        return columns[col].getValue(row);
+    }
+
+    /**
+     * @param row row index.
+     * @param col column index.
+     * @return the value as a double, or {@link DBASETableData#DVAL_DOUBLE} if it is null or not numeric.
+     */
+    public double getDouble(int row, int col) {
+        checkRow(row);
+        return columns[col].getDouble(row);
+    }
+
+    /**
+     * @param columnName the column name.
+     * @return the values of the column, boxed, or null if there is no column with the name.
+     */
+    public Object[] getColumnData(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col == -1)
+            return null;
+        Object[] values = new Object[nRecords];
+        for (int row = 0; row < nRecords; row++)
+            values[row] = columns[col].getValue(row);
+        return values;
+    }
+
+    /**
+     * Numeric column values as doubles. For a floating point column this is the backing array, not
+     * a copy; for a whole number column it is a new array, widened from {@link #getLongData(String)}.
+     * Null values are {@link DBASETableData#DVAL_DOUBLE}.
+     *
+     * @param columnName the column name.
+     * @return the values, or null if there is no numeric column with the name.
+     */
+    public double[] getRealData(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col == -1)
+            return null;
+        if (columns[col] instanceof DoubleColumn doubleColumn)
+            return doubleColumn.values;
+        if (columns[col] instanceof LongColumn longColumn) {
+            double[] values = new double[nRecords];
+            for (int row = 0; row < nRecords; row++)
+                values[row] = longColumn.getDouble(row);
+            return values;
+        }
+        return null;
+    }
+
+    /**
+     * Whole number column values: the backing array, not a copy. Null values are 0; see {@link #getNulls(String)}.
+     *
+     * @param columnName the column name.
+     * @return the values, or null if there is no whole number column with the name.
+     */
+    public long[] getLongData(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col != -1 && columns[col] instanceof LongColumn longColumn)
+            return longColumn.values;
+        return null;
+    }
+
+    /**
+     * Logical column values: the backing BitSet, not a copy, with a bit set for each true value.
+     *
+     * @param columnName the column name.
+     * @return the values, or null if there is no logical column with the name.
+     */
+    public BitSet getLogicalData(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col != -1 && columns[col] instanceof LogicalColumn logicalColumn)
+            return logicalColumn.values;
+        return null;
+    }
+
+    /**
+     * Codes of a dictionary-encoded character column: the backing array, not a copy, with one index
+     * into {@link #getDictionary(String)} per row. Rows with equal values have equal codes.
+     *
+     * @param columnName the column name.
+     * @return the codes, or null if there is no dictionary-encoded column with the name.
+     */
+    public int[] getDictionaryCodes(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col != -1 && columns[col] instanceof DictionaryColumn dictionaryColumn)
+            return dictionaryColumn.codes;
+        return null;
+    }
+
+    /**
+     * Distinct values of a dictionary-encoded character column, in order of first appearance.
+     *
+     * @param columnName the column name.
+     * @return the values, or null if there is no dictionary-encoded column with the name.
+     */
+    public String[] getDictionary(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col != -1 && columns[col] instanceof DictionaryColumn dictionaryColumn)
+            return dictionaryColumn.values();
+        return null;
+    }
+
+    /**
+     * @param columnName the column name.
+     * @return the backing BitSet, not a copy, with a bit set for each null value; null if there is no column with the name.
+     *         Character and date values are never null, so their set is always empty.
+     */
+    public BitSet getNulls(String columnName) {
+        int col = getColumnIndex(columnName);
+        if (col == -1)
+            return null;
+        return columns[col].getNulls(nRecords);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= nRecords)
+            throw new IndexOutOfBoundsException("row " + row + " of " + nRecords);
+    }
+
+    /*
+     * One column of values. decode() returns the column that holds the values from then on, so a
+     * column can replace itself with a wider one.
+     */
+    private abstract static class Column {
+        abstract Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser);
+
+        void finish(int nRecords) {
+        }
+
+        abstract Class<?> getValueClass();
+
+        abstract boolean isNull(int row);
+
+        abstract Object getValue(int row);
+
+        double getDouble(int row) {
+            return DBASETableData.DVAL_DOUBLE;
+        }
+
+        abstract BitSet getNulls(int nRecords);
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values;
+        private final BitSet nulls = new BitSet();
+
+        LongColumn(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            if (!parser.parse(buffer, offset, length)) {
+                nulls.set(row);
+                return this;
+            }
+            if (parser.isLong()) {
+                values[row] = parser.longValue();
+                return this;
+            }
+            DoubleColumn doubleColumn = new DoubleColumn(this, row);
+            doubleColumn.values[row] = parser.doubleValue();
+            return doubleColumn;
+        }
+
+        @Override
+        void finish(int nRecords) {
+            if (values.length != nRecords)
+                values = Arrays.copyOf(values, nRecords);
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return Long.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return nulls.get(row) ? null : Long.valueOf(values[row]);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return nulls.get(row) ? DBASETableData.DVAL_DOUBLE : values[row];
+        }
+
+        @Override
+        BitSet getNulls(int nRecords) {
+            return nulls;
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values;
+        private final BitSet nulls;
+
+        /*
+         * Widen the rows of a whole number column before the given row.
+         */
+        DoubleColumn(LongColumn longColumn, int nRows) {
+            this.values = new double[longColumn.values.length];
+            this.nulls = longColumn.nulls;
+            for (int row = 0; row < nRows; row++)
+                values[row] = longColumn.getDouble(row);
+        }
+
+        DoubleColumn(double[] values, BitSet nulls) {
+            this.values = values;
+            this.nulls = nulls;
+        }
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            if (parser.parse(buffer, offset, length)) {
+                values[row] = parser.doubleValue();
+            } else {
+                values[row] = DBASETableData.DVAL_DOUBLE;
+                nulls.set(row);
+            }
+            return this;
+        }
+
+        @Override
+        void finish(int nRecords) {
+            if (values.length != nRecords)
+                values = Arrays.copyOf(values, nRecords);
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return Double.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return nulls.get(row) ? null : Double.valueOf(values[row]);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        BitSet getNulls(int nRecords) {
+            return nulls;
+        }
+    }
+
+    private static final class LogicalColumn extends Column {
+        private final BitSet values = new BitSet();
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            switch (buffer.get(offset)) {
+                case 'Y':
+                case 'y':
+                case 'T':
+                case 't':
+                    values.set(row);
+                    break;
+                case ' ':
+                case '?':
+                case 0:
+                    nulls.set(row);
+                    break;
+                default:
+                    break;
+            }
+            return this;
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return Boolean.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return nulls.get(row) ? null : Boolean.valueOf(values.get(row));
+        }
+
+        @Override
+        BitSet getNulls(int nRecords) {
+            return nulls;
+        }
+    }
+
+    /*
+     * Text column, each row's value held as bytes.
+     */
+    private abstract static class TextColumn extends Column {
+        // text is never null; kept so that getNulls returns the same set every call
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        BitSet getNulls(int nRecords) {
+            return nulls;
+        }
+
+        abstract byte[] bytes();
+
+        abstract int rowStart(int row);
+
+        abstract int rowEnd(int row);
+    }
+
+    private static final class CharacterColumn extends TextColumn {
+        private byte[] bytes;
+        private int[] ends;
+        private int size;
+        private final boolean trim;
+        private final DbfCharset charset;
+
+        CharacterColumn(int capacity, int fieldLength, boolean trim, DbfCharset charset) {
+            this.ends = new int[capacity];
+            this.bytes = new byte[(int) Math.min((long) capacity * fieldLength, 64 * 1024)];
+            this.trim = trim;
+            this.charset = charset;
+        }
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            int start = offset;
+            int end = offset + length;
+            if (trim) {
+                end = DBASEReader.textEnd(buffer, offset, offset + length);
+                start = DBASEReader.textStart(buffer, offset, end);
+            }
+            ensureCapacity(end - start);
+            buffer.get(start, bytes, size, end - start);
+            size += end - start;
+            ends[row] = size;
+            return this;
+        }
+
+        /*
+         * Copy the rows of a finished range, the next rows after the ones held, in one piece.
+         */
+        void append(int firstRow, CharacterColumn range, int nRows) {
+            int shift = size;
+            ensureCapacity(range.size);
+            System.arraycopy(range.bytes, 0, bytes, size, range.size);
+            size += range.size;
+            for (int row = 0; row < nRows; row++)
+                ends[firstRow + row] = shift + range.ends[row];
+        }
+
+        void add(int row, byte[] source, int start, int nBytes) {
+            ensureCapacity(nBytes);
+            System.arraycopy(source, start, bytes, size, nBytes);
+            size += nBytes;
+            ends[row] = size;
+        }
+
+        private void ensureCapacity(int nBytes) {
+            if (size + nBytes > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(size + nBytes, bytes.length * 2));
+        }
+
+        @Override
+        void finish(int nRecords) {
+            bytes = Arrays.copyOf(bytes, size);
+            if (ends.length != nRecords)
+                ends = Arrays.copyOf(ends, nRecords);
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return String.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return false;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return charset.decode(bytes, rowStart(row), ends[row] - rowStart(row));
+        }
+
+        @Override
+        byte[] bytes() {
+            return bytes;
+        }
+
+        @Override
+        int rowStart(int row) {
+            return row == 0 ? 0 : ends[row - 1];
+        }
+
+        @Override
+        int rowEnd(int row) {
+            return ends[row];
+        }
+    }
+
+    /*
+     * Character column as one code per row into a table of distinct values. Each distinct value is
+     * decoded to a String when first asked for, and shared by all rows holding it. Falls back to a
+     * CharacterColumn once there are too many distinct values for the table to pay off.
+     */
+    private static final class DictionaryColumn extends TextColumn {
+        // distinct values allowed before the ratio to rows read is checked
+        private static final int MIN_CHECKED_SIZE = 256;
+        private static final int MAX_SIZE = 1 << 16;
+
+        private int[] codes;
+        private final int fieldLength;
+        private final DbfCharset charset;
+        // distinct values, end to end
+        private byte[] valueBytes = new byte[1024];
+        private int[] valueEnds = new int[64];
+        private int nValues;
+        private int valueBytesSize;
+        // open addressing hash table of code + 1, 0 where empty, while reading
+        private int[] slots = new int[128];
+        // decoded values, null until first asked for
+        private String[] values;
+
+        DictionaryColumn(int capacity, int fieldLength, DbfCharset charset) {
+            this.codes = new int[capacity];
+            this.fieldLength = fieldLength;
+            this.charset = charset;
+        }
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            int end = DBASEReader.textEnd(buffer, offset, offset + length);
+            int start = DBASEReader.textStart(buffer, offset, end);
+
+            int hash = 1;
+            for (int index = start; index < end; index++)
+                hash = 31 * hash + buffer.get(index);
+            int mask = slots.length - 1;
+            for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+                int code = slots[slot] - 1;
+                if (code < 0)
+                    break;
+                if (valueEquals(code, buffer, start, end)) {
+                    codes[row] = code;
+                    return this;
+                }
+            }
+
+            if (nValues >= MAX_SIZE || (nValues >= MIN_CHECKED_SIZE && nValues * 2 > row)) {
+                // high cardinality
+                CharacterColumn characterColumn = new CharacterColumn(codes.length, fieldLength, true, charset);
+                for (int previousRow = 0; previousRow < row; previousRow++) {
+                    int code = codes[previousRow];
+                    int valueStart = valueStart(code);
+                    characterColumn.add(previousRow, valueBytes, valueStart, valueEnds[code] - valueStart);
+                }
+                return characterColumn.decode(row, buffer, offset, length, parser);
+            }
+
+            codes[row] = addValue(buffer, start, end, hash);
+            return this;
+        }
+
+        /*
+         * Add the rows of a finished range, the next rows after the ones held. Each distinct value
+         * of the range is looked up once, at the row it first appears in, so it gets the code, and
+         * triggers the fallback, that it would reading row by row; other rows only remap codes.
+         */
+        Column merge(int firstRow, DictionaryColumn range, int nRows) {
+            ByteBuffer rangeBytes = ByteBuffer.wrap(range.valueBytes);
+            int[] remap = new int[range.nValues];
+            Arrays.fill(remap, -1);
+            for (int row = 0; row < nRows; row++) {
+                int rangeCode = range.codes[row];
+                int code = remap[rangeCode];
+                if (code < 0) {
+                    int start = range.valueStart(rangeCode);
+                    Column column = decode(firstRow + row, rangeBytes, start, range.valueEnds[rangeCode] - start, null);
+                    if (column != this)
+                        return feed(column, range, firstRow, row + 1, nRows);
+                    code = codes[firstRow + row];
+                    remap[rangeCode] = code;
+                }
+                codes[firstRow + row] = code;
+            }
+            return this;
+        }
+
+        private static int mix(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private int valueStart(int code) {
+            return code == 0 ? 0 : valueEnds[code - 1];
+        }
+
+        private boolean valueEquals(int code, ByteBuffer buffer, int start, int end) {
+            int valueStart = valueStart(code);
+            if (valueEnds[code] - valueStart != end - start)
+                return false;
+            for (int index = start; index < end; index++) {
+                if (valueBytes[valueStart++] != buffer.get(index))
+                    return false;
+            }
+            return true;
+        }
+
+        private int addValue(ByteBuffer buffer, int start, int end, int hash) {
+            int code = nValues++;
+            int nBytes = end - start;
+            if (valueBytesSize + nBytes > valueBytes.length)
+                valueBytes = Arrays.copyOf(valueBytes, Math.max(valueBytesSize + nBytes, valueBytes.length * 2));
+            buffer.get(start, valueBytes, valueBytesSize, nBytes);
+            valueBytesSize += nBytes;
+            if (code == valueEnds.length)
+                valueEnds = Arrays.copyOf(valueEnds, valueEnds.length * 2);
+            valueEnds[code] = valueBytesSize;
+
+            if (nValues * 2 > slots.length)
+                rehash();
+            else
+                insert(code, hash);
+            return code;
+        }
+
+        private void insert(int code, int hash) {
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = code + 1;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            for (int code = 0; code < nValues; code++) {
+                int hash = 1;
+                for (int index = valueStart(code); index < valueEnds[code]; index++)
+                    hash = 31 * hash + valueBytes[index];
+                insert(code, hash);
+            }
+        }
+
+        @Override
+        void finish(int nRecords) {
+            if (codes.length != nRecords)
+                codes = Arrays.copyOf(codes, nRecords);
+            valueBytes = Arrays.copyOf(valueBytes, valueBytesSize);
+            valueEnds = Arrays.copyOf(valueEnds, nValues);
+            values = new String[nValues];
+            slots = null;
+        }
+
+        /*
+         * Decoded value; racing threads may each decode it, and either String may be kept.
+         */
+        String value(int code) {
+            String value = values[code];
+            if (value == null) {
+                int valueStart = valueStart(code);
+                value = charset.decode(valueBytes, valueStart, valueEnds[code] - valueStart);
+                values[code] = value;
+            }
+            return value;
+        }
+
+        String[] values() {
+            for (int code = 0; code < nValues; code++)
+                value(code);
+            return values.clone();
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return String.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return false;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return value(codes[row]);
+        }
+
+        @Override
+        byte[] bytes() {
+            return valueBytes;
+        }
+
+        @Override
+        int rowStart(int row) {
+            return valueStart(codes[row]);
+        }
+
+        @Override
+        int rowEnd(int row) {
+            return valueEnds[codes[row]];
+        }
+    }
+
+    private static final class UnsupportedColumn extends Column {
+        private final BitSet nulls = new BitSet();
+
+        @Override
+        Column decode(int row, ByteBuffer buffer, int offset, int length, AsciiNumberParser parser) {
+            return this;
+        }
+
+        @Override
+        void finish(int nRecords) {
+            nulls.set(0, nRecords);
+        }
+
+        @Override
+        Class<?> getValueClass() {
+            return Object.class;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return true;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return null;
+        }
+
+        @Override
+        BitSet getNulls(int nRecords) {
+            return nulls;
+        }
+    }
+}
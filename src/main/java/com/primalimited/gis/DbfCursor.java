@@ -0,0 +1,326 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Forward-only cursor over the records of a dBASE (.dbf) file. The header is read once, then records
+ * are read a block at a time into one reusable buffer, so memory use does not depend on the size of
+ * the table.
+ *
+ * <pre>
+ * try (DbfCursor cursor = DbfCursor.open(path)) {
+ *     while (cursor.next())
+ *         process(cursor.getValue("humod"));
+ * }
+ * </pre>
+ */
+public class DbfCursor implements Closeable {
+    // records are read in blocks of about this many bytes
+    static final int BLOCK_BYTES = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final boolean ownsChannel;
+    private final DbfSchema schema;
+    private final DbfCharset charset;
+    private final int recordSize;
+    private final ByteBuffer block;
+    private final AsciiNumberParser parser = new AsciiNumberParser();
+    private int recordIndex = -1;
+    private int recordPosition;
+    // index of the record the next block read will start with
+    private int nextBlockRecordIndex;
+    private DbfFilter.RecordMatcher matcher;
+
+    /**
+     * Opens a cursor over a .dbf file, reading through a FileChannel. Character fields are decoded with
+     * the character set named in the .cpg file next to it, if there is one.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new cursor, positioned before the first record.
+     * @throws IOException if the file or its header could not be read.
+     */
+    public static DbfCursor open(Path dbfPath) throws IOException {
+        DbfCharset charset = DbfCharset.forDbf(dbfPath);
+        FileChannel fileChannel = FileChannel.open(dbfPath, StandardOpenOption.READ);
+        try {
+            return new DbfCursor(fileChannel, true, charset);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a cursor over a .dbf input stream. The stream is not closed by {@link #close()}.
+     *
+     * @param inputStream the .dbf input stream, positioned at the start of the file.
+     * @throws IOException if the header could not be read.
+     */
+    public DbfCursor(InputStream inputStream) throws IOException {
+        this(inputStream, null);
+    }
+
+    /**
+     * Creates a cursor over a .dbf input stream. The stream is not closed by {@link #close()}.
+     *
+     * @param inputStream the .dbf input stream, positioned at the start of the file.
+     * @param charset character set of character fields, e.g. from the .cpg file; null for ISO-8859-1.
+     * @throws IOException if the header could not be read.
+     */
+    public DbfCursor(InputStream inputStream, Charset charset) throws IOException {
+        this(Channels.newChannel(inputStream), false, DbfCharset.of(charset));
+    }
+
+    DbfCursor(ReadableByteChannel channel, boolean ownsChannel, DbfCharset charset) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.charset = charset;
+        this.schema = DbfSchema.read(channel);
+        this.recordSize = schema.getRecordSize();
+        if (recordSize <= 0)
+            throw new IOException("Invalid .dbf record size: " + recordSize);
+
+        int recordsPerBlock = Math.max(1, BLOCK_BYTES / recordSize);
+        this.block = ByteBuffer.allocate(recordsPerBlock * recordSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.block.limit(0);
+    }
+
+    /**
+     * Only stop on records that match a filter in {@link #next()}. The filter is tested on the record
+     * bytes; records that do not match are skipped without being decoded.
+     *
+     * @param filter the filter, or null to stop on every record.
+     * @throws IllegalArgumentException if the filter names a missing field, or compares a field of the wrong type.
+     */
+    public void setFilter(DbfFilter filter) {
+        this.matcher = filter == null ? null : filter.compile(schema, charset);
+    }
+
+    /**
+     * Move to the next record, or the next record that matches the filter, if one is set.
+     *
+     * @return false after the last record (or where the file ends, if it is shorter than its header says).
+     * @throws IOException if the file could not be read.
+     */
+    public boolean next() throws IOException {
+        while (advance()) {
+            if (matcher == null || matcher.matches(block, recordPosition))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean advance() throws IOException {
+        if (recordIndex >= schema.getRecordCount())
+            return false;
+        recordIndex++;
+        if (recordIndex >= schema.getRecordCount())
+            return false;
+
+        recordPosition += recordSize;
+        if (recordIndex >= nextBlockRecordIndex || recordPosition + recordSize > block.limit()) {
+            if (!readBlock())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Move forward to a record without decoding the records in between. Seekable channels
+     * (e.g. {@link #open(Path)}) jump straight to the record. The filter, if set, is not applied.
+     *
+     * @param targetRecordIndex record index (0-based), not before the current record.
+     * @return false if the record is past the end of the file.
+     * @throws IOException if the file could not be read.
+     */
+    public boolean moveTo(int targetRecordIndex) throws IOException {
+        if (targetRecordIndex < 0 || targetRecordIndex < recordIndex)
+            throw new IllegalArgumentException("cannot move from record " + recordIndex + " to " + targetRecordIndex);
+        if (targetRecordIndex >= schema.getRecordCount()) {
+            recordIndex = schema.getRecordCount();
+            return false;
+        }
+
+        int blockStartIndex = nextBlockRecordIndex - block.limit() / recordSize;
+        if (targetRecordIndex < nextBlockRecordIndex && targetRecordIndex >= blockStartIndex) {
+            // already in the current block
+            recordIndex = targetRecordIndex;
+            recordPosition = (targetRecordIndex - blockStartIndex) * recordSize;
+            return true;
+        }
+
+        if (channel instanceof SeekableByteChannel seekable) {
+            seekable.position(schema.getHeaderSize() + (long) targetRecordIndex * recordSize);
+            nextBlockRecordIndex = targetRecordIndex;
+            block.limit(0);
+            recordIndex = targetRecordIndex - 1;
+            recordPosition = -recordSize;
+            return advance();
+        }
+
+        while (recordIndex < targetRecordIndex) {
+            if (!advance())
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * Read the next block of whole records, starting with the current record.
+     */
+    private boolean readBlock() throws IOException {
+        int recordsLeft = schema.getRecordCount() - nextBlockRecordIndex;
+        int wanted = Math.min(block.capacity() / recordSize, recordsLeft) * recordSize;
+        block.clear().limit(wanted);
+        while (block.hasRemaining()) {
+            if (channel.read(block) < 0)
+                break;
+        }
+        block.flip();
+
+        int recordsRead = block.limit() / recordSize;
+        block.limit(recordsRead * recordSize);
+        recordIndex = nextBlockRecordIndex;
+        nextBlockRecordIndex += recordsRead;
+        recordPosition = 0;
+        if (recordsRead == 0) {
+            // the file ends before the header says it should
+            recordIndex = schema.getRecordCount();
+            return false;
+        }
+        return true;
+    }
+
+    private void checkRecord() {
+        if (recordIndex < 0 || recordIndex >= schema.getRecordCount())
+            throw new IllegalStateException("the cursor is not on a record; call next() first");
+    }
+
+    /**
+     * @return index (0-based) of the current record.
+     */
+    public int getRecordIndex() {
+        return recordIndex;
+    }
+
+    /**
+     * @return number of records, from the header.
+     */
+    public int getRecordCount() {
+        return schema.getRecordCount();
+    }
+
+    /**
+     * @return number of fields (columns).
+     */
+    public int getFieldCount() {
+        return schema.getFieldCount();
+    }
+
+    /**
+     * @return field (column) names.
+     */
+    public String[] getFieldNames() {
+        return schema.getNames();
+    }
+
+    /**
+     * @return true if the current record is marked as deleted.
+     */
+    public boolean isDeleted() {
+        checkRecord();
+        return block.get(recordPosition) == DbfSchema.DELETED_FLAG;
+    }
+
+    /**
+     * Decode one field of the current record.
+     *
+     * @param field field index (0-based).
+     * @return the value: String, Number or Boolean, or null if it is blank or of an unsupported type.
+     */
+    public Object getValue(int field) {
+        checkRecord();
+        return decode(field, schema.getType(field));
+    }
+
+    /**
+     * Decode one field of the current record.
+     *
+     * @param fieldName the field name.
+     * @return the value: String, Number or Boolean, or null if it is blank or of an unsupported type.
+     * @throws IllegalArgumentException if there is no field with the name.
+     */
+    public Object getValue(String fieldName) {
+        int field = schema.indexOf(fieldName);
+        if (field < 0)
+            throw new IllegalArgumentException("no field named " + fieldName);
+        return getValue(field);
+    }
+
+    /**
+     * Decode all fields of the current record.
+     *
+     * @return list of db fields, in column order.
+     */
+    public List<DBField> getFields() {
+        checkRecord();
+        List<DBField> dbFields = new ArrayList<>(schema.getFieldCount());
+        for (int field = 0; field < schema.getFieldCount(); field++) {
+            char type = schema.getType(field);
+            dbFields.add(new DBField(schema.getName(field), String.valueOf(type), decode(field, type)));
+        }
+        return Collections.unmodifiableList(dbFields);
+    }
+
+    /*
+     * Decode a field of the current record as the given type.
+     */
+    Object decode(int field, char type) {
+        block.position(recordPosition + schema.getOffset(field));
+        return DBASEReader.processField(block, schema.getName(field), type, schema.getLength(field), schema.getDecimalCount(field), charset, parser);
+    }
+
+    /**
+     * @return the header and field descriptors, read when the file was opened.
+     */
+    public DbfSchema getSchema() {
+        return schema;
+    }
+
+    DbfCharset getCharset() {
+        return charset;
+    }
+
+    /** buffer holding the current record, at {@link #getRecordPosition()} */
+    ByteBuffer getBuffer() {
+        return block;
+    }
+
+    /** position of the current record in {@link #getBuffer()} */
+    int getRecordPosition() {
+        return recordPosition;
+    }
+
+    /**
+     * Closes the file if the cursor was opened with {@link #open(Path)}; input streams are left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel)
+            channel.close();
+    }
+}
@@ -0,0 +1,291 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Open .dbf file for random access to records. The header is parsed once when the file is opened;
+ * each record is then read with one positional read of exactly that record, so the cost of a read
+ * does not depend on the size of the file. Reads may be made from several threads at once.
+ */
+public class DbfFile implements Closeable {
+    private final FileChannel channel;
+    private final DbfSchema schema;
+    private final DbfCharset charset;
+    // one String per field, shared by all the DBFields returned
+    private final String[] typeNames;
+
+    private DbfFile(FileChannel channel, DbfSchema schema, DbfCharset charset) {
+        this.channel = channel;
+        this.schema = schema;
+        this.charset = charset;
+        this.typeNames = new String[schema.getFieldCount()];
+        for (int field = 0; field < typeNames.length; field++)
+            typeNames[field] = String.valueOf(schema.getType(field));
+    }
+
+    /**
+     * Opens a .dbf file and reads its header. Character fields are decoded with the character set
+     * named in the .cpg file next to it, if there is one.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new instance of DbfFile.
+     * @throws IOException if the file or its header could not be read.
+     */
+    public static DbfFile open(Path dbfPath) throws IOException {
+        return open(dbfPath, DbfCharset.forDbf(dbfPath));
+    }
+
+    /**
+     * Opens a .dbf file and reads its header.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param charset character set of character fields; null for ISO-8859-1.
+     * @return new instance of DbfFile.
+     * @throws IOException if the file or its header could not be read.
+     */
+    public static DbfFile open(Path dbfPath, Charset charset) throws IOException {
+        return open(dbfPath, DbfCharset.of(charset));
+    }
+
+    private static DbfFile open(Path dbfPath, DbfCharset charset) throws IOException {
+        FileChannel channel = FileChannel.open(dbfPath, StandardOpenOption.READ);
+        try {
+            DbfSchema schema = DbfSchema.read(channel);
+            if (schema.getRecordSize() <= 0)
+                throw new IOException("Invalid .dbf record size: " + schema.getRecordSize());
+            return new DbfFile(channel, schema, charset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of records, from the header.
+     */
+    public int getRecordCount() {
+        return schema.getRecordCount();
+    }
+
+    /**
+     * @return number of fields (columns).
+     */
+    public int getFieldCount() {
+        return schema.getFieldCount();
+    }
+
+    /**
+     * @return field (column) names.
+     */
+    public String[] getFieldNames() {
+        return schema.getNames();
+    }
+
+    /**
+     * Read one record.
+     *
+     * @param recordIndex record index (0-based), e.g. the user data of a geometry read from the shapefile.
+     * @return list of db fields, in column order.
+     * @throws IOException if the record could not be read.
+     */
+    public List<DBField> readRecord(int recordIndex) throws IOException {
+        ByteBuffer record = readRecordBytes(recordIndex);
+
+        List<DBField> dbFields = new ArrayList<>(schema.getFieldCount());
+        AsciiNumberParser parser = new AsciiNumberParser();
+        for (int field = 0; field < schema.getFieldCount(); field++)
+            dbFields.add(new DBField(schema.getName(field), typeNames[field], decode(record, field, parser)));
+        return Collections.unmodifiableList(dbFields);
+    }
+
+    /**
+     * Read one field of one record.
+     *
+     * @param recordIndex record index (0-based).
+     * @param fieldName the field name.
+     * @return the value: String, Number or Boolean, or null if it is blank or of an unsupported type.
+     * @throws IOException if the record could not be read.
+     * @throws IllegalArgumentException if there is no field with the name.
+     */
+    public Object readValue(int recordIndex, String fieldName) throws IOException {
+        int field = schema.indexOf(fieldName);
+        if (field < 0)
+            throw new IllegalArgumentException("no field named " + fieldName);
+        return decode(readRecordBytes(recordIndex), field, new AsciiNumberParser());
+    }
+
+    /**
+     * @param recordIndex record index (0-based).
+     * @return true if the record is marked as deleted.
+     * @throws IOException if the record could not be read.
+     */
+    public boolean isDeleted(int recordIndex) throws IOException {
+        return readRecordBytes(recordIndex).get(0) == DbfSchema.DELETED_FLAG;
+    }
+
+    /**
+     * Read several columns in one pass over the records.
+     *
+     * @param fieldNames the field names.
+     * @return one array of values per field name, in the order given, each with one value per record.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if there is no field with one of the names.
+     */
+    public Object[][] readColumns(String... fieldNames) throws IOException {
+        int[] fields = new int[fieldNames.length];
+        Object[][] columns = new Object[fieldNames.length][];
+        for (int column = 0; column < fieldNames.length; column++) {
+            fields[column] = schema.indexOf(fieldNames[column]);
+            if (fields[column] < 0)
+                throw new IllegalArgumentException("no field named " + fieldNames[column]);
+            columns[column] = new Object[schema.getRecordCount()];
+        }
+
+        int recordSize = schema.getRecordSize();
+        AsciiNumberParser parser = new AsciiNumberParser();
+        forEachBlock(0, schema.getRecordCount(), (block, firstRecord, nRecords) -> {
+            for (int record = 0; record < nRecords; record++) {
+                for (int column = 0; column < columns.length; column++) {
+                    int field = fields[column];
+                    block.position(record * recordSize + schema.getOffset(field));
+                    columns[column][firstRecord + record] = DBASEReader.processField(block, schema.getName(field),
+                            schema.getType(field), schema.getLength(field), schema.getDecimalCount(field), charset, parser);
+                }
+            }
+        });
+        return columns;
+    }
+
+    /**
+     * Find the records that match a filter. The filter is tested on the record bytes; no record
+     * is decoded.
+     *
+     * @param filter the filter.
+     * @return indexes (0-based) of the matching records, in order; use {@link #readRecord(int)} to read them.
+     * @throws IOException if the file could not be read.
+     * @throws IllegalArgumentException if the filter names a missing field, or compares a field of the wrong type.
+     */
+    public int[] scan(DbfFilter filter) throws IOException {
+        DbfFilter.RecordMatcher matcher = filter.compile(schema, charset);
+
+        int recordSize = schema.getRecordSize();
+        IntStream.Builder matches = IntStream.builder();
+        forEachBlock(0, schema.getRecordCount(), (block, firstRecord, nRecords) -> {
+            for (int record = 0; record < nRecords; record++) {
+                if (matcher.matches(block, record * recordSize))
+                    matches.add(firstRecord + record);
+            }
+        });
+        return matches.build().toArray();
+    }
+
+    /**
+     * Decodes a block of whole records.
+     */
+    @FunctionalInterface
+    interface BlockDecoder {
+        /**
+         * @param block buffer holding the records, the first at position 0.
+         * @param firstRecord index of the first record in the block.
+         * @param nRecords number of records in the block.
+         */
+        void decode(ByteBuffer block, int firstRecord, int nRecords) throws IOException;
+    }
+
+    /**
+     * Read records [from, to) a block at a time, with positional reads into one buffer.
+     */
+    void forEachBlock(int from, int to, BlockDecoder decoder) throws IOException {
+        int recordSize = schema.getRecordSize();
+        int recordsPerBlock = Math.max(1, DbfCursor.BLOCK_BYTES / recordSize);
+        ByteBuffer block = ByteBuffer.allocate(Math.min(recordsPerBlock, Math.max(0, to - from)) * recordSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (int firstRecord = from; firstRecord < to; firstRecord += recordsPerBlock) {
+            int nRecords = Math.min(recordsPerBlock, to - firstRecord);
+            block.clear().limit(nRecords * recordSize);
+            readFully(block, firstRecord);
+            decoder.decode(block, firstRecord, nRecords);
+        }
+    }
+
+    /**
+     * Read the records that are present a block at a time, decoding ranges of blocks in parallel.
+     * The decoder is called from several threads at once, for disjoint records.
+     */
+    void forEachBlockParallel(ForkJoinPool pool, BlockDecoder decoder) throws IOException {
+        int recordsPerBlock = Math.max(1, DbfCursor.BLOCK_BYTES / schema.getRecordSize());
+        RecordRanges.decodeParallel(pool, getRecordsPresent(), recordsPerBlock,
+                (range, from, to) -> forEachBlock(from, to, decoder));
+    }
+
+    /**
+     * Number of whole records in the file, at most the header's record count. Fewer if the file
+     * ends early, where {@link DbfCursor} stops reading.
+     */
+    int getRecordsPresent() throws IOException {
+        long recordBytes = Math.max(0, channel.size() - schema.getHeaderSize());
+        return (int) Math.min(Math.max(0, schema.getRecordCount()), recordBytes / schema.getRecordSize());
+    }
+
+    /*
+     * One positional read of the whole record, at headerSize + recordIndex * recordSize.
+     */
+    private ByteBuffer readRecordBytes(int recordIndex) throws IOException {
+        Objects.checkIndex(recordIndex, schema.getRecordCount());
+        ByteBuffer record = ByteBuffer.allocate(schema.getRecordSize()).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(record, recordIndex);
+        return record;
+    }
+
+    /*
+     * Fill the buffer from the start of a record, with positional reads.
+     */
+    private void readFully(ByteBuffer byteBuffer, int firstRecordIndex) throws IOException {
+        long position = schema.getHeaderSize() + (long) firstRecordIndex * schema.getRecordSize();
+        while (byteBuffer.hasRemaining()) {
+            int nRead = channel.read(byteBuffer, position + byteBuffer.position());
+            if (nRead < 0)
+                throw new EOFException("The .dbf file ends inside record "
+                        + (firstRecordIndex + byteBuffer.position() / schema.getRecordSize()));
+        }
+    }
+
+    private Object decode(ByteBuffer record, int field, AsciiNumberParser parser) {
+        record.position(schema.getOffset(field));
+        return DBASEReader.processField(record, schema.getName(field), schema.getType(field), schema.getLength(field), schema.getDecimalCount(field), charset, parser);
+    }
+
+    /**
+     * @return the header and field descriptors, read when the file was opened.
+     */
+    public DbfSchema getSchema() {
+        return schema;
+    }
+
+    DbfCharset getCharset() {
+        return charset;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,295 @@
+package com.primalimited.gis;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Record filter for .dbf scans: a conjunction of simple conditions on single fields, tested on the
+ * fixed-width field bytes of each record, so records that do not match are never decoded.
+ *
+ * <pre>
+ * DbfFilter filter = DbfFilter.where("humod").eq("NM").and("hudigit").between(2, 4);
+ * int[] records = dbfFile.scan(filter);
+ * </pre>
+ *
+ * Character and date fields are compared as text, trimmed as {@link DBASEReader} trims them, in the
+ * .dbf file's character set; between compares them byte by byte, which orders dBASE dates (YYYYMMDD).
+ * Numeric fields are compared as numbers, and never match when blank. Logical fields match
+ * eq(true) when they hold Y, y, T or t.
+ */
+public final class DbfFilter {
+    private enum Operator {
+        EQ,
+        BETWEEN,
+        STARTS_WITH
+    }
+
+    private final List<Condition> conditions;
+
+    private DbfFilter(List<Condition> conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Start a filter with a condition on a field.
+     *
+     * @param fieldName the field name.
+     * @return the condition, to complete with eq, between or startsWith.
+     */
+    public static Field where(String fieldName) {
+        return new Field(List.of(), fieldName);
+    }
+
+    /**
+     * Add a condition on another field; records must match every condition.
+     *
+     * @param fieldName the field name.
+     * @return the condition, to complete with eq, between or startsWith.
+     */
+    public Field and(String fieldName) {
+        return new Field(conditions, fieldName);
+    }
+
+    @Override
+    public String toString() {
+        return "DbfFilter" + conditions;
+    }
+
+    /**
+     * A condition on one field, waiting for its comparison.
+     */
+    public static final class Field {
+        private final List<Condition> conditions;
+        private final String fieldName;
+
+        private Field(List<Condition> conditions, String fieldName) {
+            this.conditions = conditions;
+            this.fieldName = Objects.requireNonNull(fieldName, "fieldName");
+        }
+
+        private DbfFilter add(Operator operator, Object low, Object high) {
+            List<Condition> all = new ArrayList<>(conditions);
+            all.add(new Condition(fieldName, operator, Objects.requireNonNull(low), Objects.requireNonNull(high)));
+            return new DbfFilter(List.copyOf(all));
+        }
+
+        /** field text equals the value, or numeric field equals the number the value holds */
+        public DbfFilter eq(String value) {
+            return add(Operator.EQ, value, value);
+        }
+
+        /** numeric field equals the value */
+        public DbfFilter eq(Number value) {
+            return add(Operator.EQ, value, value);
+        }
+
+        /** logical field is true, or false (including blank) */
+        public DbfFilter eq(boolean value) {
+            return add(Operator.EQ, value, value);
+        }
+
+        /** numeric field is between low and high, inclusive */
+        public DbfFilter between(Number low, Number high) {
+            return add(Operator.BETWEEN, low, high);
+        }
+
+        /** field text is between low and high, inclusive, comparing bytes */
+        public DbfFilter between(String low, String high) {
+            return add(Operator.BETWEEN, low, high);
+        }
+
+        /** field text starts with the prefix */
+        public DbfFilter startsWith(String prefix) {
+            return add(Operator.STARTS_WITH, prefix, prefix);
+        }
+    }
+
+    private record Condition(String fieldName, Operator operator, Object low, Object high) {
+        @Override
+        public String toString() {
+            return fieldName + " " + operator + " " + (low == high ? low : low + " " + high);
+        }
+    }
+
+    /**
+     * Bind the filter to a file's fields.
+     *
+     * @throws IllegalArgumentException if a field is missing, or its type does not fit the comparison.
+     */
+    RecordMatcher compile(DbfSchema schema, DbfCharset charset) {
+        FieldMatcher[] matchers = new FieldMatcher[conditions.size()];
+        for (int index = 0; index < matchers.length; index++)
+            matchers[index] = compile(conditions.get(index), schema, charset);
+        return new RecordMatcher(matchers);
+    }
+
+    private static FieldMatcher compile(Condition condition, DbfSchema schema, DbfCharset charset) {
+        int field = schema.indexOf(condition.fieldName());
+        if (field < 0)
+            throw new IllegalArgumentException("no field named " + condition.fieldName());
+        int offset = schema.getOffset(field);
+        int length = schema.getLength(field);
+        char type = schema.getType(field);
+
+        switch (type) {
+            case 'N':
+            case 'F':
+                if (condition.operator() == Operator.STARTS_WITH || condition.low() instanceof Boolean)
+                    throw unsupported(condition, type);
+                return new NumberMatcher(offset, length, toDouble(condition, condition.low()), toDouble(condition, condition.high()));
+            case 'L':
+                if (condition.operator() != Operator.EQ || !(condition.low() instanceof Boolean))
+                    throw unsupported(condition, type);
+                return new LogicalMatcher(offset, (Boolean) condition.low());
+            case 'C':
+            case 'D':
+                if (!(condition.low() instanceof String) || !(condition.high() instanceof String))
+                    throw unsupported(condition, type);
+                byte[] low = trimmedBytes(charset, (String) condition.low());
+                byte[] high = trimmedBytes(charset, (String) condition.high());
+                return new TextMatcher(offset, length, type == 'C', condition.operator(), low, high);
+            default:
+                throw unsupported(condition, type);
+        }
+    }
+
+    private static byte[] trimmedBytes(DbfCharset charset, String value) {
+        return value.trim().getBytes(charset.charset());
+    }
+
+    private static double toDouble(Condition condition, Object value) {
+        if (value instanceof Number number)
+            return number.doubleValue();
+        try {
+            return Double.parseDouble(((String) value).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number for numeric field " + condition.fieldName() + ": " + value, e);
+        }
+    }
+
+    private static IllegalArgumentException unsupported(Condition condition, char type) {
+        return new IllegalArgumentException("cannot apply " + condition + " to a field of type '" + type + "'");
+    }
+
+    /**
+     * Filter bound to a file's fields. Not for use by several threads at once.
+     */
+    static final class RecordMatcher {
+        private final FieldMatcher[] matchers;
+
+        private RecordMatcher(FieldMatcher[] matchers) {
+            this.matchers = matchers;
+        }
+
+        /**
+         * @param buffer buffer holding the record.
+         * @param recordPosition index of the record's first byte (the deleted flag).
+         * @return true if the record matches every condition.
+         */
+        boolean matches(ByteBuffer buffer, int recordPosition) {
+            for (FieldMatcher matcher : matchers) {
+                if (!matcher.matches(buffer, recordPosition))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private interface FieldMatcher {
+        boolean matches(ByteBuffer buffer, int recordPosition);
+    }
+
+    private static final class NumberMatcher implements FieldMatcher {
+        private final int offset;
+        private final int length;
+        private final double low;
+        private final double high;
+        private final AsciiNumberParser parser = new AsciiNumberParser();
+
+        NumberMatcher(int offset, int length, double low, double high) {
+            this.offset = offset;
+            this.length = length;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean matches(ByteBuffer buffer, int recordPosition) {
+            if (!parser.parse(buffer, recordPosition + offset, length))
+                return false;
+            double value = parser.doubleValue();
+            return value >= low && value <= high;
+        }
+    }
+
+    private static final class LogicalMatcher implements FieldMatcher {
+        private final int offset;
+        private final boolean value;
+
+        LogicalMatcher(int offset, boolean value) {
+            this.offset = offset;
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(ByteBuffer buffer, int recordPosition) {
+            byte b = buffer.get(recordPosition + offset);
+            boolean isTrue = b == 'Y' || b == 'y' || b == 'T' || b == 't';
+            return isTrue == value;
+        }
+    }
+
+    private static final class TextMatcher implements FieldMatcher {
+        private final int offset;
+        private final int length;
+        private final boolean trim;
+        private final Operator operator;
+        private final byte[] low;
+        private final byte[] high;
+
+        TextMatcher(int offset, int length, boolean trim, Operator operator, byte[] low, byte[] high) {
+            this.offset = offset;
+            this.length = length;
+            this.trim = trim;
+            this.operator = operator;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean matches(ByteBuffer buffer, int recordPosition) {
+            int start = recordPosition + offset;
+            int end = start + length;
+            if (trim) {
+                end = DBASEReader.textEnd(buffer, start, end);
+                start = DBASEReader.textStart(buffer, start, end);
+            }
+
+            switch (operator) {
+                case EQ:
+                    return end - start == low.length && compare(buffer, start, end, low) == 0;
+                case STARTS_WITH:
+                    return end - start >= low.length && compare(buffer, start, start + low.length, low) == 0;
+                case BETWEEN:
+                    return compare(buffer, start, end, low) >= 0 && compare(buffer, start, end, high) <= 0;
+                default:
+                    return false;
+            }
+        }
+
+        /*
+         * Unsigned lexicographic comparison of the field bytes with a value.
+         */
+        private static int compare(ByteBuffer buffer, int start, int end, byte[] value) {
+            int n = Math.min(end - start, value.length);
+            for (int index = 0; index < n; index++) {
+                int difference = (buffer.get(start + index) & 0xff) - (value[index] & 0xff);
+                if (difference != 0)
+                    return difference;
+            }
+            return (end - start) - value.length;
+        }
+    }
+}
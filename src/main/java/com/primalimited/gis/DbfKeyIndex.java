@@ -0,0 +1,467 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Sorted index of one .dbf column's values, kept in a sidecar file next to the .dbf file
+ * (e.g. WBDLine.tnmid.kix), for finding the records holding a key with a binary search of the
+ * memory-mapped index instead of a scan of the table.
+ *
+ * <pre>
+ * try (DbfKeyIndex index = DbfKeyIndex.openOrBuild(Path.of("WBDLine.dbf"), "tnmid")) {
+ *     int recordIndex = index.find("{6AEA4606-8D16-4511-B490-8AF861F24A91}");
+ * }
+ * </pre>
+ *
+ * The index records the .dbf file's record count, last update date, size and field layout, and is
+ * not opened if any of them has changed since it was built. Character and date keys are compared as
+ * their trimmed text; numeric keys by value, and blank numeric values are not indexed.
+ */
+public class DbfKeyIndex implements Closeable {
+    private static final int MAGIC = 0x58494B44; // "DKIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int FIELD_NAME_POSITION = 48;
+    private static final int KEY_TYPE_TEXT = 0;
+    private static final int KEY_TYPE_NUMBER = 1;
+    private static final int NUMBER_KEY_LENGTH = Double.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer entries;
+    private final String fieldName;
+    private final int keyType;
+    private final int keyLength;
+    private final int entryLength;
+    private final int nEntries;
+    private final DbfCharset charset;
+
+    private DbfKeyIndex(FileChannel channel, MappedByteBuffer mapped, String fieldName, int keyType, int keyLength,
+                        int nEntries, DbfCharset charset) {
+        this.channel = channel;
+        this.entries = mapped;
+        this.fieldName = fieldName;
+        this.keyType = keyType;
+        this.keyLength = keyLength;
+        this.entryLength = keyLength + Integer.BYTES;
+        this.nEntries = nEntries;
+        this.charset = charset;
+    }
+
+    /**
+     * Path of the index file for a column: the .dbf file name with the field name and .kix in
+     * place of its extension.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fieldName the field name.
+     * @return path of the index file.
+     */
+    public static Path indexPath(Path dbfPath, String fieldName) {
+        String name = dbfPath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot < 0 ? name : name.substring(0, dot);
+        return dbfPath.resolveSibling(baseName + "." + fieldName.trim() + "." + ShapefileConstants.DBF_KEY_INDEX_EXTENSION);
+    }
+
+    /*
+     * Delete the index files of every column of a .dbf file, e.g. when the file is rewritten. Field
+     * names hold no dots, so the indexes of a file named like "<base>.<other>.dbf" are left alone.
+     */
+    static void deleteIndexes(Path dbfPath) throws IOException {
+        String name = dbfPath.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String prefix = (dot < 0 ? name : name.substring(0, dot)) + ".";
+        String suffix = "." + ShapefileConstants.DBF_KEY_INDEX_EXTENSION;
+        Path directory = dbfPath.toAbsolutePath().getParent();
+        if (directory == null || !Files.isDirectory(directory))
+            return;
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(directory)) {
+            for (Path sibling : siblings) {
+                String siblingName = sibling.getFileName().toString();
+                if (siblingName.length() > prefix.length() + suffix.length()
+                        && siblingName.startsWith(prefix) && siblingName.endsWith(suffix)
+                        && siblingName.indexOf('.', prefix.length()) == siblingName.length() - suffix.length())
+                    Files.deleteIfExists(sibling);
+            }
+        }
+    }
+
+    /**
+     * Open the index of a column, building it first if it is missing or out of date.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fieldName the field name.
+     * @return the open index.
+     * @throws IOException if the index could not be read or built.
+     */
+    public static DbfKeyIndex openOrBuild(Path dbfPath, String fieldName) throws IOException {
+        if (Files.isRegularFile(indexPath(dbfPath, fieldName))) {
+            try {
+                return open(dbfPath, fieldName);
+            } catch (StaleIndexException e) {
+                // rebuilt below
+            }
+        }
+        return build(dbfPath, fieldName);
+    }
+
+    /**
+     * Open the existing index of a column.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fieldName the field name.
+     * @return the open index.
+     * @throws IOException if there is no index, it could not be read, or it is out of date with the .dbf file.
+     */
+    public static DbfKeyIndex open(Path dbfPath, String fieldName) throws IOException {
+        Path indexPath = indexPath(dbfPath, fieldName);
+        if (!Files.isRegularFile(indexPath))
+            throw new NoSuchFileException(indexPath.toString());
+
+        DbfSchema schema;
+        try (FileChannel dbfChannel = FileChannel.open(dbfPath, StandardOpenOption.READ)) {
+            schema = DbfSchema.read(dbfChannel);
+        }
+        int field = fieldIndex(schema, fieldName);
+
+        FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                throw new StaleIndexException(indexPath, "unexpected size " + channel.size());
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION)
+                throw new StaleIndexException(indexPath, "not a key index");
+            if (mapped.getInt(8) != schema.getRecordCount()
+                    || mapped.getInt(12) != schema.getLastUpdate()
+                    || mapped.getInt(16) != schema.getHeaderSize()
+                    || mapped.getInt(20) != schema.getRecordSize()
+                    || mapped.getLong(24) != Files.size(dbfPath)
+                    || mapped.getInt(32) != schema.getOffset(field)
+                    || !storedFieldName(mapped).equals(schema.getName(field).trim()))
+                throw new StaleIndexException(indexPath, "the .dbf file has changed");
+
+            int keyLength = mapped.getInt(36);
+            int keyType = mapped.getInt(40);
+            int nEntries = mapped.getInt(44);
+            if (HEADER_BYTES + (long) nEntries * (keyLength + Integer.BYTES) != channel.size())
+                throw new StaleIndexException(indexPath, "truncated");
+
+            return new DbfKeyIndex(channel, mapped, schema.getName(field).trim(), keyType, keyLength, nEntries,
+                    DbfCharset.forDbf(dbfPath));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build (or rebuild) the index of a column, and open it.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fieldName the field name.
+     * @return the open index.
+     * @throws IOException if the .dbf file could not be read, or the index could not be written.
+     * @throws IllegalArgumentException if there is no such field, or it is not a character, date or numeric field.
+     */
+    public static DbfKeyIndex build(Path dbfPath, String fieldName) throws IOException {
+        Path indexPath = indexPath(dbfPath, fieldName);
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+
+        try (DbfCursor cursor = DbfCursor.open(dbfPath)) {
+            DbfSchema schema = cursor.getSchema();
+            int field = fieldIndex(schema, fieldName);
+            char type = schema.getType(field);
+            int keyType = type == 'N' || type == 'F' ? KEY_TYPE_NUMBER : KEY_TYPE_TEXT;
+            int keyLength = keyType == KEY_TYPE_NUMBER ? NUMBER_KEY_LENGTH : schema.getLength(field);
+
+            // keys end to end, padded with zeros, then sorted by key and record
+            int capacity = Math.max(0, schema.getRecordCount());
+            byte[] keys = new byte[Math.multiplyExact(capacity, keyLength)];
+            int[] records = new int[capacity];
+            AsciiNumberParser parser = new AsciiNumberParser();
+            int nEntries = 0;
+            while (cursor.next()) {
+                int start = cursor.getRecordPosition() + schema.getOffset(field);
+                ByteBuffer buffer = cursor.getBuffer();
+                int keyStart = nEntries * keyLength;
+                if (keyType == KEY_TYPE_NUMBER) {
+                    if (!parser.parse(buffer, start, schema.getLength(field)))
+                        continue;
+                    putNumberKey(keys, keyStart, parser.doubleValue());
+                } else {
+                    int end = start + schema.getLength(field);
+                    if (type == 'C') {
+                        end = DBASEReader.textEnd(buffer, start, end);
+                        start = DBASEReader.textStart(buffer, start, end);
+                    }
+                    buffer.get(start, keys, keyStart, end - start);
+                }
+                records[nEntries++] = cursor.getRecordIndex();
+            }
+
+            int[] order = sortedEntries(keys, keyLength, nEntries);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                    .putInt(schema.getRecordCount())
+                    .putInt(schema.getLastUpdate())
+                    .putInt(schema.getHeaderSize())
+                    .putInt(schema.getRecordSize())
+                    .putLong(Files.size(dbfPath))
+                    .putInt(schema.getOffset(field))
+                    .putInt(keyLength)
+                    .putInt(keyType)
+                    .putInt(nEntries);
+            header.put(FIELD_NAME_POSITION, schema.getName(field).trim().getBytes(StandardCharsets.ISO_8859_1));
+            header.rewind();
+
+            try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, header);
+                ByteBuffer block = ByteBuffer.allocate(Math.max(1, DbfCursor.BLOCK_BYTES / (keyLength + Integer.BYTES)) * (keyLength + Integer.BYTES))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for (int entry : order) {
+                    if (block.remaining() < keyLength + Integer.BYTES)
+                        writeFully(out, block.flip());
+                    block.put(keys, entry * keyLength, keyLength).putInt(records[entry]);
+                }
+                writeFully(out, block.flip());
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+            throw e;
+        }
+        return open(dbfPath, fieldName);
+    }
+
+    /*
+     * Entry numbers in key order, by a stable merge sort of primitive ints. Entries were added in
+     * record order, so entries with equal keys stay in record order.
+     */
+    private static int[] sortedEntries(byte[] keys, int keyLength, int nEntries) {
+        int[] order = new int[nEntries];
+        for (int entry = 0; entry < nEntries; entry++)
+            order[entry] = entry;
+        int[] merged = new int[nEntries];
+        for (long width = 1; width < nEntries; width *= 2) {
+            for (long low = 0; low < nEntries; low += 2 * width) {
+                int middle = (int) Math.min(low + width, nEntries);
+                int high = (int) Math.min(low + 2 * width, nEntries);
+                int left = (int) low;
+                int right = middle;
+                int out = (int) low;
+                while (left < middle && right < high) {
+                    int a = order[left];
+                    int b = order[right];
+                    boolean takeRight = Arrays.compareUnsigned(keys, b * keyLength, (b + 1) * keyLength,
+                            keys, a * keyLength, (a + 1) * keyLength) < 0;
+                    merged[out++] = takeRight ? order[right++] : order[left++];
+                }
+                System.arraycopy(order, left, merged, out, middle - left);
+                out += middle - left;
+                System.arraycopy(order, right, merged, out, high - right);
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining())
+            channel.write(byteBuffer);
+        byteBuffer.clear();
+    }
+
+    private static int fieldIndex(DbfSchema schema, String fieldName) {
+        int field = schema.indexOf(fieldName);
+        if (field < 0)
+            throw new IllegalArgumentException("no field named " + fieldName);
+        char type = schema.getType(field);
+        if (type != 'C' && type != 'D' && type != 'N' && type != 'F')
+            throw new IllegalArgumentException("cannot index field " + fieldName + " of type '" + type + "'");
+        return field;
+    }
+
+    private static String storedFieldName(ByteBuffer mapped) {
+        int length = 0;
+        while (length < DbfSchema.FIELD_NAME_LENGTH && mapped.get(FIELD_NAME_POSITION + length) != 0)
+            length++;
+        byte[] name = new byte[length];
+        mapped.get(FIELD_NAME_POSITION, name);
+        return new String(name, StandardCharsets.ISO_8859_1);
+    }
+
+    /*
+     * Big-endian bits of the value, flipped so that unsigned byte order is numeric order.
+     */
+    private static void putNumberKey(byte[] keys, int keyStart, double value) {
+        long bits = Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+        bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+        for (int index = NUMBER_KEY_LENGTH - 1; index >= 0; index--) {
+            keys[keyStart + index] = (byte) bits;
+            bits >>>= 8;
+        }
+    }
+
+    /**
+     * @return name of the indexed field.
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * @return number of keys in the index (records with a non-blank numeric key, or all records for text keys).
+     */
+    public int getKeyCount() {
+        return nEntries;
+    }
+
+    /**
+     * Find the record with a key; for a numeric field, the key is read as a number.
+     *
+     * @param key the key.
+     * @return index (0-based) of the first record with the key, or -1 if there is none.
+     */
+    public int find(String key) {
+        byte[] keyBytes = keyBytes(key);
+        return keyBytes == null ? -1 : find(keyBytes);
+    }
+
+    /**
+     * Find the record with a numeric key.
+     *
+     * @param key the key.
+     * @return index (0-based) of the first record with the key, or -1 if there is none.
+     * @throws IllegalArgumentException if the field is not numeric.
+     */
+    public int find(double key) {
+        return find(numberKey(key));
+    }
+
+    /**
+     * Find all records with a key; for a numeric field, the key is read as a number.
+     *
+     * @param key the key.
+     * @return indexes (0-based) of the records with the key, in order.
+     */
+    public int[] findAll(String key) {
+        byte[] keyBytes = keyBytes(key);
+        return keyBytes == null ? new int[0] : findAll(keyBytes);
+    }
+
+    /**
+     * Find all records with a numeric key.
+     *
+     * @param key the key.
+     * @return indexes (0-based) of the records with the key, in order.
+     * @throws IllegalArgumentException if the field is not numeric.
+     */
+    public int[] findAll(double key) {
+        return findAll(numberKey(key));
+    }
+
+    private int find(byte[] keyBytes) {
+        int entry = lowerBound(keyBytes);
+        return entry < nEntries && compare(entry, keyBytes) == 0 ? recordAt(entry) : -1;
+    }
+
+    private int[] findAll(byte[] keyBytes) {
+        int first = lowerBound(keyBytes);
+        int last = first;
+        while (last < nEntries && compare(last, keyBytes) == 0)
+            last++;
+        int[] recordIndexes = new int[last - first];
+        for (int entry = first; entry < last; entry++)
+            recordIndexes[entry - first] = recordAt(entry);
+        return recordIndexes;
+    }
+
+    /*
+     * Key as stored: trimmed text padded with zeros, or the numeric key; null if no stored key can match.
+     */
+    private byte[] keyBytes(String key) {
+        if (keyType == KEY_TYPE_NUMBER) {
+            try {
+                return numberKey(Double.parseDouble(key.trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        byte[] text = key.trim().getBytes(charset.charset());
+        return text.length > keyLength ? null : Arrays.copyOf(text, keyLength);
+    }
+
+    private byte[] numberKey(double key) {
+        if (keyType != KEY_TYPE_NUMBER)
+            throw new IllegalArgumentException("field " + fieldName + " is not numeric");
+        byte[] keyBytes = new byte[NUMBER_KEY_LENGTH];
+        putNumberKey(keyBytes, 0, key);
+        return keyBytes;
+    }
+
+    /*
+     * First entry with a key not less than the given key.
+     */
+    private int lowerBound(byte[] keyBytes) {
+        int low = 0;
+        int high = nEntries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, keyBytes) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int compare(int entry, byte[] keyBytes) {
+        int position = HEADER_BYTES + entry * entryLength;
+        for (int index = 0; index < keyLength; index++) {
+            int difference = DBASEReader.unsignedValue(entries.get(position + index)) - DBASEReader.unsignedValue(keyBytes[index]);
+            if (difference != 0)
+                return difference;
+        }
+        return 0;
+    }
+
+    private int recordAt(int entry) {
+        return entries.getInt(HEADER_BYTES + entry * entryLength + keyLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The index file does not match the .dbf file it was built for.
+     */
+    static class StaleIndexException extends IOException {
+        StaleIndexException(Path indexPath, String reason) {
+            super("Key index " + indexPath + " is out of date: " + reason);
+        }
+    }
+}
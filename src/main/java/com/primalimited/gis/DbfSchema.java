@@ -0,0 +1,287 @@
+package com.primalimited.gis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * dBASE (.dbf) header and field descriptors, parsed once. Field offsets within a record are
+ * precomputed, so a field value can be found without walking the fields before it.
+ *
+ * <p>The schema is read from the first headerSize bytes of the file alone, and gives the field
+ * types, widths and decimal counts as the header declares them; no record is read.</p>
+ */
+public final class DbfSchema {
+    static final int DBASE_HEADER_LENGTH_BYTES = 32;
+    static final int FIELD_NAME_LENGTH = 11;
+    static final byte HEADER_TERMINATOR = 0x0D;
+    static final byte DELETED_FLAG = '*';
+
+    private final DBASEReader.DBASEHeaderInfo headerInfo;
+    private final int lastUpdate;
+    private final int headerSize;
+    private final int recordSize;
+    private final String[] names;
+    private final byte[] types;
+    private final int[] lengths;
+    private final int[] decimalCounts;
+    private final int[] offsets;
+
+    private DbfSchema(DBASEReader.DBASEHeaderInfo headerInfo, int lastUpdate, int headerSize, int recordSize, String[] names,
+                      byte[] types, int[] lengths, int[] decimalCounts, int[] offsets) {
+        this.headerInfo = headerInfo;
+        this.lastUpdate = lastUpdate;
+        this.headerSize = headerSize;
+        this.recordSize = recordSize;
+        this.names = names;
+        this.types = types;
+        this.lengths = lengths;
+        this.decimalCounts = decimalCounts;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Read the header of a .dbf file, and nothing more.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return the parsed schema.
+     * @throws IOException if the header could not be read.
+     */
+    public static DbfSchema read(Path dbfPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(dbfPath, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Read the header, and nothing more, from the start of a channel. The channel is left
+     * positioned at the first record.
+     *
+     * @param channel the .dbf channel, positioned at the start of the file.
+     * @return the parsed schema.
+     * @throws IOException if the header could not be read.
+     */
+    static DbfSchema read(ReadableByteChannel channel) throws IOException {
+        return parse(readHeader(channel));
+    }
+
+    /*
+     * The header bytes, in a buffer of their own length (at least the fixed 32 bytes).
+     */
+    private static ByteBuffer readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer fixedHeader = ByteBuffer.allocate(DBASE_HEADER_LENGTH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, fixedHeader);
+        int headerSize = fixedHeader.getShort(8) & 0xffff;
+
+        ByteBuffer header = ByteBuffer.allocate(Math.max(headerSize, DBASE_HEADER_LENGTH_BYTES));
+        header.put(fixedHeader.flip());
+        readFully(channel, header);
+        return header;
+    }
+
+    /**
+     * Parse the header at the start of a buffer holding (at least) the header bytes.
+     *
+     * @param byteBuffer the buffer; its position and byte order are changed.
+     * @return the parsed schema.
+     */
+    static DbfSchema parse(ByteBuffer byteBuffer) {
+        DBASEReader.DBASEHeaderInfo headerInfo = DBASEReader.readHeader(byteBuffer);
+        int headerSize = headerInfo.getHeaderSize() & 0xffff;
+        int recordSize = headerInfo.getRecordSize() & 0xffff;
+        int lastUpdate = (DBASEReader.unsignedValue(byteBuffer.get(1)) << 16)
+                | (DBASEReader.unsignedValue(byteBuffer.get(2)) << 8)
+                | DBASEReader.unsignedValue(byteBuffer.get(3));
+
+        // the descriptor array ends at the terminator byte, or where the header says it does
+        int maxFields = Math.max(0, Math.min(headerInfo.getNFields(), byteBuffer.limit() / DBASE_HEADER_LENGTH_BYTES - 1));
+        int nFields = 0;
+        while (nFields < maxFields && byteBuffer.get((nFields + 1) * DBASE_HEADER_LENGTH_BYTES) != HEADER_TERMINATOR)
+            nFields++;
+
+        String[] names = new String[nFields];
+        byte[] types = new byte[nFields];
+        int[] lengths = new int[nFields];
+        int[] decimalCounts = new int[nFields];
+        int[] offsets = new int[nFields];
+        int offset = 1; // deleted flag
+        for (int field = 0; field < nFields; field++) {
+            int descriptor = (field + 1) * DBASE_HEADER_LENGTH_BYTES;
+            names[field] = fieldName(byteBuffer, descriptor);
+            types[field] = byteBuffer.get(descriptor + FIELD_NAME_LENGTH);
+            lengths[field] = DBASEReader.unsignedValue(byteBuffer.get(descriptor + 16));
+            decimalCounts[field] = byteBuffer.get(descriptor + 17);
+            offsets[field] = offset;
+            offset += lengths[field];
+        }
+
+        return new DbfSchema(headerInfo, lastUpdate, headerSize, recordSize, names, types, lengths, decimalCounts, offsets);
+    }
+
+    /*
+     * Field name (11 bytes, zero-filled), one char per byte.
+     */
+    private static String fieldName(ByteBuffer byteBuffer, int position) {
+        char[] uniChars = new char[FIELD_NAME_LENGTH];
+        for (int index = 0; index < FIELD_NAME_LENGTH; index++)
+            uniChars[index] = (char) byteBuffer.get(position + index);
+        String fieldName = new String(uniChars);
+        int terminatorIndex = fieldName.indexOf('\u0000');
+        if (terminatorIndex > 0)
+            fieldName = fieldName.substring(0, terminatorIndex);
+        return fieldName;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            if (channel.read(byteBuffer) < 0)
+                throw new EOFException("Expected " + byteBuffer.limit() + " .dbf header bytes but read " + byteBuffer.position());
+        }
+    }
+
+    DBASEReader.DBASEHeaderInfo getHeaderInfo() {
+        return headerInfo;
+    }
+
+    /**
+     * @return number of records, from the header.
+     */
+    public int getRecordCount() {
+        return headerInfo.getNRecords();
+    }
+
+    /** date of last update, header bytes 1-3 as they are: (years since 1900) << 16 | month << 8 | day */
+    int getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * @return date of last update, from the header; null if the header does not hold a valid date.
+     */
+    public LocalDate getLastUpdateDate() {
+        try {
+            return LocalDate.of(1900 + (lastUpdate >>> 16), (lastUpdate >>> 8) & 0xff, lastUpdate & 0xff);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return number of bytes in the header, i.e. the file offset of the first record.
+     */
+    public int getHeaderSize() {
+        return headerSize;
+    }
+
+    /**
+     * @return number of bytes in each record, including the deleted flag.
+     */
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * @return number of fields (columns).
+     */
+    public int getFieldCount() {
+        return names.length;
+    }
+
+    /**
+     * @param field field index.
+     * @return field name, without the zero fill.
+     */
+    public String getName(int field) {
+        return names[field];
+    }
+
+    /**
+     * @return field names, in column order.
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    /**
+     * @param field field index.
+     * @return field type letter from the descriptor, e.g. 'C', 'N', 'D'.
+     */
+    public char getType(int field) {
+        return (char) (types[field] & 0xff);
+    }
+
+    /**
+     * The type of a field's values as the header declares it: whole numbers for numeric fields
+     * without decimals, floating point for those with decimals and for 'F' fields, and strings for
+     * character, date and other fields.
+     *
+     * @param field field index.
+     * @return the field type.
+     */
+    public DBASETableData.FieldType getFieldType(int field) {
+        switch (getType(field)) {
+            case 'N':
+                return decimalCounts[field] > 0 ? DBASETableData.FieldType.Float : DBASETableData.FieldType.Number;
+            case 'F':
+                return DBASETableData.FieldType.Float;
+            case 'L':
+                return DBASETableData.FieldType.Boolean;
+            default:
+                return DBASETableData.FieldType.String;
+        }
+    }
+
+    /**
+     * @return the declared type of every field, in column order.
+     */
+    public DBASETableData.FieldType[] getFieldTypes() {
+        DBASETableData.FieldType[] fieldTypes = new DBASETableData.FieldType[names.length];
+        for (int field = 0; field < fieldTypes.length; field++)
+            fieldTypes[field] = getFieldType(field);
+        return fieldTypes;
+    }
+
+    /**
+     * @param field field index.
+     * @return field width in bytes.
+     */
+    public int getLength(int field) {
+        return lengths[field];
+    }
+
+    /**
+     * @param field field index.
+     * @return number of decimal places of a numeric field.
+     */
+    public int getDecimalCount(int field) {
+        return decimalCounts[field];
+    }
+
+    /**
+     * @param field field index.
+     * @return offset of the field from the start of the record (the deleted flag is at offset 0).
+     */
+    public int getOffset(int field) {
+        return offsets[field];
+    }
+
+    /**
+     * @param name field name; surrounding spaces are ignored.
+     * @return index of the first field with the name, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+        String trimmed = name.trim();
+        for (int field = 0; field < names.length; field++) {
+            if (names[field].trim().equals(trimmed))
+                return field;
+        }
+        return -1;
+    }
+}
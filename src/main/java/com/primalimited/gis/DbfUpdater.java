@@ -0,0 +1,180 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * Edits a .dbf file in place. Records are fixed-width, so a field of a record is changed with one
+ * positional write of the field's declared width, at headerSize + recordIndex * recordSize +
+ * fieldOffset; the rest of the file is neither read nor copied. Values are formatted as
+ * {@link DbfWriter} formats them.
+ *
+ * <p>When the updater is closed after a change, the date of last update in the header is set, and
+ * the {@link DbfKeyIndex} files of the changed fields are deleted. An updater is meant for one
+ * thread.</p>
+ */
+public class DbfUpdater implements Closeable {
+    private static final int LAST_UPDATE_OFFSET = 1;
+
+    private final Path dbfPath;
+    private final FileChannel channel;
+    private final DbfSchema schema;
+    private final CharsetEncoder encoder;
+    // one field wide, reused for every write
+    private final ByteBuffer fieldBuffer;
+    private final BitSet changedFields = new BitSet();
+    private boolean changed;
+
+    private DbfUpdater(Path dbfPath, FileChannel channel, DbfSchema schema, DbfCharset charset) {
+        this.dbfPath = dbfPath;
+        this.channel = channel;
+        this.schema = schema;
+        this.encoder = charset.charset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int maxLength = 1;
+        for (int field = 0; field < schema.getFieldCount(); field++)
+            maxLength = Math.max(maxLength, schema.getLength(field));
+        this.fieldBuffer = ByteBuffer.allocate(maxLength).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Opens a .dbf file for update. Character fields are encoded with the character set named in
+     * the .cpg file next to it, if there is one.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @return new instance of DbfUpdater.
+     * @throws IOException if the file or its header could not be read.
+     */
+    public static DbfUpdater open(Path dbfPath) throws IOException {
+        return open(dbfPath, DbfCharset.forDbf(dbfPath));
+    }
+
+    /**
+     * Opens a .dbf file for update.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param charset character set of character fields; null for ISO-8859-1.
+     * @return new instance of DbfUpdater.
+     * @throws IOException if the file or its header could not be read.
+     */
+    public static DbfUpdater open(Path dbfPath, Charset charset) throws IOException {
+        return open(dbfPath, DbfCharset.of(charset));
+    }
+
+    private static DbfUpdater open(Path dbfPath, DbfCharset charset) throws IOException {
+        FileChannel channel = FileChannel.open(dbfPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            DbfSchema schema = DbfSchema.read(channel);
+            if (schema.getRecordSize() <= 0)
+                throw new IOException("Invalid .dbf record size: " + schema.getRecordSize());
+            return new DbfUpdater(dbfPath, channel, schema, charset);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the header and field descriptors, read when the file was opened.
+     */
+    public DbfSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Set one field of one record.
+     *
+     * @param recordIndex record index (0-based).
+     * @param fieldName the field name.
+     * @param value the new value, as for {@link DbfWriter#writeRecord(Object...)}; null for blank.
+     * @throws IOException if the file could not be written.
+     * @throws IllegalArgumentException if there is no field with the name, or the value does not fit the field.
+     */
+    public void setValue(int recordIndex, String fieldName, Object value) throws IOException {
+        int field = schema.indexOf(fieldName);
+        if (field < 0)
+            throw new IllegalArgumentException("no field named " + fieldName);
+        setValue(recordIndex, field, value);
+    }
+
+    /**
+     * Set one field of one record.
+     *
+     * @param recordIndex record index (0-based).
+     * @param field field index.
+     * @param value the new value, as for {@link DbfWriter#writeRecord(Object...)}; null for blank.
+     * @throws IOException if the file could not be written.
+     * @throws IllegalArgumentException if the value does not fit the field.
+     */
+    public void setValue(int recordIndex, int field, Object value) throws IOException {
+        Objects.checkIndex(recordIndex, schema.getRecordCount());
+        Objects.checkIndex(field, schema.getFieldCount());
+
+        int length = schema.getLength(field);
+        fieldBuffer.clear().limit(length);
+        DbfWriter.formatValue(fieldBuffer, 0, schema.getName(field), schema.getType(field), length,
+                schema.getDecimalCount(field), value, encoder);
+        write(fieldBuffer, recordPosition(recordIndex) + schema.getOffset(field));
+        changedFields.set(field);
+    }
+
+    /**
+     * Mark a record as deleted, or not. Deleted records stay in the file; readers may skip them.
+     *
+     * @param recordIndex record index (0-based).
+     * @param deleted true to mark the record as deleted.
+     * @throws IOException if the file could not be written.
+     */
+    public void setDeleted(int recordIndex, boolean deleted) throws IOException {
+        Objects.checkIndex(recordIndex, schema.getRecordCount());
+        fieldBuffer.clear().limit(1);
+        fieldBuffer.put(0, deleted ? DbfSchema.DELETED_FLAG : (byte) ' ');
+        write(fieldBuffer, recordPosition(recordIndex));
+    }
+
+    private long recordPosition(int recordIndex) {
+        return schema.getHeaderSize() + (long) recordIndex * schema.getRecordSize();
+    }
+
+    private void write(ByteBuffer byteBuffer, long position) throws IOException {
+        while (byteBuffer.hasRemaining())
+            channel.write(byteBuffer, position + byteBuffer.position());
+        changed = true;
+    }
+
+    /**
+     * Sets the date of last update if anything was changed, deletes the now stale key indexes of
+     * the changed fields, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen())
+            return;
+        try {
+            if (changed) {
+                LocalDate today = LocalDate.now();
+                ByteBuffer lastUpdate = ByteBuffer.wrap(new byte[] {
+                        (byte) (today.getYear() - 1900), (byte) today.getMonthValue(), (byte) today.getDayOfMonth()
+                });
+                write(lastUpdate, LAST_UPDATE_OFFSET);
+            }
+        } finally {
+            channel.close();
+        }
+        for (int field = changedFields.nextSetBit(0); field >= 0; field = changedFields.nextSetBit(field + 1))
+            Files.deleteIfExists(DbfKeyIndex.indexPath(dbfPath, schema.getName(field)));
+    }
+}
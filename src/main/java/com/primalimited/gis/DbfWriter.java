@@ -0,0 +1,374 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes a .dbf file one record at a time. Records are formatted straight into a block buffer
+ * that is written to the file when it fills, so no more than one block of the table is held in
+ * memory; the record count in the header is written when the writer is closed.
+ *
+ * <pre>
+ * try (DbfWriter writer = DbfWriter.create(path, List.of(
+ *         DbfWriter.Field.of("NAME", DBASETableData.FieldType.String, 40),
+ *         DbfWriter.Field.of("LENGTH", DBASETableData.FieldType.Float)))) {
+ *     writer.writeRecord("Rio Grande", 3051.5);
+ * }
+ * </pre>
+ */
+public class DbfWriter implements Closeable {
+    private static final byte VERSION = 0x03;
+    private static final byte END_OF_FILE = 0x1A;
+    private static final int RECORD_COUNT_OFFSET = 4;
+
+    /**
+     * Field (column) descriptor.
+     *
+     * @param name field name, at most 10 characters.
+     * @param type field type letter: 'C', 'N', 'F', 'L' or 'D'.
+     * @param length field width in bytes: 1 for 'L', 8 for 'D', at most 254 otherwise.
+     * @param decimalCount number of decimal places of a numeric field; 0 for other fields.
+     */
+    public record Field(String name, char type, int length, int decimalCount) {
+        public Field {
+            if (name == null || name.isEmpty() || name.length() > DbfSchema.FIELD_NAME_LENGTH - 1)
+                throw new IllegalArgumentException("field name must be 1 to " + (DbfSchema.FIELD_NAME_LENGTH - 1) + " characters: " + name);
+            if (!StandardCharsets.ISO_8859_1.newEncoder().canEncode(name))
+                throw new IllegalArgumentException("field name must be ISO-8859-1: " + name);
+            switch (type) {
+                case 'C':
+                case 'N':
+                case 'F':
+                    if (length < 1 || length > 254)
+                        throw new IllegalArgumentException("field " + name + " length must be 1 to 254: " + length);
+                    break;
+                case 'L':
+                    if (length != 1)
+                        throw new IllegalArgumentException("logical field " + name + " length must be 1: " + length);
+                    break;
+                case 'D':
+                    if (length != 8)
+                        throw new IllegalArgumentException("date field " + name + " length must be 8: " + length);
+                    break;
+                default:
+                    throw new IllegalArgumentException("field " + name + " type is not supported: " + type);
+            }
+            boolean isNumeric = type == 'N' || type == 'F';
+            if (decimalCount < 0 || (decimalCount > 0 && (!isNumeric || decimalCount > length - 2)))
+                throw new IllegalArgumentException("field " + name + " decimal count is not valid: " + decimalCount);
+        }
+
+        /**
+         * Field laid out as ArcMap lays out fields of a type: letter code, width and decimal count.
+         */
+        public static Field of(String name, DBASETableData.FieldType fieldType) {
+            return of(name, fieldType, fieldType.getFieldLengthCharBytes());
+        }
+
+        /**
+         * Field with the letter code and decimal count of a type, and a given width; e.g. a String
+         * field sized for its longest value.
+         */
+        public static Field of(String name, DBASETableData.FieldType fieldType, int length) {
+            return new Field(name, fieldType.getLetterCode(), length, fieldType.getDecimalCount());
+        }
+    }
+
+    private final FileChannel channel;
+    private final Field[] fields;
+    private final int[] offsets;
+    private final int recordSize;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer block;
+    private int nRecords;
+    private boolean closed;
+
+    private DbfWriter(FileChannel channel, Field[] fields, Charset charset) {
+        this.channel = channel;
+        this.fields = fields;
+        this.offsets = new int[fields.length];
+        int offset = 1; // deleted flag
+        for (int field = 0; field < fields.length; field++) {
+            offsets[field] = offset;
+            offset += fields[field].length();
+        }
+        this.recordSize = offset;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.block = ByteBuffer.allocate(Math.max(DbfCursor.BLOCK_BYTES, recordSize)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates a .dbf file, replacing any file at the path, and writes its header. Text is written
+     * as ISO-8859-1; a .cpg file left next to the path by an earlier file is deleted, so that
+     * readers do not decode the new file with its character set. The {@link DbfKeyIndex} files of
+     * an earlier file are deleted too.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fields the fields, in column order.
+     * @return new instance of DbfWriter.
+     * @throws IOException if the file could not be created.
+     */
+    public static DbfWriter create(Path dbfPath, List<Field> fields) throws IOException {
+        return create(dbfPath, fields, DbfCharset.DEFAULT.charset(), false);
+    }
+
+    /**
+     * Creates a .dbf file, replacing any file at the path, and writes its header. The character
+     * set is named in a .cpg file next to it, from which readers of the file decode its text. The
+     * {@link DbfKeyIndex} files of an earlier file are deleted.
+     *
+     * @param dbfPath path to the .dbf file.
+     * @param fields the fields, in column order.
+     * @param charset character set of character fields.
+     * @return new instance of DbfWriter.
+     * @throws IOException if the files could not be created.
+     */
+    public static DbfWriter create(Path dbfPath, List<Field> fields, Charset charset) throws IOException {
+        return create(dbfPath, fields, charset, true);
+    }
+
+    private static DbfWriter create(Path dbfPath, List<Field> fields, Charset charset, boolean writeCodePage) throws IOException {
+        Field[] fieldArray = fields.toArray(new Field[0]);
+        if (fieldArray.length == 0)
+            throw new IllegalArgumentException("a .dbf file must have at least one field");
+        Path cpgPath = DbfCharset.cpgPath(dbfPath);
+        if (cpgPath != null) {
+            if (writeCodePage)
+                Files.writeString(cpgPath, charset.name(), StandardCharsets.US_ASCII);
+            else
+                Files.deleteIfExists(cpgPath);
+        }
+        // key indexes of the old file could pass as up to date for the new one
+        DbfKeyIndex.deleteIndexes(dbfPath);
+
+        FileChannel channel = FileChannel.open(dbfPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            DbfWriter writer = new DbfWriter(channel, fieldArray, charset);
+            writer.writeHeader(LocalDate.now());
+            return writer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Header with a record count of 0, then the field descriptors and the terminator.
+     */
+    private void writeHeader(LocalDate lastUpdate) throws IOException {
+        int headerSize = DbfSchema.DBASE_HEADER_LENGTH_BYTES * (fields.length + 1) + 1;
+        if (headerSize > 0xffff || recordSize > 0xffff)
+            throw new IllegalArgumentException("too many fields for a .dbf file: " + fields.length);
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(VERSION)
+                .put((byte) (lastUpdate.getYear() - 1900))
+                .put((byte) lastUpdate.getMonthValue())
+                .put((byte) lastUpdate.getDayOfMonth())
+                .putInt(0)
+                .putShort((short) headerSize)
+                .putShort((short) recordSize);
+        for (int field = 0; field < fields.length; field++) {
+            int descriptor = (field + 1) * DbfSchema.DBASE_HEADER_LENGTH_BYTES;
+            header.put(descriptor, fields[field].name().getBytes(StandardCharsets.ISO_8859_1));
+            header.put(descriptor + DbfSchema.FIELD_NAME_LENGTH, (byte) fields[field].type());
+            header.put(descriptor + 16, (byte) fields[field].length());
+            header.put(descriptor + 17, (byte) fields[field].decimalCount());
+        }
+        header.put(headerSize - 1, DbfSchema.HEADER_TERMINATOR);
+        header.clear();
+        while (header.hasRemaining())
+            channel.write(header);
+    }
+
+    /**
+     * Write one record.
+     *
+     * @param values one value per field, in column order: a Number for numeric fields, a Boolean for
+     *               logical fields, a LocalDate, Date or "yyyyMMdd" String for date fields; any value
+     *               for character fields, written as its toString(). Null (and, in numeric fields,
+     *               {@link DBASETableData#DVAL_DOUBLE}, NaN and infinities) is written blank.
+     * @throws IOException if the file could not be written.
+     * @throws IllegalArgumentException if there is not one value per field, or a value does not
+     * fit its field; the record is then not written.
+     */
+    public void writeRecord(Object... values) throws IOException {
+        if (closed)
+            throw new IOException("DbfWriter is closed");
+        if (values.length != fields.length)
+            throw new IllegalArgumentException("expected " + fields.length + " values but got " + values.length);
+        if (block.remaining() < recordSize)
+            flush();
+
+        int recordPosition = block.position();
+        block.put(recordPosition, (byte) ' '); // not deleted
+        for (int field = 0; field < fields.length; field++) {
+            Field descriptor = fields[field];
+            formatValue(block, recordPosition + offsets[field], descriptor.name(), descriptor.type(), descriptor.length(),
+                    descriptor.decimalCount(), values[field], encoder);
+        }
+        block.position(recordPosition + recordSize);
+        nRecords++;
+    }
+
+    /**
+     * @return number of records written so far.
+     */
+    public int getRecordCount() {
+        return nRecords;
+    }
+
+    /**
+     * Format a value into a field of a record in a buffer, as dBASE lays it out: character and
+     * date fields left-aligned and blank-filled, numeric fields right-aligned with a fixed number
+     * of decimals. The buffer position is not changed.
+     *
+     * @throws IllegalArgumentException if the value does not fit the field, or is not of its type.
+     */
+    static void formatValue(ByteBuffer buffer, int position, String fieldName, char type, int length, int decimalCount,
+                            Object value, CharsetEncoder encoder) {
+        switch (type) {
+            case 'N':
+            case 'F':
+                putAscii(buffer, position, length, formatNumber(fieldName, decimalCount, value), true, fieldName);
+                break;
+            case 'L':
+                if (value != null && !(value instanceof Boolean))
+                    throw new IllegalArgumentException("field " + fieldName + " expects a Boolean: " + value);
+                buffer.put(position, (byte) (value == null ? '?' : (Boolean) value ? 'T' : 'F'));
+                break;
+            case 'D':
+                putAscii(buffer, position, length, formatDate(fieldName, value), false, fieldName);
+                break;
+            case 'C':
+                putText(buffer, position, length, value == null ? "" : value.toString(), encoder);
+                break;
+            default:
+                fill(buffer, position, length);
+                break;
+        }
+    }
+
+    private static String formatNumber(String fieldName, int decimalCount, Object value) {
+        if (value == null)
+            return "";
+        if (decimalCount == 0 && (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte))
+            return Long.toString(((Number) value).longValue());
+
+        BigDecimal decimal;
+        if (value instanceof BigDecimal bigDecimal) {
+            decimal = bigDecimal;
+        } else if (value instanceof BigInteger bigInteger) {
+            decimal = new BigDecimal(bigInteger);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            decimal = BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof Number number) {
+            double doubleValue = number.doubleValue();
+            if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue) || doubleValue == DBASETableData.DVAL_DOUBLE)
+                return "";
+            decimal = new BigDecimal(Double.toString(doubleValue));
+        } else {
+            String text = value.toString().trim();
+            if (text.isEmpty())
+                return "";
+            try {
+                decimal = new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("field " + fieldName + " expects a number: " + value);
+            }
+        }
+        return decimal.setScale(decimalCount, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String formatDate(String fieldName, Object value) {
+        if (value == null)
+            return "";
+        if (value instanceof LocalDate localDate)
+            return String.format("%04d%02d%02d", localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
+        if (value instanceof Date date) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTime(date);
+            return String.format("%04d%02d%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        }
+        String text = value.toString().trim();
+        if (!text.isEmpty() && (text.length() != 8 || !text.chars().allMatch(Character::isDigit)))
+            throw new IllegalArgumentException("field " + fieldName + " expects a date or yyyyMMdd: " + value);
+        return text;
+    }
+
+    private static void putAscii(ByteBuffer buffer, int position, int length, String text, boolean rightAligned, String fieldName) {
+        if (text.length() > length)
+            throw new IllegalArgumentException("value " + text + " does not fit in the " + length + " bytes of field " + fieldName);
+        fill(buffer, position, length);
+        int start = rightAligned ? position + length - text.length() : position;
+        for (int index = 0; index < text.length(); index++)
+            buffer.put(start + index, (byte) text.charAt(index));
+    }
+
+    /*
+     * Encode as much of the text as fits, never splitting a character, then fill with blanks.
+     */
+    private static void putText(ByteBuffer buffer, int position, int length, String text, CharsetEncoder encoder) {
+        ByteBuffer field = buffer.slice(position, length);
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(text), field, true);
+        encoder.flush(field);
+        while (field.hasRemaining())
+            field.put((byte) ' ');
+    }
+
+    private static void fill(ByteBuffer buffer, int position, int length) {
+        for (int index = position; index < position + length; index++)
+            buffer.put(index, (byte) ' ');
+    }
+
+    private void flush() throws IOException {
+        block.flip();
+        while (block.hasRemaining())
+            channel.write(block);
+        block.clear();
+    }
+
+    /**
+     * Writes the records still buffered and the end-of-file marker, sets the record count in the
+     * header, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (!block.hasRemaining())
+                flush();
+            block.put(END_OF_FILE);
+            flush();
+
+            ByteBuffer recordCount = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, nRecords);
+            while (recordCount.hasRemaining())
+                channel.write(recordCount, RECORD_COUNT_OFFSET + recordCount.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -2,17 +2,27 @@ package com.primalimited.gis;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 class EndianDataInputStream {
     private java.io.DataInputStream inputStream;
     private byte[] workSpace = new byte[8]; //chars are 16 bits, so we always quash the 1st 8 bits
+    private byte[] blockSpace = new byte[0]; //reused for every block (record) read
+    private ByteBufferEndianDataInputStream block;
 
     /** Creates new EndianDataInputStream */
     public EndianDataInputStream(java.io.InputStream in) {
         inputStream = new DataInputStream(new BufferedInputStream(in));
     }
 
+    /** For subclasses that are not backed by a java.io.InputStream */
+    EndianDataInputStream() {
+        inputStream = null;
+    }
+
     /** close the stream**/
     public void close() throws IOException {
         inputStream.close();
@@ -44,6 +54,11 @@ class EndianDataInputStream {
         return inputStream.readUnsignedByte();
     }
 
+    /** read len bytes into b, starting at off */
+    public void readFully(byte[] b, int off, int len) throws IOException {
+        inputStream.readFully(b, off, len);
+    }
+
     /** read a 16bit short in BE*/
     public short readShortBE() throws IOException {
         return inputStream.readShort();
@@ -109,6 +124,71 @@ class EndianDataInputStream {
         return Double.longBitsToDouble(l);
     }
 
+    /** read length 32bit ints in LE into dst, starting at offset */
+    public void readIntsLE(int[] dst, int offset, int length) throws IOException {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readIntLE();
+    }
+
+    /** read length 64bit doubles in LE into dst, starting at offset */
+    public void readDoublesLE(double[] dst, int offset, int length) throws IOException {
+        for (int i = 0; i < length; i++)
+            dst[offset + i] = readDoubleLE();
+    }
+
+    // the block buffer grows by at most this much, or doubles, per read while filling a block
+    private static final int BLOCK_GROWTH_BYTES = 64 * 1024;
+
+    /**
+     * Read the next nBytes (e.g. one whole record) in a single call, and return a stream that decodes them
+     * from memory. The returned stream is reused by the next call, so finish with it first.
+     * The buffer grows only as the bytes arrive, so a corrupt length fails with EOFException at the end of
+     * the stream rather than allocating nBytes up front.
+     * @param nBytes number of bytes to read
+     */
+    EndianDataInputStream readBlock(int nBytes) throws IOException {
+        if (nBytes < 0)
+            throw new IOException("invalid block length: " + nBytes);
+        int filled = 0;
+        while (filled < nBytes) {
+            if (filled == blockSpace.length) {
+                int capacity = (int) Math.min(nBytes, Math.max(2L * blockSpace.length, BLOCK_GROWTH_BYTES));
+                blockSpace = Arrays.copyOf(blockSpace, capacity);
+                block = null;
+            }
+            int chunk = Math.min(nBytes, blockSpace.length) - filled;
+            readFully(blockSpace, filled, chunk);
+            filled += chunk;
+        }
+        if (block == null)
+            block = new ByteBufferEndianDataInputStream(ByteBuffer.wrap(blockSpace));
+        block.rewind(nBytes);
+        return block;
+    }
+
+    /** remember the current position, so that up to readLimit bytes can be re-read after reset() */
+    public void mark(int readLimit) {
+        inputStream.mark(readLimit);
+    }
+
+    /** return to the position remembered by mark() */
+    public void reset() throws IOException {
+        inputStream.reset();
+    }
+
+    /** skip exactly num bytes, throwing EOFException if the stream ends first */
+    public void skipFully(int num) throws IOException {
+        while (num > 0) {
+            int skipped = skipBytes(num);
+            if (skipped <= 0) {
+                // skipBytes() returns 0 at end of stream, so check with a real read
+                readByteLE();
+                skipped = 1;
+            }
+            num -= skipped;
+        }
+    }
+
     /** skip ahead in the stream
      * @param num number of bytes to read ahead
      */
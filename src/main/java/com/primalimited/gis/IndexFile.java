@@ -39,7 +39,7 @@ public class IndexFile {
 
     private IntBuffer read(InputStream inputStream, int recordNumber) throws IOException {
         int nBytesToSkip = ShapefileConstants.N_HEADER_BYTES + (ShapefileConstants.RECORD_HEADER_LENGTH * (recordNumber-1));
-        inputStream.readNBytes(nBytesToSkip);
+        inputStream.skipNBytes(nBytesToSkip);
         byte[] bytes = inputStream.readNBytes(ShapefileConstants.RECORD_HEADER_LENGTH);
         ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
         byteBuffer.order(ByteOrder.BIG_ENDIAN);
@@ -0,0 +1,99 @@
+package com.primalimited.gis;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Placeholder for one shapefile record that holds only the record index, the record's offset in the
+ * main file and its bounding box. The JTS geometry is decoded from the memory-mapped main file the
+ * first time {@link #getGeometry()} is called, and cached after that.
+ */
+public class LazyGeometry {
+    private final Shapefile shapefile;
+    private final GeometryFactory geometryFactory;
+    private final int recordIndex;
+    private final long offset;
+    private final int contentLength;
+    private final Envelope envelope;
+    private volatile Geometry geometry;
+
+    LazyGeometry(Shapefile shapefile, GeometryFactory geometryFactory, int recordIndex, long offset, int contentLength, Envelope envelope) {
+        this.shapefile = shapefile;
+        this.geometryFactory = geometryFactory;
+        this.recordIndex = recordIndex;
+        this.offset = offset;
+        this.contentLength = contentLength;
+        this.envelope = envelope;
+    }
+
+    /**
+     * @return record index (0-based), the same value decoded geometries carry as user data.
+     */
+    public int getRecordIndex() {
+        return recordIndex;
+    }
+
+    /**
+     * @return byte offset of the record (including its 8-byte record header) in the main file.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the bounding box stored in the record header, without decoding the geometry.
+     * A null envelope for null shapes.
+     */
+    public Envelope getEnvelope() {
+        return new Envelope(envelope);
+    }
+
+    /**
+     * @return true if the geometry has already been decoded.
+     */
+    public boolean isDecoded() {
+        return geometry != null;
+    }
+
+    /**
+     * Decodes the record on first call; later calls return the same geometry.
+     * A record that cannot be decoded is reported to the shapefile's record error listener and returned
+     * as an empty geometry collection (also when the policy is SKIP, as there is nothing to leave out).
+     *
+     * @return the geometry, with the record index set as its user data.
+     * @throws UncheckedIOException if the record cannot be decoded and the policy is FAIL_FAST.
+     */
+    public Geometry getGeometry() {
+        Geometry result = geometry;
+        if (result == null) {
+            synchronized (this) {
+                result = geometry;
+                if (result == null) {
+                    try {
+                        result = shapefile.decodeRecord(recordIndex, offset, contentLength, geometryFactory);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (result == null)
+                        result = geometryFactory.createGeometryCollection(null);
+                    geometry = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyGeometry{" +
+                "recordIndex=" + recordIndex +
+                ", offset=" + offset +
+                ", envelope=" + envelope +
+                ", decoded=" + isDecoded() +
+                '}';
+    }
+}
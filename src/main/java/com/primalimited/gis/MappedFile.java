@@ -0,0 +1,107 @@
+package com.primalimited.gis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped into memory as consecutive segments, since one MappedByteBuffer cannot
+ * be larger than 2GB. A file that fits in one segment is decoded exactly as a single mapping.
+ */
+final class MappedFile {
+    static final int SEGMENT_BYTES = 1 << 30;
+
+    private final ByteBuffer[] segments;
+    private final int segmentBytes;
+    private final long size;
+
+    private MappedFile(ByteBuffer[] segments, int segmentBytes, long size) {
+        this.segments = segments;
+        this.segmentBytes = segmentBytes;
+        this.size = size;
+    }
+
+    static MappedFile map(FileChannel channel) throws IOException {
+        return map(channel, SEGMENT_BYTES);
+    }
+
+    static MappedFile map(FileChannel channel, int segmentBytes) throws IOException {
+        if (segmentBytes <= 0)
+            throw new IllegalArgumentException("segmentBytes must be positive: " + segmentBytes);
+        long size = channel.size();
+        ByteBuffer[] segments = new ByteBuffer[(int) Math.max(1, (size + segmentBytes - 1) / segmentBytes)];
+        for (int segment = 0; segment < segments.length; segment++) {
+            long start = (long) segment * segmentBytes;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, size - start));
+        }
+        return new MappedFile(segments, segmentBytes, size);
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * The bytes [offset, offset + length), big-endian. A view of the mapping, unless the range
+     * crosses from one segment into the next, when the bytes are copied.
+     */
+    ByteBuffer slice(long offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > size)
+            throw new IndexOutOfBoundsException("bytes [" + offset + ", " + (offset + length) + ") of " + size);
+        int segment = (int) (offset / segmentBytes);
+        int position = (int) (offset % segmentBytes);
+        if (position + length <= segments[segment].capacity())
+            return segments[segment].slice(position, length);
+
+        byte[] bytes = new byte[length];
+        for (int copied = 0; copied < length; segment++, position = 0) {
+            int nBytes = Math.min(length - copied, segments[segment].capacity() - position);
+            segments[segment].get(position, bytes, copied, nBytes);
+            copied += nBytes;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * A stream over the whole file, from the start.
+     */
+    EndianDataInputStream newInputStream() {
+        if (segments.length == 1)
+            return new ByteBufferEndianDataInputStream(segments[0].duplicate().rewind());
+        return new EndianDataInputStream(new SegmentInputStream());
+    }
+
+    /*
+     * Reads the segments one after the other.
+     */
+    private final class SegmentInputStream extends InputStream {
+        private int segment;
+        private ByteBuffer current = segments[0].duplicate().rewind();
+
+        private boolean advance() {
+            while (!current.hasRemaining()) {
+                if (segment + 1 >= segments.length)
+                    return false;
+                current = segments[++segment].duplicate().rewind();
+            }
+            return true;
+        }
+
+        @Override
+        public int read() {
+            return advance() ? current.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0)
+                return 0;
+            if (!advance())
+                return -1;
+            int nBytes = Math.min(length, current.remaining());
+            current.get(bytes, offset, nBytes);
+            return nBytes;
+        }
+    }
+}
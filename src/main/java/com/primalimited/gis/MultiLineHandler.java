@@ -4,6 +4,7 @@ import com.mapbox.geojson.Feature;
 import org.locationtech.jts.geom.*;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 class MultiLineHandler implements ShapeHandler {
@@ -32,119 +33,13 @@ class MultiLineHandler implements ShapeHandler {
 
     @Override
     public void stream(EndianDataInputStream file, GeometryFactory geometryFactory, int recordIndex, int contentLength, Consumer<Geometry> consumer) throws IOException, InvalidShapefileException {
-        double junk;
-        int actualReadWords = 0; //actual number of words read (word = 16bits)
-
-        //file.setLittleEndianMode(true);
-
-        int shapeType = file.readIntLE();
-        actualReadWords += 2;
-
-        if (shapeType ==0) {
-            consumer.accept(geometryFactory.createMultiLineString(null)); //null shape
-        }
-
-        if (shapeType != myShapeType) {
-            throw new InvalidShapefileException("MultilineHandler.read()  - file says its type "+shapeType+" but i'm expecting type "+myShapeType);
-        }
-
-        //read bounding box (not needed)
-        junk = file.readDoubleLE();
-        junk =file.readDoubleLE();
-        junk =file.readDoubleLE();
-        junk =file.readDoubleLE();
-        actualReadWords += 4*4;
-
-        int numParts = file.readIntLE();
-        int numPoints = file.readIntLE();//total number of points
-        actualReadWords += 4;
-
-        int[] partOffsets = new int[numParts];
-
-        for ( int i = 0; i < numParts; i++ ){
-            partOffsets[i]=file.readIntLE();
-            actualReadWords += 2;
-        }
-
-        LineString lines[] = new LineString[numParts];
-        Coordinate[] coords = new Coordinate[numPoints];
-
-        for (int t =0;t<numPoints; t++) {
-            coords[t] = PrecisionModelLatLong.INSTANCE.createCoordinate(file.readDoubleLE(),file.readDoubleLE());
-            actualReadWords += 8;
-        }
-
-        if (myShapeType ==13) {
-            junk =file.readDoubleLE();  //z min, max
-            junk =file.readDoubleLE();
-            actualReadWords += 8;
-
-            for (int t =0;t<numPoints; t++) {
-                coords[t].setZ(PrecisionModelLatLong.INSTANCE.makePrecise(file.readDoubleLE())); //z value
-                actualReadWords += 4;
-            }
-        }
-
-        if (myShapeType >=13) {
-            //  int fullLength =  22 + 2*numParts + (numPoints * 8) + 4+4+4*numPoints+ 4+4+4*numPoints;
-            int fullLength;
-            if (myShapeType == 13) {
-                //polylineZ (with M)
-                fullLength =  22 + 2*numParts + (numPoints * 8) + 4+4+4*numPoints+ 4+4+4*numPoints;
-            } else {
-                //	polylineM (with M)
-                fullLength =  22 + 2*numParts + (numPoints * 8) + 4+4+4*numPoints;
-            }
-
-            if (contentLength >= fullLength) //are ms actually there?
-            {
-                junk =file.readDoubleLE();  //m min, max
-                junk =file.readDoubleLE();
-                actualReadWords += 8;
-
-                for (int t =0;t<numPoints; t++)
-                {
-                    junk =file.readDoubleLE(); //m value
-                    actualReadWords += 4;
-                }
-            }
-        }
-
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength) {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
-
-        int offset = 0;
-        int start,finish,length;
-        for(int part=0;part<numParts;part++){
-            start = partOffsets[part];
-            if(part == numParts-1)
-            {
-                finish = numPoints;
-            }
-            else {
-                finish=partOffsets[part+1];
-            }
-            length = finish-start;
-            Coordinate points[] = new Coordinate[length];
-            for(int i=0;i<length;i++){
-                points[i]=coords[offset];
-                offset++;
-            }
-            lines[part] = geometryFactory.createLineString(points);
-        }
-
-        Geometry geometry = numParts == 1 ?
-                lines[0] : geometryFactory.createMultiLineString(lines);
+        Geometry geometry = read(file, geometryFactory, contentLength);
         geometry.setUserData(recordIndex);
         consumer.accept(geometry);
     }
 
     @Override
     public Geometry read(EndianDataInputStream file , GeometryFactory geometryFactory, int contentLength) throws IOException,InvalidShapefileException {
-        double junk;
         int actualReadWords = 0; //actual number of words read (word = 16bits)
 
         //file.setLittleEndianMode(true);
@@ -161,10 +56,7 @@ class MultiLineHandler implements ShapeHandler {
         }
 
         //read bounding box (not needed)
-        junk = file.readDoubleLE();
-        junk =file.readDoubleLE();
-        junk =file.readDoubleLE();
-        junk =file.readDoubleLE();
+        file.skipFully(4*8);
         actualReadWords += 4*4;
 
 
@@ -172,30 +64,33 @@ class MultiLineHandler implements ShapeHandler {
         int numPoints = file.readIntLE();//total number of points
         actualReadWords += 4;
 
-        int[] partOffsets = new int[numParts];
+        if (numParts < 0 || numPoints < 0 || 2L*numParts + 8L*numPoints > contentLength - actualReadWords)
+            throw new InvalidShapefileException("MultilineHandler.read() - "+numParts+" parts and "+numPoints+" points do not fit in a record of "+contentLength+" words");
 
-        for ( int i = 0; i < numParts; i++ ){
-            partOffsets[i]=file.readIntLE();
-            actualReadWords += 2;
-        }
+        int[] partOffsets = new int[numParts];
+        file.readIntsLE(partOffsets, 0, numParts);
+        actualReadWords += 2*numParts;
 
         LineString lines[] = new LineString[numParts];
-        Coordinate[] coords = new Coordinate[numPoints];
 
-        for (int t =0;t<numPoints; t++) {
-            coords[t] = PrecisionModelLatLong.INSTANCE.createCoordinate(file.readDoubleLE(),file.readDoubleLE());
-            actualReadWords += 8;
-        }
+        // x,y pairs for all points, read in bulk
+        double[] xy = new double[2*numPoints];
+        file.readDoublesLE(xy, 0, xy.length);
+        actualReadWords += 8*numPoints;
 
+        for (int t = 0; t < xy.length; t++)
+            xy[t] = PrecisionModelLatLong.INSTANCE.makePrecise(xy[t]);
+
+        double[] z = null;
         if (myShapeType ==13) {
-            junk =file.readDoubleLE();  //z min, max
-            junk =file.readDoubleLE();
+            file.skipFully(2*8);  //z min, max
             actualReadWords += 8;
 
-            for (int t =0;t<numPoints; t++) {
-                coords[t].setZ(PrecisionModelLatLong.INSTANCE.makePrecise(file.readDoubleLE())); //z value
-                actualReadWords += 4;
-            }
+            z = new double[numPoints];
+            file.readDoublesLE(z, 0, numPoints);
+            actualReadWords += 4*numPoints;
+            for (int t =0;t<numPoints; t++)
+                z[t] = PrecisionModelLatLong.INSTANCE.makePrecise(z[t]); //z value
         }
 
         if (myShapeType >=13) {
@@ -211,26 +106,17 @@ class MultiLineHandler implements ShapeHandler {
 
             if (contentLength >= fullLength) //are ms actually there?
             {
-                junk =file.readDoubleLE();  //m min, max
-                junk =file.readDoubleLE();
-                actualReadWords += 8;
-
-                for (int t =0;t<numPoints; t++)
-                {
-                    junk =file.readDoubleLE(); //m value
-                    actualReadWords += 4;
-                }
+                file.skipFully(8*(2+numPoints)); //m min, max and m values
+                actualReadWords += 8 + 4*numPoints;
             }
         }
 
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
+        //skip anything we haven't read
+        if (actualReadWords < contentLength)
+            file.skipFully(2 * (contentLength - actualReadWords));
 
 
+        CoordinateSequenceFactory sequenceFactory = geometryFactory.getCoordinateSequenceFactory();
         int offset = 0;
         int start,finish,length;
         for(int part=0;part<numParts;part++){
@@ -243,13 +129,9 @@ class MultiLineHandler implements ShapeHandler {
                 finish=partOffsets[part+1];
             }
             length = finish-start;
-            Coordinate points[] = new Coordinate[length];
-            for(int i=0;i<length;i++){
-                points[i]=coords[offset];
-                offset++;
-            }
-            lines[part] = geometryFactory.createLineString(points);
-
+            lines[part] = geometryFactory.createLineString(
+                    ShapeCoordinateSequences.create(sequenceFactory, xy, z, offset, offset + length));
+            offset += length;
         }
         if (numParts ==1)
             return lines[0];
@@ -267,12 +149,14 @@ class MultiLineHandler implements ShapeHandler {
 
     @Override
     public int getLength(Geometry geometry){
-        MultiLineString multi = (MultiLineString) geometry;
+        if (ShapeRecordContent.isNull(geometry))
+            return 2;
 
         int numlines, numpoints;
 
-        numlines = multi.getNumGeometries();
-        numpoints = multi.getNumPoints();
+        // a LineString is one part, a MultiLineString one per line
+        numlines = geometry.getNumGeometries();
+        numpoints = geometry.getNumPoints();
 
         if (myShapeType == 3)
         {
@@ -292,6 +176,17 @@ class MultiLineHandler implements ShapeHandler {
         //return (44+(4*((GeometryCollection)geometry).getNumGeometries()));
     }
 
+    @Override
+    public void write(Geometry geometry, ByteBuffer buffer) {
+        if (ShapeRecordContent.isNull(geometry)) {
+            buffer.putInt(Shapefile.NULL);
+            return;
+        }
+        CoordinateSequence[] parts = new CoordinateSequence[geometry.getNumGeometries()];
+        for (int part = 0; part < parts.length; part++)
+            parts[part] = ((LineString) geometry.getGeometryN(part)).getCoordinateSequence();
+        ShapeRecordContent.put(buffer, myShapeType, geometry.getEnvelopeInternal(), parts, null, geometry.getNumPoints(), true);
+    }
 
     double[] zMinMax(Geometry g)
     {
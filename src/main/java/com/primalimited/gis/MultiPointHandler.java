@@ -4,6 +4,7 @@ import com.mapbox.geojson.Feature;
 import org.locationtech.jts.geom.*;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 class MultiPointHandler implements ShapeHandler {
@@ -32,86 +33,7 @@ class MultiPointHandler implements ShapeHandler {
 
     @Override
     public void stream(EndianDataInputStream file, GeometryFactory geometryFactory, int recordIndex, int contentLength, Consumer<Geometry> consumer) throws IOException, InvalidShapefileException {
-        int actualReadWords = 0; //actual number of words read (word = 16bits)
-
-        int shapeType = file.readIntLE();
-        actualReadWords += 2;
-
-        if (shapeType == 0)
-            consumer.accept(geometryFactory.createMultiPointFromCoords(null));
-        if (shapeType != myShapeType) {
-            throw new InvalidShapefileException("Multipointhandler.read() - expected type code "+myShapeType+" but got "+shapeType);
-        }
-        //read bbox
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-
-        actualReadWords += 4*4;
-
-        int numpoints = file.readIntLE();
-        actualReadWords += 2;
-
-        Coordinate[] coords = new Coordinate[numpoints];
-        for (int t=0;t<numpoints;t++)
-        {
-
-            double x = file.readDoubleLE();
-            double y = file.readDoubleLE();
-            actualReadWords += 8;
-            coords[t] = new Coordinate(x,y);
-        }
-        if (myShapeType == 18)
-        {
-            file.readDoubleLE(); //z min/max
-            file.readDoubleLE();
-            actualReadWords += 8;
-            for (int t=0;t<numpoints;t++)
-            {
-                double z =  file.readDoubleLE();//z
-                actualReadWords += 4;
-                coords[t].setZ(z);
-            }
-        }
-
-
-        if (myShapeType >= 18)
-        {
-            // int fullLength = numpoints * 8 + 20 +8 +4*numpoints + 8 +4*numpoints;
-            int fullLength;
-            if (myShapeType == 18)
-            {
-                //multipoint Z (with m)
-                fullLength = 20 + (numpoints * 8)  +8 +4*numpoints + 8 +4*numpoints;
-            }
-            else
-            {
-                //multipoint M (with M)
-                fullLength = 20 + (numpoints * 8)  +8 +4*numpoints;
-            }
-
-            if (contentLength >= fullLength)  //is the M portion actually there?
-            {
-                file.readDoubleLE(); //m min/max
-                file.readDoubleLE();
-                actualReadWords += 8;
-                for (int t=0;t<numpoints;t++)
-                {
-                    file.readDoubleLE();//m
-                    actualReadWords += 4;
-                }
-            }
-        }
-
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
-
-        Geometry geometry = geometryFactory.createMultiPointFromCoords(coords);
+        Geometry geometry = read(file, geometryFactory, contentLength);
         geometry.setUserData(recordIndex);
         consumer.accept(geometry);
     }
@@ -129,37 +51,29 @@ class MultiPointHandler implements ShapeHandler {
         {
             throw new InvalidShapefileException("Multipointhandler.read() - expected type code "+myShapeType+" but got "+shapeType);
         }
-        //read bbox
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-
+        //bbox (not needed)
+        file.skipFully(4*8);
         actualReadWords += 4*4;
 
         int numpoints = file.readIntLE();
         actualReadWords += 2;
 
-        Coordinate[] coords = new Coordinate[numpoints];
-        for (int t=0;t<numpoints;t++)
-        {
+        if (numpoints < 0 || 8L*numpoints > contentLength - actualReadWords)
+            throw new InvalidShapefileException("Multipointhandler.read() - "+numpoints+" points do not fit in a record of "+contentLength+" words");
 
-            double x = file.readDoubleLE();
-            double y = file.readDoubleLE();
-            actualReadWords += 8;
-            coords[t] = new Coordinate(x,y);
-        }
+        // x,y pairs for all points, read in bulk
+        double[] xy = new double[2*numpoints];
+        file.readDoublesLE(xy, 0, xy.length);
+        actualReadWords += 8*numpoints;
+
+        double[] z = null;
         if (myShapeType == 18)
         {
-            file.readDoubleLE(); //z min/max
-            file.readDoubleLE();
+            file.skipFully(2*8); //z min/max
             actualReadWords += 8;
-            for (int t=0;t<numpoints;t++)
-            {
-                double z =  file.readDoubleLE();//z
-                actualReadWords += 4;
-                coords[t].setZ(z);
-            }
+            z = new double[numpoints];
+            file.readDoublesLE(z, 0, numpoints);
+            actualReadWords += 4*numpoints;
         }
 
 
@@ -180,25 +94,17 @@ class MultiPointHandler implements ShapeHandler {
 
             if (contentLength >= fullLength)  //is the M portion actually there?
             {
-                file.readDoubleLE(); //m min/max
-                file.readDoubleLE();
-                actualReadWords += 8;
-                for (int t=0;t<numpoints;t++)
-                {
-                    file.readDoubleLE();//m
-                    actualReadWords += 4;
-                }
+                file.skipFully(8*(2+numpoints)); //m min/max and m values
+                actualReadWords += 8 + 4*numpoints;
             }
         }
 
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
+        //skip anything we haven't read
+        if (actualReadWords < contentLength)
+            file.skipFully(2 * (contentLength - actualReadWords));
 
-        return geometryFactory.createMultiPointFromCoords(coords);
+        return geometryFactory.createMultiPoint(
+                ShapeCoordinateSequences.create(geometryFactory.getCoordinateSequenceFactory(), xy, z, 0, numpoints));
     }
 
     double[] zMinMax(Geometry g)
@@ -257,13 +163,29 @@ class MultiPointHandler implements ShapeHandler {
      **/
     @Override
     public int getLength(Geometry geometry) {
-        MultiPoint mp = (MultiPoint) geometry;
+        if (ShapeRecordContent.isNull(geometry))
+            return 2;
+
+        int numpoints = geometry.getNumPoints();
 
         if (myShapeType == 8)
-            return mp.getNumGeometries() * 8 + 20;
+            return numpoints * 8 + 20;
         if (myShapeType == 28)
-            return mp.getNumGeometries() * 8 + 20 +8 +4*mp.getNumGeometries();
+            return numpoints * 8 + 20 +8 +4*numpoints;
 
-        return mp.getNumGeometries() * 8 + 20 +8 +4*mp.getNumGeometries() + 8 +4*mp.getNumGeometries() ;
+        return numpoints * 8 + 20 +8 +4*numpoints + 8 +4*numpoints ;
+    }
+
+    @Override
+    public void write(Geometry geometry, ByteBuffer buffer) {
+        if (ShapeRecordContent.isNull(geometry)) {
+            buffer.putInt(Shapefile.NULL);
+            return;
+        }
+        // each point is written as a part of one point, with no part index
+        CoordinateSequence[] points = new CoordinateSequence[geometry.getNumGeometries()];
+        for (int point = 0; point < points.length; point++)
+            points[point] = ((Point) geometry.getGeometryN(point)).getCoordinateSequence();
+        ShapeRecordContent.put(buffer, myShapeType, geometry.getEnvelopeInternal(), points, null, points.length, false);
     }
 }
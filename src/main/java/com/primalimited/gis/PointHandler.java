@@ -1,11 +1,13 @@
 package com.primalimited.gis;
 
 import com.mapbox.geojson.Feature;
-import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 class PointHandler implements ShapeHandler {
@@ -32,39 +34,7 @@ class PointHandler implements ShapeHandler {
 
     @Override
     public void stream(EndianDataInputStream file, GeometryFactory geometryFactory, int recordIndex, int contentLength, Consumer<Geometry> consumer) throws IOException, InvalidShapefileException {
-        //  file.setLittleEndianMode(true);
-        int actualReadWords = 0; //actual number of words read (word = 16bits)
-
-        int shapeType = file.readIntLE();
-        actualReadWords += 2;
-
-        if (shapeType != myShapeType)
-            throw new InvalidShapefileException("pointhandler.read() - handler's shapetype doesn't match file's");
-
-        double x = file.readDoubleLE();
-        double y = file.readDoubleLE();
-        double m , z = Double.NaN;
-        actualReadWords += 8;
-
-        if ( shapeType ==11 )
-        {
-            z= file.readDoubleLE();
-            actualReadWords += 4;
-        }
-        if ( shapeType >=11 )
-        {
-            m = file.readDoubleLE();
-            actualReadWords += 4;
-        }
-
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
-
-        Geometry geometry = geometryFactory.createPoint(new Coordinate(x,y,z));
+        Geometry geometry = read(file, geometryFactory, contentLength);
         geometry.setUserData(recordIndex);
         consumer.accept(geometry);
     }
@@ -77,33 +47,38 @@ class PointHandler implements ShapeHandler {
         int shapeType = file.readIntLE();
         actualReadWords += 2;
 
+        if (shapeType == 0)
+        {
+            if (actualReadWords < contentLength)
+                file.skipFully(2 * (contentLength - actualReadWords));
+            return geometryFactory.createPoint(); //null shape
+        }
+
         if (shapeType != myShapeType)
             throw new InvalidShapefileException("pointhandler.read() - handler's shapetype doesn't match file's");
 
-        double x = file.readDoubleLE();
-        double y = file.readDoubleLE();
-        double m , z = Double.NaN;
+        double[] xy = new double[2];
+        file.readDoublesLE(xy, 0, 2);
+        double[] z = null;
         actualReadWords += 8;
 
         if ( shapeType ==11 )
         {
-            z= file.readDoubleLE();
+            z = new double[] { file.readDoubleLE() };
             actualReadWords += 4;
         }
         if ( shapeType >=11 )
         {
-            m = file.readDoubleLE();
+            file.skipFully(8); //m
             actualReadWords += 4;
         }
 
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk2 = file.readShortBE();
-            actualReadWords += 1;
-        }
+        //skip anything we haven't read
+        if (actualReadWords < contentLength)
+            file.skipFully(2 * (contentLength - actualReadWords));
 
-        return geometryFactory.createPoint(new Coordinate(x,y,z));
+        return geometryFactory.createPoint(
+                ShapeCoordinateSequences.create(geometryFactory.getCoordinateSequenceFactory(), xy, z, 0, 1));
     }
 
     /**
@@ -121,6 +96,8 @@ class PointHandler implements ShapeHandler {
      **/
     @Override
     public int getLength(Geometry geometry) {
+        if (ShapeRecordContent.isNull(geometry))
+            return 2;
         if (myShapeType == Shapefile.POINT)
             return 10;
         if (myShapeType == Shapefile.POINTM)
@@ -128,4 +105,18 @@ class PointHandler implements ShapeHandler {
 
         return 18;
     }
+
+    @Override
+    public void write(Geometry geometry, ByteBuffer buffer) {
+        if (ShapeRecordContent.isNull(geometry)) {
+            buffer.putInt(Shapefile.NULL);
+            return;
+        }
+        CoordinateSequence sequence = ((Point) geometry).getCoordinateSequence();
+        buffer.putInt(myShapeType).putDouble(sequence.getX(0)).putDouble(sequence.getY(0));
+        if (myShapeType == Shapefile.POINTZ)
+            buffer.putDouble(ShapeRecordContent.z(sequence, 0));
+        if (myShapeType != Shapefile.POINT)
+            buffer.putDouble(ShapeRecordContent.m(sequence, 0));
+    }
 }
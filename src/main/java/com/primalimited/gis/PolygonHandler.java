@@ -7,6 +7,7 @@ import org.locationtech.jts.geom.*;
 
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.function.Consumer;
 
@@ -56,156 +57,21 @@ class PolygonHandler implements ShapeHandler {
 
     @Override
     public void stream(EndianDataInputStream file, GeometryFactory geometryFactory, int recordIndex, int contentLength, Consumer<Geometry> consumer) throws IOException, InvalidShapefileException {
-        int actualReadWords = 0; //actual number of words read (word = 16bits)
-
-        // file.setLittleEndianMode(true);
-        int shapeType = file.readIntLE();
-        actualReadWords += 2;
-
-        if (shapeType ==0)
-        {
-            consumer.accept(geometryFactory.createMultiPolygon(null)); //null shape
-        }
-
-        if ( shapeType != myShapeType ) {
-            throw new InvalidShapefileException
-                    ("PolygonHandler.read() - got shape type "+shapeType+" but was expecting "+myShapeType);
-        }
-
-        //bounds
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-
-        actualReadWords += 4*4;
-
-
-        int partOffsets[];
-
-        int numParts = file.readIntLE();
-        int numPoints = file.readIntLE();
-        actualReadWords += 4;
-
-        partOffsets = new int[numParts];
-
-        for(int i = 0;i<numParts;i++){
-            partOffsets[i]=file.readIntLE();
-            actualReadWords += 2;
-        }
-
-        //LinearRing[] rings = new LinearRing[numParts];
-        ArrayList<LinearRing> shells = new ArrayList<LinearRing>();
-        ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
-        Coordinate[] coords = new Coordinate[numPoints];
-
-        for(int t=0;t<numPoints;t++)
-        {
-            coords[t]= new Coordinate(file.readDoubleLE(),file.readDoubleLE());
-            actualReadWords += 8;
-        }
-
-        if (myShapeType == 15)
-        {
-            //z
-            file.readDoubleLE();  //zmin
-            file.readDoubleLE();  //zmax
-            actualReadWords += 8;
-            for(int t=0;t<numPoints;t++)
-            {
-                coords[t].setZ(file.readDoubleLE());
-                actualReadWords += 4;
-            }
-        }
-
-        if (myShapeType >= 15)
-        {
-            //  int fullLength = 22 + (2*numParts) + (8*numPoints) + 8 + (4*numPoints)+ 8 + (4*numPoints);
-            int fullLength;
-            if (myShapeType == 15)
-            {
-                //polyZ (with M)
-                fullLength = 22 + (2*numParts) + (8*numPoints) + 8 + (4*numPoints)+ 8 + (4*numPoints);
-            }
-            else
-            {
-                //polyM (with M)
-                fullLength = 22 + (2*numParts) + (8*numPoints) + 8+ (4*numPoints) ;
-            }
-            if (contentLength >= fullLength)
-            {
-                file.readDoubleLE();  //mmin
-                file.readDoubleLE();  //mmax
-                actualReadWords += 8;
-                for(int t=0;t<numPoints;t++)
-                {
-                    file.readDoubleLE();
-                    actualReadWords += 4;
-                }
-            }
-        }
-
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk = file.readShortBE();
-            actualReadWords += 1;
-        }
-
-
-        int offset = 0;
-        int start,finish,length;
-        for(int part=0;part<numParts;part++){
-            start = partOffsets[part];
-            if(part == numParts-1){finish = numPoints;}
-            else {
-                finish=partOffsets[part+1];
-            }
-            length = finish-start;
-            Coordinate points[] = new Coordinate[length];
-            for(int i=0;i<length;i++){
-                points[i]=coords[offset];
-                offset++;
-            }
-            LinearRing ring = geometryFactory.createLinearRing(points);
-            /**
-             * Allow reading a 3-point ring, and treat it as a shell.
-             */
-            if(points.length >= 4 && Orientation.isCCW(points)){
-                holes.add(ring);
-            }
-            else{
-                shells.add(ring);
-            }
-        }
-
-        ArrayList<ArrayList<LinearRing>> holesForShells = assignHolesToShells(shells, holes);
-
-        Polygon[] polygons = new Polygon[shells.size()];
-        for (int i = 0; i < shells.size(); i++) {
-            polygons[i] = geometryFactory.createPolygon((LinearRing) shells.get(i),
-                    (LinearRing[]) ((ArrayList<LinearRing>) holesForShells.get(i))
-                            .toArray(new LinearRing[0]));
-        }
-
-        if (polygons.length == 1) {
-            consumer.accept(polygons[0]);
-        }
-
-        holesForShells = null;
-        shells = null;
-        holes = null;
-        // its a multi part
-
-        Geometry result = geometryFactory.createMultiPolygon(polygons);
-        // if (!(result.isValid() ))
-        // System.out.println("geom isn't valid");
-        consumer.accept(result);
+        Geometry geometry = read(file, geometryFactory, contentLength);
+        geometry.setUserData(recordIndex);
+        consumer.accept(geometry);
     }
 
     @Override
     public Geometry read( EndianDataInputStream file , GeometryFactory geometryFactory, int contentLength)
             throws IOException, InvalidShapefileException
+    {
+        return read(file, geometryFactory, contentLength, null);
+    }
+
+    @Override
+    public Geometry read(EndianDataInputStream file, GeometryFactory geometryFactory, int contentLength, Consumer<String> warnings)
+            throws IOException, InvalidShapefileException
     {
         int actualReadWords = 0; //actual number of words read (word = 16bits)
 
@@ -223,12 +89,8 @@ class PolygonHandler implements ShapeHandler {
                     ("PolygonHandler.read() - got shape type "+shapeType+" but was expecting "+myShapeType);
         }
 
-        //bounds
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-        file.readDoubleLE();
-
+        //bounds (not needed)
+        file.skipFully(4*8);
         actualReadWords += 4*4;
 
 
@@ -238,35 +100,32 @@ class PolygonHandler implements ShapeHandler {
         int numPoints = file.readIntLE();
         actualReadWords += 4;
 
-        partOffsets = new int[numParts];
+        if (numParts < 0 || numPoints < 0 || 2L*numParts + 8L*numPoints > contentLength - actualReadWords)
+            throw new InvalidShapefileException
+                    ("PolygonHandler.read() - "+numParts+" parts and "+numPoints+" points do not fit in a record of "+contentLength+" words");
 
-        for(int i = 0;i<numParts;i++){
-            partOffsets[i]=file.readIntLE();
-            actualReadWords += 2;
-        }
+        partOffsets = new int[numParts];
+        file.readIntsLE(partOffsets, 0, numParts);
+        actualReadWords += 2*numParts;
 
         //LinearRing[] rings = new LinearRing[numParts];
         ArrayList<LinearRing> shells = new ArrayList<LinearRing>();
         ArrayList<LinearRing> holes = new ArrayList<LinearRing>();
-        Coordinate[] coords = new Coordinate[numPoints];
 
-        for(int t=0;t<numPoints;t++)
-        {
-            coords[t]= new Coordinate(file.readDoubleLE(),file.readDoubleLE());
-            actualReadWords += 8;
-        }
+        // x,y pairs for all points, read in bulk
+        double[] xy = new double[2*numPoints];
+        file.readDoublesLE(xy, 0, xy.length);
+        actualReadWords += 8*numPoints;
 
+        double[] z = null;
         if (myShapeType == 15)
         {
             //z
-            file.readDoubleLE();  //zmin
-            file.readDoubleLE();  //zmax
+            file.skipFully(2*8);  //zmin, zmax
             actualReadWords += 8;
-            for(int t=0;t<numPoints;t++)
-            {
-                coords[t].setZ(file.readDoubleLE());
-                actualReadWords += 4;
-            }
+            z = new double[numPoints];
+            file.readDoublesLE(z, 0, numPoints);
+            actualReadWords += 4*numPoints;
         }
 
         if (myShapeType >= 15)
@@ -285,26 +144,18 @@ class PolygonHandler implements ShapeHandler {
             }
             if (contentLength >= fullLength)
             {
-                file.readDoubleLE();  //mmin
-                file.readDoubleLE();  //mmax
-                actualReadWords += 8;
-                for(int t=0;t<numPoints;t++)
-                {
-                    file.readDoubleLE();
-                    actualReadWords += 4;
-                }
+                file.skipFully(8*(2+numPoints));  //mmin, mmax and m values
+                actualReadWords += 8 + 4*numPoints;
             }
         }
 
 
-        //verify that we have read everything we need
-        while (actualReadWords < contentLength)
-        {
-            int junk = file.readShortBE();
-            actualReadWords += 1;
-        }
+        //skip anything we haven't read
+        if (actualReadWords < contentLength)
+            file.skipFully(2 * (contentLength - actualReadWords));
 
 
+        CoordinateSequenceFactory sequenceFactory = geometryFactory.getCoordinateSequenceFactory();
         int offset = 0;
         int start,finish,length;
         for(int part=0;part<numParts;part++){
@@ -314,16 +165,13 @@ class PolygonHandler implements ShapeHandler {
                 finish=partOffsets[part+1];
             }
             length = finish-start;
-            Coordinate points[] = new Coordinate[length];
-            for(int i=0;i<length;i++){
-                points[i]=coords[offset];
-                offset++;
-            }
+            CoordinateSequence points = ShapeCoordinateSequences.create(sequenceFactory, xy, z, offset, offset + length);
+            offset += length;
             LinearRing ring = geometryFactory.createLinearRing(points);
             /**
              * Allow reading a 3-point ring, and treat it as a shell.
              */
-            if(points.length >= 4 && Orientation.isCCW(points)){
+            if(points.size() >= 4 && Orientation.isCCW(points)){
                 holes.add(ring);
             }
             else{
@@ -331,7 +179,7 @@ class PolygonHandler implements ShapeHandler {
             }
         }
 
-        ArrayList<ArrayList<LinearRing>> holesForShells = assignHolesToShells(shells, holes);
+        ArrayList<ArrayList<LinearRing>> holesForShells = assignHolesToShells(shells, holes, warnings);
 
         Polygon[] polygons = new Polygon[shells.size()];
         for (int i = 0; i < shells.size(); i++) {
@@ -355,7 +203,7 @@ class PolygonHandler implements ShapeHandler {
         return result;
     }
 
-    private ArrayList<ArrayList<LinearRing>> assignHolesToShells(ArrayList<LinearRing> shells, ArrayList<LinearRing> holes)
+    private ArrayList<ArrayList<LinearRing>> assignHolesToShells(ArrayList<LinearRing> shells, ArrayList<LinearRing> holes, Consumer<String> warnings)
     {
         // now we have a list of all shells and all holes
         ArrayList<ArrayList<LinearRing>> holesForShells = new ArrayList<ArrayList<LinearRing>>(shells.size());
@@ -396,7 +244,8 @@ class PolygonHandler implements ShapeHandler {
             }
 
             if (minShell == null) {
-                System.err.println("Found polygon with a hole not inside a shell");
+                if (warnings != null)
+                    warnings.accept("hole " + i + " is not inside a shell; it was left out");
             }
             else {
                 // ((ArrayList)holesForShells.get(shells.indexOf(minShell))).add(testRing);
@@ -432,6 +281,8 @@ class PolygonHandler implements ShapeHandler {
 
     @Override
     public int getLength(Geometry geometry) {
+        if (ShapeRecordContent.isNull(geometry))
+            return 2;
 
         int nrings=0;
 
@@ -457,6 +308,37 @@ class PolygonHandler implements ShapeHandler {
         return 22+(2*nrings)+8*npoints;
     }
 
+    /**
+     * Rings are written shell first, then its holes, for each polygon. Shells are written clockwise
+     * and holes counter-clockwise, as read() tells them apart, reversing rings where needed.
+     */
+    @Override
+    public void write(Geometry geometry, ByteBuffer buffer) {
+        if (ShapeRecordContent.isNull(geometry)) {
+            buffer.putInt(Shapefile.NULL);
+            return;
+        }
+        int nrings = 0;
+        for (int t = 0; t < geometry.getNumGeometries(); t++)
+            nrings += 1 + ((Polygon) geometry.getGeometryN(t)).getNumInteriorRing();
+
+        CoordinateSequence[] rings = new CoordinateSequence[nrings];
+        boolean[] reversed = new boolean[nrings];
+        int ring = 0;
+        for (int t = 0; t < geometry.getNumGeometries(); t++) {
+            Polygon p = (Polygon) geometry.getGeometryN(t);
+            for (int r = -1; r < p.getNumInteriorRing(); r++) {
+                LinearRing linearRing = r < 0 ? p.getExteriorRing() : p.getInteriorRingN(r);
+                CoordinateSequence points = linearRing.getCoordinateSequence();
+                boolean isHole = r >= 0;
+                rings[ring] = points;
+                reversed[ring] = points.size() >= 4 && Orientation.isCCW(points) != isHole;
+                ring++;
+            }
+        }
+        ShapeRecordContent.put(buffer, myShapeType, geometry.getEnvelopeInternal(), rings, reversed, geometry.getNumPoints(), true);
+    }
+
 
     double[] zMinMax(Geometry g)
     {
@@ -0,0 +1,23 @@
+package com.primalimited.gis;
+
+/**
+ * Told about each shapefile record that cannot be decoded.
+ */
+@FunctionalInterface
+public interface RecordErrorListener {
+    /**
+     * @param recordIndex record index (0-based), the same value decoded geometries carry as user data.
+     * @param cause why the record could not be decoded.
+     */
+    void recordFailed(int recordIndex, Exception cause);
+
+    /**
+     * Told about a record that was decoded, but not exactly as stored: for example a polygon hole
+     * that is not inside any shell, which is left out. The record is passed on as decoded.
+     *
+     * @param recordIndex record index (0-based).
+     * @param message what was changed.
+     */
+    default void recordWarning(int recordIndex, String message) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.primalimited.gis;
+
+/**
+ * What a shapefile read does with a record that cannot be decoded.
+ * Failures are reported to the {@link RecordErrorListener} first, whatever the policy.
+ */
+public enum RecordErrorPolicy {
+    /** leave the record out of the result */
+    SKIP,
+    /** put an empty geometry collection in place of the record (the default) */
+    EMPTY,
+    /** stop reading, throwing an IOException with the failure as its cause */
+    FAIL_FAST
+}
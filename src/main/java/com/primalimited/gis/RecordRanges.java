@@ -0,0 +1,83 @@
+package com.primalimited.gis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits records [0, nRecords) into consecutive ranges of (at most) a fixed number of records,
+ * and decodes the ranges in parallel on a ForkJoinPool.
+ */
+final class RecordRanges {
+    /**
+     * Decodes the records [from, to) of one range.
+     */
+    @FunctionalInterface
+    interface RangeDecoder {
+        void decode(int range, int from, int to) throws IOException;
+    }
+
+    private RecordRanges() {
+    }
+
+    static int rangeCount(int nRecords, int recordsPerRange) {
+        return nRecords <= 0 ? 0 : (int) (((long) nRecords + recordsPerRange - 1) / recordsPerRange);
+    }
+
+    /**
+     * Decode every range, each on one thread; returns when all are done.
+     *
+     * @throws IOException the first IOException thrown by the decoder.
+     */
+    static void decodeParallel(ForkJoinPool pool, int nRecords, int recordsPerRange, RangeDecoder decoder) throws IOException {
+        if (recordsPerRange <= 0)
+            throw new IllegalArgumentException("recordsPerRange must be positive: " + recordsPerRange);
+        int nRanges = rangeCount(nRecords, recordsPerRange);
+        if (nRanges == 0)
+            return;
+        try {
+            pool.invoke(new RangeTask(decoder, nRecords, recordsPerRange, 0, nRanges));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Decodes ranges [fromRange, toRange), splitting them in half until there is one.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private final RangeDecoder decoder;
+        private final int nRecords;
+        private final int recordsPerRange;
+        private final int fromRange;
+        private final int toRange;
+
+        RangeTask(RangeDecoder decoder, int nRecords, int recordsPerRange, int fromRange, int toRange) {
+            this.decoder = decoder;
+            this.nRecords = nRecords;
+            this.recordsPerRange = recordsPerRange;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRange - fromRange > 1) {
+                int middle = (fromRange + toRange) >>> 1;
+                invokeAll(
+                        new RangeTask(decoder, nRecords, recordsPerRange, fromRange, middle),
+                        new RangeTask(decoder, nRecords, recordsPerRange, middle, toRange)
+                );
+                return;
+            }
+            int from = fromRange * recordsPerRange;
+            int to = (int) Math.min(nRecords, (long) from + recordsPerRange);
+            try {
+                decoder.decode(fromRange, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
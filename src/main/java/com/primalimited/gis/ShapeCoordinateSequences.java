@@ -0,0 +1,61 @@
+package com.primalimited.gis;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Builds coordinate sequences for the shape handlers straight from the x,y (and z) values read from
+ * the file, using the geometry factory's CoordinateSequenceFactory. A GeometryFactory created with a
+ * PackedCoordinateSequenceFactory gets packed sequences with no per-vertex Coordinate objects.
+ */
+final class ShapeCoordinateSequences {
+
+    private ShapeCoordinateSequences() {
+    }
+
+    /**
+     * Create a sequence for points [from, to).
+     *
+     * @param factory the geometry factory's coordinate sequence factory.
+     * @param xy interleaved x,y values for all points in the record.
+     * @param z z values for all points in the record, or null if the record has no z values.
+     * @param from index of the first point (inclusive).
+     * @param to index of the last point (exclusive).
+     * @return new coordinate sequence; packed sequences have dimension 3 only if there are z values,
+     * other sequences always have dimension 3 (z is NaN when absent), like the Coordinates the handlers used to build.
+     */
+    static CoordinateSequence create(CoordinateSequenceFactory factory, double[] xy, double[] z, int from, int to) {
+        int nPoints = xy.length / 2;
+        Objects.checkFromToIndex(from, to, nPoints);
+        int size = to - from;
+
+        if (factory instanceof PackedCoordinateSequenceFactory packedFactory) {
+            if (z == null) {
+                // whole record as one part: use the values as read, without copying
+                double[] packed = (from == 0 && to == nPoints) ? xy : Arrays.copyOfRange(xy, 2*from, 2*to);
+                return packedFactory.create(packed, 2);
+            }
+            double[] packed = new double[3*size];
+            for (int i = 0; i < size; i++) {
+                packed[3*i] = xy[2*(from+i)];
+                packed[3*i+1] = xy[2*(from+i)+1];
+                packed[3*i+2] = z[from+i];
+            }
+            return packedFactory.create(packed, 3);
+        }
+
+        CoordinateSequence sequence = factory.create(size, 3);
+        boolean hasZ = z != null && sequence.hasZ();
+        for (int i = 0; i < size; i++) {
+            sequence.setOrdinate(i, CoordinateSequence.X, xy[2*(from+i)]);
+            sequence.setOrdinate(i, CoordinateSequence.Y, xy[2*(from+i)+1]);
+            if (hasZ)
+                sequence.setOrdinate(i, CoordinateSequence.Z, z[from+i]);
+        }
+        return sequence;
+    }
+}
@@ -4,13 +4,35 @@ import com.mapbox.geojson.Feature;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 interface ShapeHandler {
     int getShapeType();
     Geometry read(EndianDataInputStream file,GeometryFactory geometryFactory,int contentLength) throws java.io.IOException,InvalidShapefileException;
+
+    /**
+     * Read one record, telling a warning consumer about anything in the record that is decoded
+     * other than as stored.
+     *
+     * @param warnings takes one message per warning; null to ignore them.
+     */
+    default Geometry read(EndianDataInputStream file, GeometryFactory geometryFactory, int contentLength, Consumer<String> warnings)
+            throws java.io.IOException, InvalidShapefileException {
+        return read(file, geometryFactory, contentLength);
+    }
     int getLength(Geometry geometry); //length in 16bit words
 
+    /**
+     * Encode the content of one record: shape type, bounding box, parts and points, as the record
+     * is laid out in the main file. A null or empty geometry is written as a null shape.
+     *
+     * @param geometry the geometry, of a type this handler writes.
+     * @param buffer little-endian buffer with at least 2 * getLength(geometry) bytes remaining;
+     *               its position is advanced by that many bytes.
+     */
+    void write(Geometry geometry, ByteBuffer buffer);
+
     /**
      * Stream the data out of the file, using a geometry consumer to consume the data.
      *
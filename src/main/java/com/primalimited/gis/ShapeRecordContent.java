@@ -0,0 +1,130 @@
+package com.primalimited.gis;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes record content for the shape handlers' write methods: shape type, bounding box, parts,
+ * x,y values, then the Z and M ranges and values, little-endian, as the shapefile specification lays
+ * them out. Coordinates are read through their CoordinateSequence, so packed sequences are written
+ * without building Coordinate objects.
+ */
+final class ShapeRecordContent {
+    /** M value written for "no data": the specification treats any value below -1e38 so. */
+    static final double NO_DATA = -1e39;
+
+    private ShapeRecordContent() {
+    }
+
+    /**
+     * @return true if the geometry is written as a null shape (shape type 0, two words long).
+     */
+    static boolean isNull(Geometry geometry) {
+        return geometry == null || geometry.isEmpty();
+    }
+
+    static boolean hasZ(int shapeType) {
+        return shapeType == Shapefile.POINTZ || shapeType == Shapefile.ARCZ
+                || shapeType == Shapefile.POLYGONZ || shapeType == Shapefile.MULTIPOINTZ;
+    }
+
+    /**
+     * Z types carry M values as well.
+     */
+    static boolean hasM(int shapeType) {
+        return hasZ(shapeType) || shapeType == Shapefile.POINTM || shapeType == Shapefile.ARCM
+                || shapeType == Shapefile.POLYGONM || shapeType == Shapefile.MULTIPOINTM;
+    }
+
+    /**
+     * Z of a point; NaN (no Z in the geometry) is written as 0.
+     */
+    static double z(CoordinateSequence sequence, int index) {
+        double z = sequence.hasZ() ? sequence.getZ(index) : Double.NaN;
+        return Double.isNaN(z) ? 0 : z;
+    }
+
+    /**
+     * M of a point; NaN (no M in the geometry) is written as {@link #NO_DATA}.
+     */
+    static double m(CoordinateSequence sequence, int index) {
+        double m = sequence.hasM() ? sequence.getM(index) : Double.NaN;
+        return Double.isNaN(m) ? NO_DATA : m;
+    }
+
+    /**
+     * Write a multi-point, polyline or polygon record.
+     *
+     * @param buffer little-endian buffer, written from its position.
+     * @param shapeType shape type of the record.
+     * @param envelope bounding box of the geometry.
+     * @param parts coordinates of each part; each point of a multi-point is a part of one point.
+     * @param reversed parts to write last point first, or null.
+     * @param nPoints total number of points in the parts.
+     * @param hasPartIndex true for polylines and polygons: the number of parts and the index of the
+     *                     first point of each part are written before the points.
+     */
+    static void put(ByteBuffer buffer, int shapeType, Envelope envelope, CoordinateSequence[] parts,
+                    boolean[] reversed, int nPoints, boolean hasPartIndex) {
+        buffer.putInt(shapeType);
+        buffer.putDouble(envelope.getMinX()).putDouble(envelope.getMinY())
+                .putDouble(envelope.getMaxX()).putDouble(envelope.getMaxY());
+        if (hasPartIndex)
+            buffer.putInt(parts.length);
+        buffer.putInt(nPoints);
+        if (hasPartIndex) {
+            int first = 0;
+            for (CoordinateSequence part : parts) {
+                buffer.putInt(first);
+                first += part.size();
+            }
+        }
+
+        for (int part = 0; part < parts.length; part++) {
+            CoordinateSequence sequence = parts[part];
+            int size = sequence.size();
+            boolean isReversed = reversed != null && reversed[part];
+            for (int point = 0; point < size; point++) {
+                int index = isReversed ? size - 1 - point : point;
+                buffer.putDouble(sequence.getX(index)).putDouble(sequence.getY(index));
+            }
+        }
+        if (hasZ(shapeType))
+            putOrdinates(buffer, parts, reversed, true);
+        if (hasM(shapeType))
+            putOrdinates(buffer, parts, reversed, false);
+    }
+
+    /*
+     * The range, then the values, of Z or M; an M range with no values is written as no data.
+     */
+    private static void putOrdinates(ByteBuffer buffer, CoordinateSequence[] parts, boolean[] reversed, boolean isZ) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (CoordinateSequence sequence : parts) {
+            for (int index = 0; index < sequence.size(); index++) {
+                double value = isZ ? z(sequence, index) : m(sequence, index);
+                if (isZ || value != NO_DATA) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+        if (min > max)
+            min = max = isZ ? 0 : NO_DATA;
+        buffer.putDouble(min).putDouble(max);
+
+        for (int part = 0; part < parts.length; part++) {
+            CoordinateSequence sequence = parts[part];
+            int size = sequence.size();
+            boolean isReversed = reversed != null && reversed[part];
+            for (int point = 0; point < size; point++) {
+                int index = isReversed ? size - 1 - point : point;
+                buffer.putDouble(isZ ? z(sequence, index) : m(sequence, index));
+            }
+        }
+    }
+}
@@ -27,10 +27,25 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Read support for ESRI shapefiles.
@@ -61,7 +76,11 @@ public class Shapefile {
 
     private URL baseURL;
     private InputStream myInputStream;
-    private GeometryFactory geomFactory;
+    private Path mainFilePath;
+    private MappedFile mappedMainFile;
+    private RecordErrorPolicy recordErrorPolicy = RecordErrorPolicy.EMPTY;
+    private RecordErrorListener recordErrorListener;
+    private boolean resyncOnCorruptRecords;
 
     /**
      * Creates and initialises a shapefile from a url
@@ -72,7 +91,8 @@ public class Shapefile {
         myInputStream= null;
         try {
             URLConnection uc = baseURL.openConnection();
-            myInputStream = new BufferedInputStream(uc.getInputStream());
+            // EndianDataInputStream does its own buffering
+            myInputStream = uc.getInputStream();
         }
         catch (Exception e)
         {
@@ -83,8 +103,92 @@ public class Shapefile {
         myInputStream = IS;
     }
 
+    private Shapefile(Path mainFilePath, MappedFile mappedMainFile) {
+        this.mainFilePath = mainFilePath;
+        this.mappedMainFile = mappedMainFile;
+    }
+
+    /**
+     * Opens a shapefile by memory-mapping the main (.shp) file. Records are decoded straight from
+     * the mapped bytes, and the shapefile may be read more than once. Main files over 2GB are
+     * mapped in several segments, up to the limit {@link ShapefileWriter} writes to.
+     *
+     * @param mainFilePath path to the .shp file.
+     * @return new instance of Shapefile backed by the mapped file.
+     * @throws IOException if the file could not be mapped.
+     */
+    public static Shapefile open(Path mainFilePath) throws IOException {
+        return open(mainFilePath, MappedFile.SEGMENT_BYTES);
+    }
+
+    static Shapefile open(Path mainFilePath, int segmentBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(mainFilePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > ShapefileConstants.MAX_MAIN_FILE_BYTES)
+                throw new IOException("Shapefile too large (" + size + " bytes, the limit is "
+                        + ShapefileConstants.MAX_MAIN_FILE_BYTES + "): " + mainFilePath);
+            return new Shapefile(mainFilePath, MappedFile.map(channel, segmentBytes));
+        }
+    }
+
+    /**
+     * Set what reads do with records that cannot be decoded. The default is {@link RecordErrorPolicy#EMPTY}.
+     *
+     * @param recordErrorPolicy the policy.
+     */
+    public void setRecordErrorPolicy(RecordErrorPolicy recordErrorPolicy) {
+        this.recordErrorPolicy = Objects.requireNonNull(recordErrorPolicy, "recordErrorPolicy");
+    }
+
+    /**
+     * Set a listener that is told about every record that cannot be decoded, before the error policy
+     * is applied, and about records decoded other than as stored. Parallel reads may call it from
+     * several threads at once.
+     *
+     * @param recordErrorListener the listener, or null for none.
+     */
+    public void setRecordErrorListener(RecordErrorListener recordErrorListener) {
+        this.recordErrorListener = recordErrorListener;
+    }
+
+    /**
+     * When enabled, sequential reads check each record header before reading the record. If the header
+     * does not look right (unexpected record number, impossible length, or a different shape type),
+     * for example after a truncated record, the read scans forward to the next plausible record header
+     * and reports the records in between as failed, instead of decoding from the wrong position.
+     * Disabled by default.
+     *
+     * @param resyncOnCorruptRecords true to resynchronize on corrupt record headers.
+     */
+    public void setResyncOnCorruptRecords(boolean resyncOnCorruptRecords) {
+        this.resyncOnCorruptRecords = resyncOnCorruptRecords;
+    }
+
+    private Path getSiblingPath(String extension) {
+        return siblingPath(mainFilePath, extension);
+    }
+
+    /**
+     * Path of a file that shares the main file's base name, e.g. the .shx or .dbf file.
+     */
+    static Path siblingPath(Path mainFilePath, String extension) {
+        String fileName = mainFilePath.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot < 0 ? fileName : fileName.substring(0, dot);
+        String suffix = dot < 0 ? "" : fileName.substring(dot + 1);
+        // follow the case of the main file's extension (e.g. .SHP -> .SHX)
+        if (!suffix.isEmpty() && suffix.equals(suffix.toUpperCase()))
+            extension = extension.toUpperCase();
+        return mainFilePath.resolveSibling(baseName + "." + extension);
+    }
+
     private EndianDataInputStream getInputStream() throws IOException
     {
+        if (mappedMainFile != null)
+        {
+            // each read gets its own view, starting at the beginning of the file
+            return mappedMainFile.newInputStream();
+        }
         if (myInputStream == null)
         {
             throw new IOException("Could not make a connection to the URL: " + baseURL);
@@ -93,74 +197,677 @@ public class Shapefile {
         return sfile;
     }
 
-    public void streamFeatures(Consumer<Feature> consumer) throws Exception {
-        EndianDataInputStream file = getInputStream();
-        if(file==null) throw new IOException("Failed connection or no content for "+baseURL);
-        ShapefileHeader mainHeader = new ShapefileHeader(file);
-        if(mainHeader.getVersion() < VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") older that supported ("+VERSION+"), attempting to read anyway");}
-        if(mainHeader.getVersion() > VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") newer that supported ("+VERSION+"), attempting to read anyway");}
+    /**
+     * Reads a single record, using the offset from the index (.shx) file and one positional read
+     * of exactly that record from the main file. Requires a shapefile opened with {@link #open(Path)},
+     * with the .shx file next to the .shp file.
+     *
+     * @param recordIndex record index (0-based).
+     * @return the geometry, with the record index set as its user data.
+     * @throws Exception if the record could not be read.
+     */
+    public Geometry readRecord(int recordIndex) throws Exception {
+        return readRecord(recordIndex, new GeometryFactory());
+    }
 
-        int type=mainHeader.getShapeType();
-        ShapeHandler handler = getShapeHandler(type);
-        if (handler==null)
-            throw new ShapeTypeNotSupportedException("Unsupported shape type:"+type);
+    /**
+     * Reads a single record, using the offset from the index (.shx) file and one positional read
+     * of exactly that record from the main file. Requires a shapefile opened with {@link #open(Path)},
+     * with the .shx file next to the .shp file.
+     *
+     * @param recordIndex record index (0-based).
+     * @param geometryFactory the geometry factory.
+     * @return the geometry, with the record index set as its user data. If the record cannot be decoded,
+     * whatever the record error policy says: an empty geometry collection, or null for SKIP.
+     * @throws Exception if the record could not be read.
+     */
+    public Geometry readRecord(int recordIndex, GeometryFactory geometryFactory) throws Exception {
+        if (mappedMainFile == null)
+            throw new IllegalStateException("readRecord requires a shapefile opened with Shapefile.open(Path)");
 
-        // Read until end of file (EOFException will be thrown)
+        ShxIndex index = getIndex();
+        return decodeRecord(recordIndex, index.offset(recordIndex), index.length(recordIndex), geometryFactory);
+    }
+
+    /**
+     * Reads the entire geometry collection, decoding ranges of records in parallel on the common
+     * ForkJoinPool. See {@link #readParallel(GeometryFactory, ForkJoinPool)}.
+     *
+     * @param geometryFactory the geometry factory.
+     * @return geometry collection, in record order.
+     * @throws Exception if the shapefile could not be read.
+     */
+    public GeometryCollection readParallel(GeometryFactory geometryFactory) throws Exception {
+        return readParallel(geometryFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads the entire geometry collection, splitting the main file into record ranges using the
+     * index (.shx) offsets and decoding the ranges in parallel. Record order and the record index
+     * user data are the same as for {@link #read(GeometryFactory)}. Requires a shapefile opened with
+     * {@link #open(Path)}, with the .shx file next to the .shp file.
+     *
+     * @param geometryFactory the geometry factory (must be safe to share between threads, as the JTS factories are).
+     * @param pool the pool to decode on.
+     * @return geometry collection, in record order.
+     * @throws Exception if the shapefile could not be read.
+     */
+    public GeometryCollection readParallel(GeometryFactory geometryFactory, ForkJoinPool pool) throws Exception {
+        if (mappedMainFile == null)
+            throw new IllegalStateException("readParallel requires a shapefile opened with Shapefile.open(Path)");
+
+        ShxIndex index = getIndex();
+        // create the handler before forking
+        getRecordHandler();
+
+        Geometry[] geometries = new Geometry[index.recordCount()];
         try {
-            while (true)
-                streamFeature(file, handler, consumer);
-        } catch(EOFException e) {
+            pool.invoke(new DecodeRangeTask(index, geometryFactory, geometries, 0, geometries.length));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (recordErrorPolicy == RecordErrorPolicy.SKIP)
+            geometries = Arrays.stream(geometries).filter(Objects::nonNull).toArray(Geometry[]::new);
+        return geometryFactory.createGeometryCollection(geometries);
+    }
+
+    /**
+     * Decodes records [from, to) into their slots of the result array, splitting the range in half
+     * until it is small enough to decode on one thread.
+     */
+    private class DecodeRangeTask extends RecursiveAction {
+        private static final int RECORDS_PER_TASK = 32;
+
+        private final ShxIndex index;
+        private final GeometryFactory geometryFactory;
+        private final Geometry[] geometries;
+        private final int from;
+        private final int to;
+
+        DecodeRangeTask(ShxIndex index, GeometryFactory geometryFactory, Geometry[] geometries, int from, int to) {
+            this.index = index;
+            this.geometryFactory = geometryFactory;
+            this.geometries = geometries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RECORDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new DecodeRangeTask(index, geometryFactory, geometries, from, middle),
+                        new DecodeRangeTask(index, geometryFactory, geometries, middle, to)
+                );
+                return;
+            }
+            for (int recordIndex = from; recordIndex < to; recordIndex++) {
+                try {
+                    geometries[recordIndex] = decodeRecord(recordIndex, index.offset(recordIndex), index.length(recordIndex), geometryFactory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream of the shapefile's geometries, see {@link #geometries(GeometryFactory)}.
+     *
+     * @return sequential stream of geometries, in record order.
+     * @throws Exception if the shapefile header or index could not be read.
+     */
+    public Stream<Geometry> geometries() throws Exception {
+        return geometries(new GeometryFactory());
+    }
+
+    /**
+     * Stream of the shapefile's geometries, decoded lazily as the stream is consumed. The stream is
+     * sized from the index (.shx) record count and splits evenly, so .parallel(), limit() and
+     * findFirst() only decode the records they need. Requires a shapefile opened with {@link #open(Path)},
+     * with the .shx file next to the .shp file.
+     *
+     * @param geometryFactory the geometry factory (must be safe to share between threads for parallel streams).
+     * @return sequential stream of geometries, in record order, with the record index as user data.
+     * @throws Exception if the shapefile header or index could not be read.
+     */
+    public Stream<Geometry> geometries(GeometryFactory geometryFactory) throws Exception {
+        if (mappedMainFile == null)
+            throw new IllegalStateException("geometries requires a shapefile opened with Shapefile.open(Path)");
+
+        ShxIndex index = getIndex();
+        // create the handler before the stream can be split across threads
+        getRecordHandler();
+        return StreamSupport.stream(new RecordSpliterator(index, geometryFactory, 0, index.recordCount()), false);
+    }
+
+    /**
+     * Spliterator over records [from, to), decoding one record per advance.
+     */
+    private class RecordSpliterator implements Spliterator<Geometry> {
+        private final ShxIndex index;
+        private final GeometryFactory geometryFactory;
+        private int from;
+        private final int to;
+
+        RecordSpliterator(ShxIndex index, GeometryFactory geometryFactory, int from, int to) {
+            this.index = index;
+            this.geometryFactory = geometryFactory;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Geometry> action) {
+            while (from < to) {
+                Geometry geometry = decode(from++);
+                if (geometry != null) {
+                    action.accept(geometry);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Geometry> action) {
+            while (from < to) {
+                Geometry geometry = decode(from++);
+                if (geometry != null)
+                    action.accept(geometry);
+            }
+        }
+
+        private Geometry decode(int recordIndex) {
+            try {
+                return decodeRecord(recordIndex, index.offset(recordIndex), index.length(recordIndex), geometryFactory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Spliterator<Geometry> trySplit() {
+            int middle = (from + to) >>> 1;
+            if (middle <= from)
+                return null;
+            Spliterator<Geometry> prefix = new RecordSpliterator(index, geometryFactory, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            // skipped records make the size an upper bound
+            if (recordErrorPolicy == RecordErrorPolicy.SKIP)
+                return ORDERED | NONNULL | IMMUTABLE;
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Lazy geometries for all records, see {@link #readLazy(GeometryFactory)}.
+     *
+     * @return one lazy geometry per record, in record order.
+     * @throws Exception if the shapefile index could not be read.
+     */
+    public List<LazyGeometry> readLazy() throws Exception {
+        return readLazy(new GeometryFactory());
+    }
+
+    /**
+     * Placeholders for all records, built from the index (.shx) offsets and the bounding box at the
+     * start of each record, without decoding any geometry. Each record is decoded the first time its
+     * {@link LazyGeometry#getGeometry()} is called. Requires a shapefile opened with {@link #open(Path)},
+     * with the .shx file next to the .shp file.
+     *
+     * @param geometryFactory the geometry factory used when a record is decoded.
+     * @return one lazy geometry per record, in record order.
+     * @throws Exception if the shapefile index could not be read.
+     */
+    public List<LazyGeometry> readLazy(GeometryFactory geometryFactory) throws Exception {
+        if (mappedMainFile == null)
+            throw new IllegalStateException("readLazy requires a shapefile opened with Shapefile.open(Path)");
+
+        ShxIndex index = getIndex();
+        // create the handler up front, so the first decode does not have to
+        getRecordHandler();
+
+        int nRecords = index.recordCount();
+        List<LazyGeometry> list = new ArrayList<>(nRecords);
+        for (int recordIndex = 0; recordIndex < nRecords; recordIndex++) {
+            long offset = index.offset(recordIndex);
+            int contentLengthBytes = index.length(recordIndex);
+            list.add(new LazyGeometry(this, geometryFactory, recordIndex, offset, contentLengthBytes,
+                    readRecordBounds(offset, contentLengthBytes)));
+        }
+        return list;
+    }
+
+    /**
+     * Bounding box of the record at a byte offset of the mapped main file, read from the shape type
+     * and bounds (or point x,y) at the start of the record content. Null envelope for null shapes
+     * and records that are too short or outside the file.
+     */
+    private Envelope readRecordBounds(long offset, int contentLengthBytes) {
+        long contentStart = offset + ShapefileConstants.RECORD_HEADER_LENGTH;
+        if (offset < ShapefileConstants.N_HEADER_BYTES || contentLengthBytes < 4
+                || contentStart + contentLengthBytes > mappedMainFile.size())
+            return new Envelope();
+
+        ByteBuffer content = mappedMainFile.slice(contentStart, Math.min(contentLengthBytes, RECORD_BOUNDS_PREFIX_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        int position = 0;
+        int shapeType = content.getInt(position);
+        if (isPointType(shapeType) && contentLengthBytes >= 4 + 2*8) {
+            double x = content.getDouble(position + 4);
+            double y = content.getDouble(position + 4 + 8);
+            return new Envelope(x, x, y, y);
+        }
+        if (shapeType == NULL || contentLengthBytes < RECORD_BOUNDS_PREFIX_BYTES)
+            return new Envelope();
+
+        double xMin = content.getDouble(position + 4);
+        double yMin = content.getDouble(position + 4 + 8);
+        double xMax = content.getDouble(position + 4 + 2*8);
+        double yMax = content.getDouble(position + 4 + 3*8);
+        return new Envelope(xMin, xMax, yMin, yMax);
+    }
+
+    private ShxIndex shxIndex;
+
+    /**
+     * The index (.shx) file, parsed once on first use. Requires a shapefile opened with {@link #open(Path)},
+     * with the .shx file next to the .shp file.
+     *
+     * @return the parsed index.
+     * @throws IOException if the index file could not be read.
+     */
+    public synchronized ShxIndex getIndex() throws IOException {
+        if (shxIndex == null) {
+            if (mainFilePath == null)
+                throw new IllegalStateException("the index requires a shapefile opened with Shapefile.open(Path)");
+            shxIndex = ShxIndex.open(getSiblingPath(ShapefileConstants.SHAPEFILE_INDEX_EXTENSION));
         }
+        return shxIndex;
     }
 
-    private void streamFeature(EndianDataInputStream file, ShapeHandler handler, Consumer<Feature> consumer) throws IOException {
+    /**
+     * Decode the record at a byte offset of the mapped main file, applying the record error policy
+     * if it cannot be decoded.
+     *
+     * @return the geometry, or null if the record failed and the policy is SKIP.
+     * @throws IOException if the record failed and the policy is FAIL_FAST.
+     */
+    Geometry decodeRecord(int recordIndex, long offset, int contentLengthBytes, GeometryFactory geometryFactory) throws IOException {
+        try {
+            return decodeRecordAt(recordIndex, offset, contentLengthBytes, geometryFactory);
+        } catch (Exception e) {
+            return recordFailed(recordIndex, e, geometryFactory);
+        }
+    }
+
+    /**
+     * Decode the record at a byte offset of the mapped main file, reading only that record's bytes.
+     */
+    private Geometry decodeRecordAt(int recordIndex, long offset, int contentLengthBytes, GeometryFactory geometryFactory) throws Exception {
+        long recordEnd = offset + ShapefileConstants.RECORD_HEADER_LENGTH + contentLengthBytes;
+        if (offset < ShapefileConstants.N_HEADER_BYTES || contentLengthBytes < 0 || recordEnd > mappedMainFile.size())
+            throw new InvalidShapefileException("Record at offset " + offset + " with length " + contentLengthBytes + " is outside the main file");
+
+        EndianDataInputStream file = new ByteBufferEndianDataInputStream(mappedMainFile.slice(offset, (int) (recordEnd - offset)));
+
         int recordNumber = file.readIntBE();
         int contentLength = file.readIntBE();
-        try{
-            handler.streamFeature(file, recordNumber-1, contentLength, consumer);
-        }catch(IllegalArgumentException r2d2){
-            consumer.accept(Feature.fromGeometry(null));
-        }catch(Exception c3p0){
-            consumer.accept(Feature.fromGeometry(null));
+        Geometry body = getRecordHandler().read(file, geometryFactory, contentLength, warnings(recordIndex));
+        body.setUserData(Integer.valueOf(recordNumber - 1));
+        return body;
+    }
+
+    /*
+     * Passes the handler's warnings about a record on to the listener; null if there is none.
+     */
+    private Consumer<String> warnings(int recordIndex) {
+        RecordErrorListener listener = recordErrorListener;
+        return listener == null ? null : message -> listener.recordWarning(recordIndex, message);
+    }
+
+    /**
+     * Report a record that could not be decoded to the listener, then apply the error policy.
+     *
+     * @return the geometry to use in place of the record, or null to leave it out.
+     * @throws IOException if the policy is FAIL_FAST.
+     */
+    private Geometry recordFailed(int recordIndex, Exception cause, GeometryFactory geometryFactory) throws IOException {
+        RecordErrorListener listener = recordErrorListener;
+        if (listener != null)
+            listener.recordFailed(recordIndex, cause);
+
+        switch (recordErrorPolicy) {
+            case SKIP:
+                return null;
+            case FAIL_FAST:
+                throw new IOException("Record " + recordIndex + " could not be decoded", cause);
+            default:
+                return geometryFactory.createGeometryCollection(null);
         }
     }
 
-    public void stream(GeometryFactory geometryFactory, Consumer<Geometry> consumer) throws Exception {
+    private ShapeHandler recordHandler;
+
+    /**
+     * Shape handler for random access reads, created from the main file header on first use.
+     */
+    private synchronized ShapeHandler getRecordHandler() throws Exception {
+        if (recordHandler == null)
+            recordHandler = handlerFor(new ShapefileHeader(getInputStream()));
+        return recordHandler;
+    }
+
+    /*
+     * Start a sequential read of the main file: read its header and find the handler for its shape
+     * type. The stream is left at the first record.
+     */
+    private RecordReader openRecordReader(GeometryFactory geometryFactory, Envelope filter) throws Exception {
         EndianDataInputStream file = getInputStream();
-        if(file==null) throw new IOException("Failed connection or no content for "+baseURL);
         ShapefileHeader mainHeader = new ShapefileHeader(file);
-        if(mainHeader.getVersion() < VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") older that supported ("+VERSION+"), attempting to read anyway");}
-        if(mainHeader.getVersion() > VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") newer that supported ("+VERSION+"), attempting to read anyway");}
+        return new RecordReader(file, mainHeader, handlerFor(mainHeader), geometryFactory, filter);
+    }
 
-        int type=mainHeader.getShapeType();
+    /*
+     * Handler for the header's shape type. Files of a version other than VERSION are read anyway.
+     */
+    private static ShapeHandler handlerFor(ShapefileHeader mainHeader) throws Exception {
+        int type = mainHeader.getShapeType();
         ShapeHandler handler = getShapeHandler(type);
-        if (handler==null)
+        if (handler == null)
             throw new ShapeTypeNotSupportedException("Unsupported shape type:"+type);
+        return handler;
+    }
 
+    /**
+     * Stream the records as features. Records that cannot be decoded are handled by the record error
+     * policy and reported to the listener, as for geometries: with EMPTY they are passed on as
+     * features with no geometry.
+     *
+     * @param consumer feature consumer.
+     * @throws Exception if the shapefile could not be read, or a record failed and the policy is FAIL_FAST.
+     */
+    public void streamFeatures(Consumer<Feature> consumer) throws Exception {
         // Read until end of file (EOFException will be thrown)
+        RecordReader recordReader = openRecordReader(new GeometryFactory(), null);
         try {
             while (true)
-                streamRecord(file, handler, geometryFactory, consumer);
+                recordReader.readFeature(consumer);
         } catch(EOFException e) {
         }
     }
 
-    private void streamRecord(EndianDataInputStream file, ShapeHandler handler, GeometryFactory geometryFactory, Consumer<Geometry> consumer) throws IOException {
-        int recordNumber = file.readIntBE();
-        int contentLength = file.readIntBE();
-        try{
-            handler.stream(file, geometryFactory, recordNumber-1, contentLength, consumer);
-            // System.out.println("Done record: " + recordNumber);
-        }catch(IllegalArgumentException r2d2){
-            geomFactory = new GeometryFactory(null, -1);
-            //System.out.println("Record " +recordNumber+ " has is NULL Shape");
-            consumer.accept(geomFactory.createGeometryCollection(null));
-        }catch(Exception c3p0){
-            geomFactory = new GeometryFactory(null, -1);
-            System.out.println("Error processing record (a):" +recordNumber);
-            System.out.println(c3p0.getMessage());
-            c3p0.printStackTrace();
-            consumer.accept(geomFactory.createGeometryCollection(null));
+    public void stream(GeometryFactory geometryFactory, Consumer<Geometry> consumer) throws Exception {
+        // Read until end of file (EOFException will be thrown)
+        RecordReader recordReader = openRecordReader(geometryFactory, null);
+        try {
+            while (true)
+                recordReader.readRecord(consumer);
+        } catch(EOFException e) {
+        }
+    }
+
+    /**
+     * Stream only the geometries whose record bounding box intersects the filter. The bounding box
+     * stored in each record is tested before anything else is decoded, and records outside the filter
+     * are skipped by jumping to the next record header. Null shapes never match.
+     *
+     * @param filter the envelope to test record bounding boxes against.
+     * @param geometryFactory the geometry factory.
+     * @param consumer geometry consumer, called with the record index as user data.
+     * @throws Exception if the shapefile could not be read.
+     */
+    public void stream(Envelope filter, GeometryFactory geometryFactory, Consumer<Geometry> consumer) throws Exception {
+        // Read until end of file (EOFException will be thrown)
+        RecordReader recordReader = openRecordReader(geometryFactory, filter);
+        try {
+            while (true)
+                recordReader.readRecord(consumer);
+        } catch(EOFException e) {
+        }
+    }
+
+    private static boolean isPointType(int shapeType) {
+        return shapeType == POINT || shapeType == POINTZ || shapeType == POINTM;
+    }
+
+    // shape type (4 bytes) + bounding box (4 doubles)
+    private static final int RECORD_BOUNDS_PREFIX_BYTES = 4 + 4*8;
+
+    // a resync only accepts a record header numbered at most this far past the expected record
+    private static final int MAX_RECORDS_LOST_ON_RESYNC = 1024;
+
+    private static final int UNKNOWN_RECORD_NUMBER = Integer.MIN_VALUE;
+
+    /**
+     * Decodes the content of one record read by a RecordReader.
+     */
+    private interface ContentDecoder<T> {
+        T decode(EndianDataInputStream content, int recordIndex, int contentLength) throws Exception;
+    }
+
+    /**
+     * Reads records one after another from a sequential view of the main file, applying the
+     * record error policy to records that cannot be decoded.
+     */
+    private class RecordReader {
+        private final EndianDataInputStream file;
+        private final ShapeHandler handler;
+        private final GeometryFactory geometryFactory;
+        private final Envelope filter;
+        // main file length in bytes from the header, or Long.MAX_VALUE if the header's is not usable
+        private final long fileLength;
+        // bytes of the main file read so far
+        private long position = ShapefileConstants.N_HEADER_BYTES;
+        private int nextRecordNumber = UNKNOWN_RECORD_NUMBER;
+        private int peekedRecordNumber;
+
+        RecordReader(EndianDataInputStream file, ShapefileHeader mainHeader, ShapeHandler handler, GeometryFactory geometryFactory, Envelope filter) {
+            this.file = file;
+            this.handler = handler;
+            this.geometryFactory = geometryFactory;
+            this.filter = filter;
+            long headerFileLength = 2L * mainHeader.getFileLength();
+            this.fileLength = headerFileLength > ShapefileConstants.N_HEADER_BYTES ? headerFileLength : Long.MAX_VALUE;
+        }
+
+        /**
+         * Read the next record, passing its geometry to the consumer. Records that fail are passed
+         * on as the error policy says, which may be nothing at all; so are records lost while
+         * resynchronizing. Records outside the filter envelope are skipped.
+         *
+         * @throws EOFException at the end of the file.
+         * @throws IOException if the file could not be read, or a record failed and the policy is FAIL_FAST.
+         */
+        void readRecord(Consumer<? super Geometry> consumer) throws IOException {
+            readRecord(consumer, consumer, (content, recordIndex, contentLength) -> {
+                Geometry geometry = handler.read(content, geometryFactory, contentLength, warnings(recordIndex));
+                geometry.setUserData(Integer.valueOf(recordIndex));
+                return geometry;
+            });
+        }
+
+        /**
+         * Read the next record as a feature, as {@link #readRecord(Consumer)} reads geometries. A
+         * failed record that the error policy keeps is passed on as a feature with no geometry.
+         */
+        void readFeature(Consumer<Feature> consumer) throws IOException {
+            readRecord(consumer, geometry -> consumer.accept(Feature.fromGeometry(null)),
+                    (content, recordIndex, contentLength) -> {
+                        // the handler passes the feature on itself
+                        handler.streamFeature(content, recordIndex, contentLength, consumer);
+                        return null;
+                    });
+        }
+
+        /**
+         * @param consumer takes the decoded value, unless it is null.
+         * @param failedConsumer takes what the error policy gives for a failed record.
+         * @param decoder decodes the content of one record.
+         */
+        private <T> void readRecord(Consumer<? super T> consumer, Consumer<? super Geometry> failedConsumer,
+                                    ContentDecoder<T> decoder) throws IOException {
+            if (resyncOnCorruptRecords && !isPlausibleRecordHeader())
+                resync(failedConsumer);
+
+            int recordNumber = file.readIntBE();
+            int contentLength = file.readIntBE();
+            position += ShapefileConstants.RECORD_HEADER_LENGTH;
+            nextRecordNumber = recordNumber + 1;
+            if (!isContentLengthValid(recordNumber, contentLength, failedConsumer))
+                return;
+            int contentBytes = contentLength * 2;
+
+            if (filter != null && !recordIntersectsFilter(contentBytes)) {
+                position += contentBytes;
+                return;
+            }
+
+            EndianDataInputStream content;
+            try {
+                content = file.readBlock(contentBytes);
+            } catch (EOFException e) {
+                failed(recordNumber, new InvalidShapefileException("Record " + recordNumber + " is truncated by the end of the file"), failedConsumer);
+                throw e;
+            }
+            position += contentBytes;
+            T value;
+            try {
+                value = decoder.decode(content, recordNumber - 1, contentLength);
+            } catch (Exception e) {
+                failed(recordNumber, e, failedConsumer);
+                return;
+            }
+            if (value != null)
+                consumer.accept(value);
+        }
+
+        /**
+         * A negative content length, or one that runs past the file length in the header, is reported
+         * as a failed record before anything is allocated for it. The next record header cannot be
+         * found from such a length, so reading stops there unless resynchronizing, which scans for it.
+         *
+         * @return true if the content can be read.
+         * @throws EOFException if the length is not valid and the reader does not resynchronize.
+         */
+        private boolean isContentLengthValid(int recordNumber, int contentLength, Consumer<? super Geometry> consumer) throws IOException {
+            long contentBytes = 2L * contentLength;
+            if (contentLength >= 0 && contentBytes <= Integer.MAX_VALUE && position + contentBytes <= fileLength)
+                return true;
+
+            failed(recordNumber, new InvalidShapefileException("Record " + recordNumber + " has a content length of "
+                    + contentLength + " words, past the end of the file at " + fileLength + " bytes"), consumer);
+            if (!resyncOnCorruptRecords)
+                throw new EOFException("Record " + recordNumber + " has an invalid content length; the rest of the file cannot be read");
+            return false;
+        }
+
+        private void failed(int recordNumber, Exception cause, Consumer<? super Geometry> consumer) throws IOException {
+            Geometry geometry = recordFailed(recordNumber - 1, cause, geometryFactory);
+            if (geometry != null)
+                consumer.accept(geometry);
+        }
+
+        /**
+         * Scan forward, one 16-bit word at a time, to the next plausible record header. The records
+         * between the expected record and the one found are reported as failed.
+         */
+        private void resync(Consumer<? super Geometry> consumer) throws IOException {
+            do {
+                file.skipFully(2);
+                position += 2;
+            } while (!isPlausibleRecordHeader());
+
+            int firstLostRecordNumber = nextRecordNumber == UNKNOWN_RECORD_NUMBER ? peekedRecordNumber : nextRecordNumber;
+            for (int lost = firstLostRecordNumber; lost < peekedRecordNumber; lost++)
+                failed(lost, new InvalidShapefileException("Record " + lost + " is corrupt or truncated; resynchronized at record " + peekedRecordNumber),
+                        consumer);
+        }
+
+        /**
+         * True if the next bytes look like a record header: the expected record number (or one a
+         * little past it), and content that starts with either a null shape of the right length or
+         * the file's shape type followed by an ordered bounding box (x,y for points).
+         * The stream position is left unchanged.
+         */
+        private boolean isPlausibleRecordHeader() throws IOException {
+            file.mark(ShapefileConstants.RECORD_HEADER_LENGTH + RECORD_BOUNDS_PREFIX_BYTES);
+            try {
+                int recordNumber = file.readIntBE();
+                int contentLength = file.readIntBE();
+                int shapeType = file.readIntLE();
+                peekedRecordNumber = recordNumber;
+
+                boolean numberInRange = nextRecordNumber == UNKNOWN_RECORD_NUMBER
+                        || (recordNumber >= nextRecordNumber && recordNumber - nextRecordNumber <= MAX_RECORDS_LOST_ON_RESYNC);
+                if (!numberInRange)
+                    return false;
+                if (shapeType == NULL)
+                    return contentLength == 2;
+                if (shapeType != handler.getShapeType())
+                    return false;
+                if (isPointType(shapeType))
+                    return contentLength >= (4 + 2*8) / 2;
+                if (contentLength < RECORD_BOUNDS_PREFIX_BYTES / 2)
+                    return false;
+
+                double xMin = file.readDoubleLE();
+                double yMin = file.readDoubleLE();
+                double xMax = file.readDoubleLE();
+                double yMax = file.readDoubleLE();
+                // also false for NaN
+                return xMin <= xMax && yMin <= yMax;
+            } finally {
+                file.reset();
+            }
+        }
+
+        /**
+         * Test the bounding box at the start of the record content against the filter, reading no
+         * more than the shape type and bounds. On a miss the rest of the record is skipped; on a hit
+         * the stream is returned to the start of the record content.
+         */
+        private boolean recordIntersectsFilter(int contentBytes) throws IOException {
+            file.mark(RECORD_BOUNDS_PREFIX_BYTES);
+            int bytesRead = 0;
+            boolean intersects = false;
+            if (contentBytes >= 4) {
+                int shapeType = file.readIntLE();
+                bytesRead += 4;
+                if (isPointType(shapeType) && contentBytes >= 4 + 2*8) {
+                    double x = file.readDoubleLE();
+                    double y = file.readDoubleLE();
+                    bytesRead += 2*8;
+                    intersects = filter.intersects(x, y);
+                } else if (shapeType != NULL && contentBytes >= RECORD_BOUNDS_PREFIX_BYTES) {
+                    double xMin = file.readDoubleLE();
+                    double yMin = file.readDoubleLE();
+                    double xMax = file.readDoubleLE();
+                    double yMax = file.readDoubleLE();
+                    bytesRead += 4*8;
+                    intersects = !filter.isNull()
+                            && xMin <= filter.getMaxX() && xMax >= filter.getMinX()
+                            && yMin <= filter.getMaxY() && yMax >= filter.getMinY();
+                }
+            }
+
+            if (!intersects) {
+                file.skipFully(contentBytes - bytesRead);
+                return false;
+            }
+            file.reset();
+            return true;
         }
     }
 
@@ -169,56 +876,21 @@ public class Shapefile {
      * Use Shapefile(String) if you don't want to use LEDataInputStream directly (recomened)
      */
     public GeometryCollection read(GeometryFactory geometryFactory) throws Exception {
-        EndianDataInputStream file = getInputStream();
-        if(file==null) throw new IOException("Failed connection or no content for "+baseURL);
-        ShapefileHeader mainHeader = new ShapefileHeader(file);
-        if(mainHeader.getVersion() < VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") older that supported ("+VERSION+"), attempting to read anyway");}
-        if(mainHeader.getVersion() > VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") newer that supported ("+VERSION+"), attempting to read anyway");}
-
-        int type=mainHeader.getShapeType();
-        ShapeHandler handler = getShapeHandler(type);
-        if (handler==null)
-            throw new ShapeTypeNotSupportedException("Unsupported shape type:"+type);
-
         ArrayList<Geometry> list = new ArrayList<>();
-        Geometry body = null;
 
         // Read until end of file (EOFException will be thrown)
+        RecordReader recordReader = openRecordReader(geometryFactory, null);
         try {
             while (true)
-                readRecordAndAddToList(file, handler, geometryFactory, list);
+                recordReader.readRecord(list::add);
         } catch(EOFException e) {
         }
         return geometryFactory.createGeometryCollection((Geometry[])list.toArray(new Geometry[]{}));
     }
 
-    private void readRecordAndAddToList(EndianDataInputStream file, ShapeHandler handler, GeometryFactory geometryFactory, ArrayList<Geometry> list) throws IOException {
-        // file.setLittleEndianMode(false);
-        int recordNumber = file.readIntBE();
-        int contentLength = file.readIntBE();
-        try{
-            Geometry body = handler.read(file,geometryFactory,contentLength);
-            body.setUserData(Integer.valueOf(recordNumber - 1));
-            list.add(body);
-            // System.out.println("Done record: " + recordNumber);
-        }catch(IllegalArgumentException r2d2){
-            geomFactory = new GeometryFactory(null, -1);
-            //System.out.println("Record " +recordNumber+ " has is NULL Shape");
-            list.add(geomFactory.createGeometryCollection(null));
-        }catch(Exception c3p0){
-            geomFactory = new GeometryFactory(null, -1);
-            System.out.println("Error processing record (a):" +recordNumber);
-            System.out.println(c3p0.getMessage());
-            c3p0.printStackTrace();
-            list.add(geomFactory.createGeometryCollection(null));
-        }
-        // System.out.println("processing:" +recordNumber);
-    }
-
     private EndianDataInputStream file;
-    private ShapefileHeader mainHeader;
-    private ShapeHandler handler;
-    private int recordNumber;
+    private RecordReader streamReader;
+    private final ArrayDeque<Geometry> pendingGeometries = new ArrayDeque<>();
 
     /**
      * Initialises a shapefile from disk.
@@ -227,19 +899,9 @@ public class Shapefile {
     public void readStream(GeometryFactory geometryFactory)
             throws IOException,ShapefileException,Exception
     {
-        geomFactory = geometryFactory;
-        file = getInputStream();
-        if(file==null) throw new IOException("Failed connection or no content for "+baseURL);
-        mainHeader = new ShapefileHeader(file);
-        if(mainHeader.getVersion() < VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") older that supported ("+VERSION+"), attempting to read anyway");}
-        if(mainHeader.getVersion() > VERSION){System.err.println("Sf-->Warning, Shapefile format ("+mainHeader.getVersion()+") newer that supported ("+VERSION+"), attempting to read anyway");}
-
-        //ArrayList list = new ArrayList();
-        int type=mainHeader.getShapeType();
-        handler = getShapeHandler(type);
-        if(handler==null)throw new ShapeTypeNotSupportedException("Unsuported shape type:"+type);
-
-        recordNumber=0;
+        streamReader = openRecordReader(geometryFactory, null);
+        file = streamReader.file;
+        pendingGeometries.clear();
     }
 
     /**
@@ -250,31 +912,14 @@ public class Shapefile {
     public Geometry next()
             throws IOException
     {
-        Geometry geom = null;
         try{
-            // file.setLittleEndianMode(false);
-            recordNumber=file.readIntBE();
-            int contentLength=file.readIntBE();
-            try{
-                geom = handler.read(file,geomFactory,contentLength);
-                // System.out.println("Done record: " + recordNumber);
-            }catch(IllegalArgumentException r2d2){
-                //System.out.println("Record " +recordNumber+ " has is NULL Shape");
-                geomFactory = new GeometryFactory(null, -1);
-                geom = geomFactory.createGeometryCollection(null);
-            }catch(Exception c3p0){
-                geomFactory = new GeometryFactory(null, -1);
-                System.out.println("Error processing record (a):" +recordNumber);
-                System.out.println(c3p0.getMessage());
-                c3p0.printStackTrace();
-                geom = geomFactory.createGeometryCollection(null);
-            }
-            // System.out.println("processing:" +recordNumber);
+            while (pendingGeometries.isEmpty())
+                streamReader.readRecord(pendingGeometries::add);
         }
         catch(EOFException e){
             close();
         }
-        return geom;
+        return pendingGeometries.poll();
     }
 
     public void close()
@@ -311,12 +956,12 @@ public class Shapefile {
         }
     }
 
-    public static ShapeHandler getShapeHandler(Geometry geom, int ShapeFileDimentions ) throws Exception
+    public static ShapeHandler getShapeHandler(Geometry geom, int ShapeFileDimentions ) throws ShapefileException
     {
         return getShapeHandler(getShapeType(geom,ShapeFileDimentions));
     }
 
-    public static ShapeHandler getShapeHandler(int type) throws Exception
+    public static ShapeHandler getShapeHandler(int type) throws ShapefileException
     {
         switch(type){
             case Shapefile.POINT: return new PointHandler();
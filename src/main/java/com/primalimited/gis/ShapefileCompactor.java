@@ -0,0 +1,237 @@
+package com.primalimited.gis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Removes the records marked as deleted in a shapefile's .dbf file from all three of its files.
+ * The .shp, .shx and .dbf files are streamed together, record by record, into new files that
+ * replace them: the records kept are renumbered from 1, and the file lengths, record count and
+ * bounding box in the headers describe them alone. Memory use does not depend on the number of
+ * records, beyond one bit per record.
+ */
+public final class ShapefileCompactor {
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String BACKUP_SUFFIX = ".bak";
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final byte END_OF_FILE = 0x1A;
+
+    private final DbfFile dbfFile;
+    private final FileChannel mainChannel;
+    private final FileChannel indexChannel;
+    private final ShapefileOutput shapefileOutput;
+    private final FileChannel dbfOutput;
+    private final ByteBuffer dbfBlock = ByteBuffer.allocate(BLOCK_BYTES);
+    private final ByteBuffer indexBlock = ByteBuffer.allocate(BLOCK_BYTES).order(ByteOrder.BIG_ENDIAN);
+    // index of the first record of the .shx entries in indexBlock
+    private int indexBlockFirstRecord;
+    private ByteBuffer content = ByteBuffer.allocate(1024);
+
+    private ShapefileCompactor(DbfFile dbfFile, FileChannel mainChannel, FileChannel indexChannel,
+                               ShapefileOutput shapefileOutput, FileChannel dbfOutput) {
+        this.dbfFile = dbfFile;
+        this.mainChannel = mainChannel;
+        this.indexChannel = indexChannel;
+        this.shapefileOutput = shapefileOutput;
+        this.dbfOutput = dbfOutput;
+        indexBlock.limit(0);
+    }
+
+    /**
+     * Remove the records marked as deleted in the .dbf file from the shapefile. Nothing is written
+     * if no record is marked as deleted.
+     *
+     * @param mainFilePath path to the .shp file; the .shx and .dbf files are next to it.
+     * @return number of records removed.
+     * @throws IOException if a file could not be read or written, or the files do not hold the same
+     * number of records. The shapefile is then left as it was: the new files are written next to the
+     * old ones, and if one of them cannot be moved into place, the files already replaced are
+     * restored from backups.
+     */
+    public static int compact(Path mainFilePath) throws IOException {
+        Path indexFilePath = Shapefile.siblingPath(mainFilePath, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION);
+        Path dbfPath = Shapefile.siblingPath(mainFilePath, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        Path[] targets = {mainFilePath, indexFilePath, dbfPath};
+        Path[] temporaries = new Path[targets.length];
+        Path[] backups = new Path[targets.length];
+        for (int file = 0; file < targets.length; file++) {
+            temporaries[file] = targets[file].resolveSibling(targets[file].getFileName() + TEMPORARY_SUFFIX);
+            backups[file] = targets[file].resolveSibling(targets[file].getFileName() + BACKUP_SUFFIX);
+        }
+
+        int nDeleted;
+        try (DbfFile dbfFile = DbfFile.open(dbfPath);
+             FileChannel mainChannel = FileChannel.open(mainFilePath, StandardOpenOption.READ);
+             FileChannel indexChannel = FileChannel.open(indexFilePath, StandardOpenOption.READ)) {
+            DbfSchema schema = dbfFile.getSchema();
+            long nIndexRecords = (indexChannel.size() - ShapefileConstants.N_HEADER_BYTES) / ShapefileConstants.RECORD_HEADER_LENGTH;
+            if (nIndexRecords != schema.getRecordCount())
+                throw new IOException("The .dbf file has " + schema.getRecordCount() + " records but the .shx file has " + nIndexRecords);
+
+            BitSet deleted = new BitSet(schema.getRecordCount());
+            int recordSize = schema.getRecordSize();
+            dbfFile.forEachBlock(0, schema.getRecordCount(), (block, firstRecord, nRecords) -> {
+                for (int record = 0; record < nRecords; record++) {
+                    if (block.get(record * recordSize) == DbfSchema.DELETED_FLAG)
+                        deleted.set(firstRecord + record);
+                }
+            });
+            nDeleted = deleted.cardinality();
+            if (nDeleted == 0)
+                return 0;
+
+            try (ShapefileOutput shapefileOutput = ShapefileOutput.create(temporaries[0], temporaries[1], readShapeType(mainChannel));
+                 FileChannel dbfOutput = FileChannel.open(temporaries[2],
+                         StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                new ShapefileCompactor(dbfFile, mainChannel, indexChannel, shapefileOutput, dbfOutput)
+                        .copyRecords(deleted, schema.getRecordCount() - nDeleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteAll(temporaries, e);
+            throw e;
+        }
+
+        replace(targets, temporaries, backups);
+        return nDeleted;
+    }
+
+    /*
+     * Move each target to its backup, then each temporary file into its place. If any move fails,
+     * the targets moved so far are restored from their backups and the temporary files are deleted.
+     */
+    private static void replace(Path[] targets, Path[] temporaries, Path[] backups) throws IOException {
+        int nBackedUp = 0;
+        try {
+            for (; nBackedUp < targets.length; nBackedUp++)
+                move(targets[nBackedUp], backups[nBackedUp]);
+            for (int file = 0; file < targets.length; file++)
+                move(temporaries[file], targets[file]);
+        } catch (IOException | RuntimeException e) {
+            for (int file = 0; file < nBackedUp; file++) {
+                try {
+                    move(backups[file], targets[file]);
+                } catch (IOException restoreFailure) {
+                    e.addSuppressed(restoreFailure);
+                }
+            }
+            deleteAll(temporaries, e);
+            throw e;
+        }
+        for (Path backup : backups)
+            Files.deleteIfExists(backup);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /*
+     * Delete files that may exist, adding any failure to the exception being thrown.
+     */
+    private static void deleteAll(Path[] paths, Exception e) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+            }
+        }
+    }
+
+    private static int readShapeType(FileChannel mainChannel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ShapefileConstants.N_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(mainChannel, header, 0);
+        int fileCode = header.order(ByteOrder.BIG_ENDIAN).getInt(0);
+        if (fileCode != ShapefileConstants.HEADER_FILE_CODE)
+            throw new IOException("Not a shapefile main file: file code " + fileCode);
+        return header.order(ByteOrder.LITTLE_ENDIAN).getInt(ShapefileConstants.LITTLE_ENDIAN_INITIAL_HEADER_POSITION + 4);
+    }
+
+    /*
+     * The .dbf header with the new record count and date, then each record kept, in all three files.
+     */
+    private void copyRecords(BitSet deleted, int nKept) throws IOException {
+        DbfSchema schema = dbfFile.getSchema();
+        ByteBuffer header = ByteBuffer.allocate(schema.getHeaderSize()).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(dbfFile.getChannel(), header, 0);
+        LocalDate today = LocalDate.now();
+        header.put(1, (byte) (today.getYear() - 1900))
+                .put(2, (byte) today.getMonthValue())
+                .put(3, (byte) today.getDayOfMonth())
+                .putInt(4, nKept);
+        header.flip();
+        write(dbfOutput, header);
+
+        int recordSize = schema.getRecordSize();
+        dbfFile.forEachBlock(0, schema.getRecordCount(), (block, firstRecord, nRecords) -> {
+            for (int record = 0; record < nRecords; record++) {
+                if (deleted.get(firstRecord + record))
+                    continue;
+                if (dbfBlock.remaining() < recordSize)
+                    flushDbf();
+                dbfBlock.put(block.slice(record * recordSize, recordSize));
+                shapefileOutput.write(readContent(firstRecord + record));
+            }
+        });
+        if (!dbfBlock.hasRemaining())
+            flushDbf();
+        dbfBlock.put(END_OF_FILE);
+        flushDbf();
+    }
+
+    /*
+     * Content of a record of the main file, at the offset and length from the .shx file.
+     */
+    private ByteBuffer readContent(int recordIndex) throws IOException {
+        if (recordIndex < indexBlockFirstRecord || recordIndex >= indexBlockFirstRecord + indexBlock.limit() / ShapefileConstants.RECORD_HEADER_LENGTH) {
+            indexBlock.clear();
+            long position = ShapefileConstants.N_HEADER_BYTES + (long) recordIndex * ShapefileConstants.RECORD_HEADER_LENGTH;
+            indexBlock.limit((int) Math.min(indexBlock.capacity(), indexChannel.size() - position));
+            readFully(indexChannel, indexBlock, position);
+            indexBlockFirstRecord = recordIndex;
+        }
+        int entry = (recordIndex - indexBlockFirstRecord) * ShapefileConstants.RECORD_HEADER_LENGTH;
+        long offset = 2L * (indexBlock.getInt(entry) & 0xffffffffL);
+        int contentLength = 2 * indexBlock.getInt(entry + 4);
+        if (contentLength < 0 || offset < ShapefileConstants.N_HEADER_BYTES
+                || offset + ShapefileConstants.RECORD_HEADER_LENGTH + contentLength > mainChannel.size())
+            throw new IOException("Record " + recordIndex + " of the .shx file is outside the .shp file");
+
+        if (content.capacity() < contentLength)
+            content = ByteBuffer.allocate(Math.max(contentLength, 2 * content.capacity()));
+        content.clear().limit(contentLength);
+        readFully(mainChannel, content, offset + ShapefileConstants.RECORD_HEADER_LENGTH);
+        return content.flip();
+    }
+
+    private void flushDbf() throws IOException {
+        dbfBlock.flip();
+        write(dbfOutput, dbfBlock);
+        dbfBlock.clear();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining())
+            channel.write(byteBuffer);
+    }
+
+    /*
+     * Fill the buffer from its position to its limit with positional reads, starting at a file position.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer byteBuffer, long position) throws IOException {
+        long start = position - byteBuffer.position();
+        while (byteBuffer.hasRemaining()) {
+            if (channel.read(byteBuffer, start + byteBuffer.position()) < 0)
+                throw new EOFException("Expected " + byteBuffer.limit() + " bytes at " + position);
+        }
+    }
+}
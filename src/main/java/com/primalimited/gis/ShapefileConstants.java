@@ -5,8 +5,11 @@ class ShapefileConstants {
     public static final String SHAPEFILE_EXTENSION = "shp";
     public static final String SHAPEFILE_INDEX_EXTENSION = "shx";
     public static final String SHAPEFILE_DBF_EXTENSION = "dbf";
-    // this one is optional
+    // these are optional
     public static final String SHAPEFILE_PROJECTION_EXTENSION = "prj";
+    public static final String SHAPEFILE_CODE_PAGE_EXTENSION = "cpg";
+    // sidecar column index written by DbfKeyIndex
+    public static final String DBF_KEY_INDEX_EXTENSION = "kix";
 
     public static final String EDITED_DBF_FILE_SUFFIX = "-EDIT";
 
@@ -81,4 +84,7 @@ class ShapefileConstants {
     public static final int LITTLE_ENDIAN_TOTAL_HEADER_BYTES = N_HEADER_BYTES - BIG_ENDIAN_TOTAL_HEADER_BYTES;
 
     public static final int RECORD_HEADER_LENGTH = 8;
+
+    // the header file length is a signed 32-bit count of 16-bit words
+    public static final long MAX_MAIN_FILE_BYTES = 2L * Integer.MAX_VALUE;
 }
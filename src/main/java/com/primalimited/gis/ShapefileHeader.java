@@ -71,6 +71,13 @@ class ShapefileHeader {
         this.fileLength = fileLength;
     }
 
+    /**
+     * @return file length in 16-bit words, as written in the header.
+     */
+    public int getFileLength(){
+        return fileLength;
+    }
+
     public int getShapeType(){
         return shapeType;
     }
@@ -0,0 +1,224 @@
+package com.primalimited.gis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the main (.shp) and index (.shx) files of a shapefile together, one record at a time.
+ * Records are numbered from 1 in the order written, and both files are written through block
+ * buffers, so only one block of each is held in memory. The file lengths, bounding box and Z and
+ * M ranges in the two headers are written when the output is closed.
+ */
+final class ShapefileOutput implements Closeable {
+    private static final int BLOCK_BYTES = 64 * 1024;
+    private static final int FILE_LENGTH_OFFSET = 24;
+    private static final int SHX_RECORD_BYTES = 8;
+
+    private final FileChannel mainChannel;
+    private final FileChannel indexChannel;
+    private final int shapeType;
+    private final ByteBuffer mainBlock = ByteBuffer.allocate(BLOCK_BYTES);
+    private final ByteBuffer indexBlock = ByteBuffer.allocate(BLOCK_BYTES);
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(ShapefileConstants.RECORD_HEADER_LENGTH);
+    // main file length in bytes so far
+    private long mainLength = ShapefileConstants.N_HEADER_BYTES;
+    private int nRecords;
+    // xMin, yMin, xMax, yMax, zMin, zMax, mMin, mMax of the records written
+    private final double[] bounds = {
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    };
+    private boolean closed;
+
+    private ShapefileOutput(FileChannel mainChannel, FileChannel indexChannel, int shapeType) {
+        this.mainChannel = mainChannel;
+        this.indexChannel = indexChannel;
+        this.shapeType = shapeType;
+        indexBlock.order(ByteOrder.BIG_ENDIAN);
+        recordHeader.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Create (or replace) the .shp and .shx files, leaving room for their headers.
+     */
+    static ShapefileOutput create(Path mainFilePath, Path indexFilePath, int shapeType) throws IOException {
+        FileChannel mainChannel = open(mainFilePath);
+        try {
+            FileChannel indexChannel = open(indexFilePath);
+            ShapefileOutput output = new ShapefileOutput(mainChannel, indexChannel, shapeType);
+            output.mainBlock.position(ShapefileConstants.N_HEADER_BYTES);
+            output.indexBlock.position(ShapefileConstants.N_HEADER_BYTES);
+            return output;
+        } catch (IOException | RuntimeException e) {
+            mainChannel.close();
+            throw e;
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write one record.
+     *
+     * @param content the record content, little-endian, from its shape type to its end: the bytes
+     *                from the position to the limit. The position is not changed.
+     */
+    void write(ByteBuffer content) throws IOException {
+        int contentLength = content.remaining();
+        if ((contentLength & 1) != 0)
+            throw new IllegalArgumentException("record content must be a whole number of 16-bit words: " + contentLength);
+        if (mainLength + ShapefileConstants.RECORD_HEADER_LENGTH + contentLength > ShapefileConstants.MAX_MAIN_FILE_BYTES)
+            throw new IOException("a shapefile main file is limited to " + ShapefileConstants.MAX_MAIN_FILE_BYTES + " bytes");
+        expandBounds(content.slice().order(ByteOrder.LITTLE_ENDIAN));
+
+        nRecords++;
+        if (indexBlock.remaining() < SHX_RECORD_BYTES)
+            flush(indexChannel, indexBlock);
+        indexBlock.putInt((int) (mainLength / 2)).putInt(contentLength / 2);
+
+        recordHeader.clear();
+        recordHeader.putInt(nRecords).putInt(contentLength / 2).flip();
+        put(recordHeader);
+        put(content.duplicate());
+        mainLength += ShapefileConstants.RECORD_HEADER_LENGTH + contentLength;
+    }
+
+    /**
+     * @return number of records written so far.
+     */
+    int getRecordCount() {
+        return nRecords;
+    }
+
+    private void put(ByteBuffer bytes) throws IOException {
+        if (mainBlock.remaining() < bytes.remaining())
+            flush(mainChannel, mainBlock);
+        if (mainBlock.remaining() < bytes.remaining()) {
+            // larger than a block
+            while (bytes.hasRemaining())
+                mainChannel.write(bytes);
+            return;
+        }
+        mainBlock.put(bytes);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining())
+            channel.write(block);
+        block.clear();
+    }
+
+    /*
+     * Widen the bounds by those of a record: x,y (and z, m) of a point, otherwise the bounding box
+     * and the Z and M ranges that follow the points.
+     */
+    private void expandBounds(ByteBuffer content) {
+        if (content.limit() < 4)
+            return;
+        int recordShapeType = content.getInt(0);
+        switch (recordShapeType) {
+            case Shapefile.POINT:
+            case Shapefile.POINTM:
+            case Shapefile.POINTZ:
+                if (content.limit() < 20)
+                    return;
+                expandXY(content.getDouble(4), content.getDouble(12), content.getDouble(4), content.getDouble(12));
+                if (recordShapeType == Shapefile.POINTZ && content.limit() >= 28)
+                    expand(4, content.getDouble(20), content.getDouble(20));
+                int mOffset = recordShapeType == Shapefile.POINTZ ? 28 : 20;
+                if (recordShapeType != Shapefile.POINT && content.limit() >= mOffset + 8)
+                    expand(6, content.getDouble(mOffset), content.getDouble(mOffset));
+                return;
+            case Shapefile.NULL:
+                return;
+            default:
+                break;
+        }
+        if (content.limit() < 40)
+            return;
+        expandXY(content.getDouble(4), content.getDouble(12), content.getDouble(20), content.getDouble(28));
+
+        boolean isMultiPoint = recordShapeType == Shapefile.MULTIPOINT || recordShapeType == Shapefile.MULTIPOINTM
+                || recordShapeType == Shapefile.MULTIPOINTZ;
+        boolean hasZ = recordShapeType == Shapefile.ARCZ || recordShapeType == Shapefile.POLYGONZ
+                || recordShapeType == Shapefile.MULTIPOINTZ || recordShapeType == ShapefileConstants.SHAPE_TYPE_MULTIPATCH;
+        boolean hasM = hasZ || recordShapeType == Shapefile.ARCM || recordShapeType == Shapefile.POLYGONM
+                || recordShapeType == Shapefile.MULTIPOINTM;
+        if (!hasM || content.limit() < (isMultiPoint ? 40 : 44))
+            return;
+        int nParts = isMultiPoint ? 0 : content.getInt(36);
+        int nPoints = content.getInt(isMultiPoint ? 36 : 40);
+        if (nParts < 0 || nPoints < 0)
+            return;
+        long offset = (isMultiPoint ? 40 : 44) + 4L * nParts + 16L * nPoints;
+        if (recordShapeType == ShapefileConstants.SHAPE_TYPE_MULTIPATCH)
+            offset += 4L * nParts; // part types
+        if (hasZ) {
+            if (offset + 16 > content.limit())
+                return;
+            expand(4, content.getDouble((int) offset), content.getDouble((int) offset + 8));
+            offset += 16 + 8L * nPoints;
+        }
+        // M is optional in Z records
+        if (offset + 16 <= content.limit())
+            expand(6, content.getDouble((int) offset), content.getDouble((int) offset + 8));
+    }
+
+    private void expandXY(double xMin, double yMin, double xMax, double yMax) {
+        bounds[0] = Math.min(bounds[0], xMin);
+        bounds[1] = Math.min(bounds[1], yMin);
+        bounds[2] = Math.max(bounds[2], xMax);
+        bounds[3] = Math.max(bounds[3], yMax);
+    }
+
+    /*
+     * Widen a (min, max) pair of the bounds; NaN and no-data M values (< -1e38) are ignored.
+     */
+    private void expand(int index, double min, double max) {
+        if (!Double.isNaN(min) && min > -1e38)
+            bounds[index] = Math.min(bounds[index], min);
+        if (!Double.isNaN(max) && max > -1e38)
+            bounds[index + 1] = Math.max(bounds[index + 1], max);
+    }
+
+    /**
+     * Writes the buffered records, then the headers of both files, and closes them.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try (mainChannel; indexChannel) {
+            flush(mainChannel, mainBlock);
+            flush(indexChannel, indexBlock);
+            writeHeader(mainChannel, mainLength);
+            writeHeader(indexChannel, ShapefileConstants.N_HEADER_BYTES + (long) SHX_RECORD_BYTES * nRecords);
+        }
+    }
+
+    private void writeHeader(FileChannel channel, long fileLength) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ShapefileConstants.N_HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(0, ShapefileConstants.HEADER_FILE_CODE);
+        header.putInt(FILE_LENGTH_OFFSET, (int) (fileLength / 2));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(ShapefileConstants.LITTLE_ENDIAN_INITIAL_HEADER_POSITION, Shapefile.VERSION);
+        header.putInt(ShapefileConstants.LITTLE_ENDIAN_INITIAL_HEADER_POSITION + 4, shapeType);
+        // 0 for a range with no values
+        boolean[] isEmpty = {bounds[0] > bounds[2], bounds[4] > bounds[5], bounds[6] > bounds[7]};
+        for (int index = 0; index < bounds.length; index++) {
+            boolean isRangeEmpty = isEmpty[index < 4 ? 0 : index < 6 ? 1 : 2];
+            header.putDouble(ShapefileConstants.LITTLE_ENDIAN_DOUBLE_VALUES_POSITION + 8 * index, isRangeEmpty ? 0 : bounds[index]);
+        }
+        while (header.hasRemaining())
+            channel.write(header, header.position());
+    }
+}
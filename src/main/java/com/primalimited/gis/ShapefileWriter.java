@@ -0,0 +1,112 @@
+package com.primalimited.gis;
+
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * Writes the .shp and .shx files of a shapefile one geometry at a time. Each record is encoded by
+ * the shape handler of the file's shape type into one reusable little-endian buffer, sized from
+ * {@link ShapeHandler#getLength(Geometry)}, and both files are written through block buffers, so
+ * memory use does not depend on the number of records. The file lengths and bounding box in the
+ * headers are written when the writer is closed.
+ *
+ * <pre>
+ * try (ShapefileWriter writer = ShapefileWriter.create(path, Shapefile.ARC)) {
+ *     for (Geometry geometry : geometries)
+ *         writer.write(geometry);
+ * }
+ * </pre>
+ *
+ * The .dbf file is written separately, one record per geometry, with {@link DbfWriter}.
+ */
+public class ShapefileWriter implements Closeable {
+    private static final int INITIAL_BUFFER_BYTES = 1024;
+
+    private final ShapefileOutput output;
+    private final ShapeHandler handler;
+    private final int coordDimension;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    private ShapefileWriter(ShapefileOutput output, ShapeHandler handler) {
+        this.output = output;
+        this.handler = handler;
+        int shapeType = handler.getShapeType();
+        this.coordDimension = ShapeRecordContent.hasZ(shapeType) ? Shapefile.XYZM
+                : ShapeRecordContent.hasM(shapeType) ? Shapefile.XYM : Shapefile.XY;
+    }
+
+    /**
+     * Creates the .shp file and the .shx file next to it, replacing any files at those paths.
+     *
+     * @param mainFilePath path to the .shp file.
+     * @param shapeType shape type of every record, e.g. {@link Shapefile#POLYGON}.
+     * @return new instance of ShapefileWriter.
+     * @throws IOException if a file could not be created.
+     * @throws IllegalArgumentException if the shape type cannot be written.
+     */
+    public static ShapefileWriter create(Path mainFilePath, int shapeType) throws IOException {
+        ShapeHandler handler;
+        try {
+            handler = Shapefile.getShapeHandler(shapeType);
+        } catch (ShapefileException e) {
+            throw new IllegalArgumentException("shape type cannot be written: " + shapeType, e);
+        }
+        if (handler == null)
+            throw new IllegalArgumentException("shape type cannot be written: " + shapeType);
+
+        Path indexFilePath = Shapefile.siblingPath(mainFilePath, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION);
+        return new ShapefileWriter(ShapefileOutput.create(mainFilePath, indexFilePath, shapeType), handler);
+    }
+
+    /**
+     * Write the next record.
+     *
+     * @param geometry the geometry, of the file's shape type; a LineString is written as a
+     *                 polyline of one part, a Polygon as a polygon of one shell. A null or empty
+     *                 geometry is written as a null shape.
+     * @throws IOException if the files could not be written.
+     * @throws IllegalArgumentException if the geometry is not of the file's shape type.
+     */
+    public void write(Geometry geometry) throws IOException {
+        if (!ShapeRecordContent.isNull(geometry) && shapeType(geometry) != handler.getShapeType())
+            throw new IllegalArgumentException("a " + geometry.getGeometryType()
+                    + " cannot be written to a shapefile of shape type " + handler.getShapeType());
+
+        int contentLength = 2 * handler.getLength(geometry);
+        if (buffer.capacity() < contentLength)
+            buffer = ByteBuffer.allocate(Math.max(contentLength, 2 * buffer.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.clear();
+        handler.write(geometry, buffer);
+        if (buffer.position() != contentLength)
+            throw new IllegalStateException("record of " + buffer.position() + " bytes, expected " + contentLength);
+        output.write(buffer.flip());
+    }
+
+    private int shapeType(Geometry geometry) {
+        try {
+            return Shapefile.getShapeType(geometry, coordDimension);
+        } catch (ShapefileException e) {
+            return Shapefile.UNDEFINED;
+        }
+    }
+
+    /**
+     * @return number of records written so far.
+     */
+    public int getRecordCount() {
+        return output.getRecordCount();
+    }
+
+    /**
+     * Writes the buffered records and the headers of both files, and closes them.
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
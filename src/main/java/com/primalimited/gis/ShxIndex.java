@@ -0,0 +1,102 @@
+package com.primalimited.gis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ESRI shapefile index (.shx) parsed once into primitive offset and length tables.
+ * Unlike {@link IndexFile}, lookups never touch the file again and never box.
+ */
+public class ShxIndex {
+    private final int[] offsets;
+    private final int[] lengths;
+
+    private ShxIndex(int[] offsets, int[] lengths) {
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Parse the whole index file.
+     *
+     * @param indexFilePath path to the .shx file.
+     * @return new instance of ShxIndex.
+     * @throws IOException if the index file could not be read.
+     */
+    public static ShxIndex open(Path indexFilePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFilePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Index file too large (" + size + " bytes): " + indexFilePath);
+            ByteBuffer byteBuffer = ByteBuffer.allocate((int) size);
+            while (byteBuffer.hasRemaining()) {
+                if (channel.read(byteBuffer) < 0)
+                    break;
+            }
+            byteBuffer.flip();
+            return parse(byteBuffer);
+        }
+    }
+
+    /**
+     * Parse the whole index file.
+     *
+     * @param inputStream the .shx file input stream.
+     * @return new instance of ShxIndex.
+     * @throws IOException if the index file could not be read.
+     */
+    public static ShxIndex read(InputStream inputStream) throws IOException {
+        return parse(ByteBuffer.wrap(inputStream.readAllBytes()));
+    }
+
+    private static ShxIndex parse(ByteBuffer byteBuffer) throws IOException {
+        if (byteBuffer.remaining() < ShapefileConstants.N_HEADER_BYTES)
+            throw new IOException("Index file is shorter than its " + ShapefileConstants.N_HEADER_BYTES + " byte header");
+
+        byteBuffer.order(ByteOrder.BIG_ENDIAN);
+        byteBuffer.position(ShapefileConstants.N_HEADER_BYTES);
+        int nRecords = byteBuffer.remaining() / ShapefileConstants.RECORD_HEADER_LENGTH;
+
+        // (offset, length) pairs, as 16-bit words
+        int[] entries = new int[nRecords * 2];
+        IntBuffer intBuffer = byteBuffer.asIntBuffer();
+        intBuffer.get(entries);
+
+        int[] offsets = new int[nRecords];
+        int[] lengths = new int[nRecords];
+        for (int i = 0; i < nRecords; i++) {
+            offsets[i] = entries[2 * i];
+            lengths[i] = entries[2 * i + 1];
+        }
+        return new ShxIndex(offsets, lengths);
+    }
+
+    /**
+     * @return number of records in the index.
+     */
+    public int recordCount() {
+        return offsets.length;
+    }
+
+    /**
+     * @param recordIndex record index (0-based).
+     * @return byte offset of the record (including its 8-byte record header) in the main file.
+     */
+    public long offset(int recordIndex) {
+        return 2L * (offsets[recordIndex] & 0xffffffffL);
+    }
+
+    /**
+     * @param recordIndex record index (0-based).
+     * @return content length of the record in bytes, excluding the 8-byte record header.
+     */
+    public int length(int recordIndex) {
+        return 2 * lengths[recordIndex];
+    }
+}
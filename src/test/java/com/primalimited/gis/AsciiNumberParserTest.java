@@ -0,0 +1,86 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsciiNumberParserTest {
+
+    private static Number parse(String field) {
+        // surround the field with other bytes, as in a record
+        ByteBuffer byteBuffer = ByteBuffer.wrap(("99" + field + "99").getBytes(StandardCharsets.US_ASCII));
+        Number number = new AsciiNumberParser().parseNumber(byteBuffer, 2, field.length());
+        assertEquals(0, byteBuffer.position(), "position unchanged");
+        return number;
+    }
+
+    @Test
+    void integralTest() {
+        assertEquals(16340L, parse("     16340"));
+        assertEquals(-42L, parse("-42       "));
+        assertEquals(7L, parse("+7"));
+        assertEquals(2L, parse("  2.000"), "zero fraction");
+        assertEquals(1234567L, parse("1,234,567"), "grouping separators");
+        assertEquals(123456789012345678L, parse("123456789012345678"));
+        assertEquals(0L, parse("0"));
+    }
+
+    @Test
+    void decimalTest() {
+        assertEquals(0.013, parse("   0.0130"));
+        assertEquals(-12.5, parse("-12.5"));
+        assertEquals(0.1, parse(".1"));
+        assertEquals(1.0E21, parse("1000000000000000000000"));
+        assertEquals(Double.parseDouble("1234.56789012345678"), parse("1234.56789012345678"), "long significand");
+        assertEquals(Double.parseDouble("0.000000000000000000000001"), parse("0.000000000000000000000001"), "large exponent");
+        assertEquals(-0.0, parse("-0"), "negative zero");
+    }
+
+    @Test
+    void exponentTest() {
+        assertEquals(100.0, parse("1E2"));
+        assertEquals(1.5e-7, parse("1.50000E-07"));
+        assertEquals(-2.5e5, parse("-2.5e+05"));
+        assertEquals(1.0e300, parse("1e300"));
+        assertNull(parse("1E"), "no exponent digits");
+    }
+
+    @Test
+    void blankAndInvalidTest() {
+        assertNull(parse("          "));
+        assertNull(parse("\u0000\u0000\u0000"));
+        assertNull(parse("**********"), "numeric overflow marker");
+        assertNull(parse("-"));
+        assertEquals(12L, parse("12abc"), "stops at the first other character");
+    }
+
+    @Test
+    void localeIndependentTest() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            assertEquals(0.013, parse("0.0130"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void primitiveTest() {
+        ByteBuffer byteBuffer = ByteBuffer.wrap("  42  3.25".getBytes(StandardCharsets.US_ASCII));
+        AsciiNumberParser parser = new AsciiNumberParser();
+
+        assertTrue(parser.parse(byteBuffer, 0, 5));
+        assertTrue(parser.isLong());
+        assertEquals(42L, parser.longValue());
+        assertEquals(42.0, parser.doubleValue());
+
+        assertTrue(parser.parse(byteBuffer, 5, 5));
+        assertFalse(parser.isLong());
+        assertEquals(3.25, parser.doubleValue());
+    }
+}
@@ -89,7 +89,7 @@ class ClientTest {
         List<DBField> fields = reader.readRecord(dbfStream, recordIndex);
         dbfStream.close();
         assertEquals(
-                "[DBRecord{name='NAME', type='Ń', value=null}, DBRecord{name='CNTY_FIPS', type='⅃', value=null}, DBRecord{name='FIPS', type='⑃', value=null}]",
+                "[DBRecord{name='NAME', type='C', value=La Plata}, DBRecord{name='CNTY_FIPS', type='C', value=067}, DBRecord{name='FIPS', type='C', value=08067}]",
                 Arrays.toString(fields.toArray()),
                 "database record"
         );
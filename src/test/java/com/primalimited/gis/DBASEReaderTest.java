@@ -4,10 +4,19 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class DBASEReaderTest {
 
@@ -87,4 +96,124 @@ class DBASEReaderTest {
 
         assertArrayEquals(expected, columnNames, "column names from .dbf file");
     }
-}
\ No newline at end of file
+
+    @Test
+    void readColumnsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        DBASEReader reader = new DBASEReader();
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        Object[][] columns = reader.readColumns(is, "humod", "ObjectID", "shape_Leng");
+        is.close();
+
+        assertEquals(3, columns.length, "number of columns");
+        for (int record : new int[] {0, 4, 3071}) {
+            is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+            List<DBField> fields = reader.readRecord(is, record);
+            is.close();
+            assertEquals(fields.get(2).getValue(), columns[0][record], "humod of record " + record);
+            assertEquals(fields.get(7).getValue(), columns[1][record], "ObjectID of record " + record);
+            assertEquals(fields.get(6).getValue(), columns[2][record], "shape_Leng of record " + record);
+        }
+
+        is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        assertArrayEquals(columns[0], reader.readColumn(is, "humod"), "readColumn matches readColumns");
+        is.close();
+
+        try (InputStream missing = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME)) {
+            assertThrows(IllegalArgumentException.class, () -> reader.readColumns(missing, "humod", "nosuchcolumn"),
+                    "column not in the file, as DbfFile.readColumns");
+        }
+        try (InputStream missing = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME)) {
+            assertNull(reader.readColumn(missing, "nosuchcolumn"), "readColumn keeps returning null");
+        }
+    }
+
+    @Test
+    void readParallelTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        Path dbf = testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+
+        DBASEReader reader = new DBASEReader();
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        DBASETableData expected = reader.read(is);
+        is.close();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DBASETableData data = reader.readParallel(dbf, pool);
+            assertEquals(expected.getNRecords(), data.getNRecords(), "number of records");
+            assertArrayEquals(expected.getColumnNames(), data.getColumnNames(), "column names");
+            assertArrayEquals(expected.getData(), data.getData(), "data");
+
+            ByteBuffer byteBuffer = ByteBuffer.wrap(Files.readAllBytes(dbf));
+            assertArrayEquals(
+                    reader.readWithRecordNumberRowHeaders(byteBuffer).getData(),
+                    reader.readWithRecordNumberRowHeaders(byteBuffer, pool).getData(),
+                    "data with record numbers"
+            );
+
+            // the file ends inside the third of five records
+            Path truncated = Files.createTempFile("truncated", ".dbf");
+            try {
+                byte[] bytes = TestHelper.dbfBytes(new String[] {"NAME", "NUM"}, new char[] {'C', 'N'}, new int[] {4, 3},
+                        new String[][] {{"a", "1"}, {"b", "2"}, {"c", "3"}, {"d", "4"}, {"e", "5"}});
+                Files.write(truncated, Arrays.copyOf(bytes, 32 * 3 + 1 + 2 * 8 + 5));
+                DBASETableData expectedTruncated;
+                try (InputStream truncatedStream = Files.newInputStream(truncated)) {
+                    expectedTruncated = reader.read(truncatedStream);
+                }
+                assertNull(expectedTruncated.getData()[2][0], "missing record");
+                DBASETableData truncatedData = reader.readParallel(truncated, pool);
+                assertEquals(expectedTruncated.getNRecords(), truncatedData.getNRecords(), "number of records");
+                assertArrayEquals(expectedTruncated.getData(), truncatedData.getData(), "data of a truncated file");
+            } finally {
+                Files.delete(truncated);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void fieldDisplacementTest() throws Exception {
+        // FoxPro writes each field's displacement in the record into descriptor bytes 12-15
+        byte[] bytes = TestHelper.dbfBytes(
+                new String[] {"NAME", "COUNT"},
+                new char[] {'C', 'N'},
+                new int[] {6, 4},
+                new String[][] {{"alpha", "  12"}, {"beta", "   7"}}
+        );
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(32 + 12, 1).putInt(64 + 12, 7);
+        Path dbf = Files.createTempFile("displacement", ".dbf");
+        try {
+            Files.write(dbf, bytes);
+            DBASEReader reader = new DBASEReader();
+            Object[][] expected;
+            try (DbfFile dbfFile = DbfFile.open(dbf)) {
+                expected = dbfFile.readColumns("NAME", "COUNT");
+            }
+            assertNotNull(expected[1][0], "decoded by DbfFile");
+
+            DBASETableData data;
+            try (InputStream is = Files.newInputStream(dbf)) {
+                data = reader.read(is);
+            }
+            assertArrayEquals(expected[0], data.getColumnData("NAME"), "names");
+            assertArrayEquals(expected[1], data.getColumnData("COUNT"), "counts");
+            assertEquals(DBASETableData.FieldType.Number, data.getColumnType(1), "declared number");
+
+            try (InputStream is = Files.newInputStream(dbf)) {
+                List<DBField> fields = reader.readRecord(is, 1);
+                assertEquals("N", fields.get(1).getType(), "record field type");
+                assertEquals(expected[1][1], fields.get(1).getValue(), "record field value");
+            }
+            try (InputStream is = Files.newInputStream(dbf)) {
+                assertArrayEquals(expected, reader.readColumns(is, "NAME", "COUNT"), "columns");
+            }
+            assertArrayEquals(data.getData(), reader.readParallel(dbf).getData(), "parallel read");
+        } finally {
+            Files.delete(dbf);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfCharsetTest {
+    private static final String[] PLACES = {"Zürich", "São Paulo", "Montréal", "Oakland"};
+
+    @TempDir
+    Path tempDir;
+
+    private Path writePlaces(String baseName, Charset charset, String codePage) throws Exception {
+        String[][] records = new String[PLACES.length][];
+        for (int record = 0; record < PLACES.length; record++)
+            records[record] = new String[] {PLACES[record]};
+        Path dbf = tempDir.resolve(baseName + ".dbf");
+        Files.write(dbf, TestHelper.dbfBytes(new String[] {"NAME"}, new char[] {'C'}, new int[] {20}, records, charset));
+        if (codePage != null)
+            Files.writeString(tempDir.resolve(baseName + ".cpg"), codePage);
+        return dbf;
+    }
+
+    @Test
+    void codePageTest() {
+        assertEquals(StandardCharsets.UTF_8, DbfCharset.forCodePage("UTF-8"));
+        assertEquals(StandardCharsets.UTF_8, DbfCharset.forCodePage(" utf8\r\n"));
+        assertEquals(StandardCharsets.UTF_8, DbfCharset.forCodePage("65001"));
+        assertEquals(Charset.forName("windows-1252"), DbfCharset.forCodePage("1252"));
+        assertEquals(Charset.forName("windows-1252"), DbfCharset.forCodePage("ANSI 1252"));
+        assertEquals(StandardCharsets.ISO_8859_1, DbfCharset.forCodePage("88591"));
+        assertEquals(Charset.forName("ISO-8859-2"), DbfCharset.forCodePage("88592"));
+        assertEquals(Charset.forName("IBM437"), DbfCharset.forCodePage("437"));
+        assertEquals(Charset.forName("IBM850"), DbfCharset.forCodePage("850"));
+        assertEquals(Charset.forName("IBM866"), DbfCharset.forCodePage("866"));
+        assertEquals(Charset.forName("GBK"), DbfCharset.forCodePage("936"), "Simplified Chinese");
+        assertEquals(Charset.forName("windows-31j"), DbfCharset.forCodePage("932"), "Japanese");
+        assertEquals(Charset.forName("x-windows-949"), DbfCharset.forCodePage("949"), "Korean");
+        assertEquals(Charset.forName("x-windows-950"), DbfCharset.forCodePage("950"), "Traditional Chinese");
+        assertEquals(Charset.forName("x-windows-874"), DbfCharset.forCodePage("ANSI 874"), "Thai");
+        assertEquals(StandardCharsets.ISO_8859_1, DbfCharset.forCodePage(""), "blank");
+        assertEquals(StandardCharsets.ISO_8859_1, DbfCharset.forCodePage("no such code page"), "unsupported");
+    }
+
+    @Test
+    void utf8CpgTest() throws Exception {
+        Path dbf = writePlaces("utf8", StandardCharsets.UTF_8, "UTF-8");
+
+        try (DbfCursor cursor = DbfCursor.open(dbf)) {
+            for (String place : PLACES) {
+                assertTrue(cursor.next());
+                assertEquals(place, cursor.getValue("NAME"), "cursor");
+            }
+        }
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            for (int record = 0; record < PLACES.length; record++)
+                assertEquals(PLACES[record], dbfFile.readValue(record, "NAME"), "dbf file");
+        }
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        assertArrayEquals(PLACES, table.getColumnData("NAME"), "columnar table");
+
+        DBASEReader reader = new DBASEReader();
+        reader.setCharset(DBASEReader.charsetForCodePage(Files.readString(tempDir.resolve("utf8.cpg"))));
+        try (InputStream is = Files.newInputStream(dbf)) {
+            assertArrayEquals(PLACES, reader.readColumn(is, "NAME"), "reader");
+        }
+    }
+
+    @Test
+    void windows1252CpgTest() throws Exception {
+        Path dbf = writePlaces("cp1252", Charset.forName("windows-1252"), "ANSI 1252");
+
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            for (int record = 0; record < PLACES.length; record++)
+                assertEquals(PLACES[record], dbfFile.readValue(record, "NAME"), "record " + record);
+        }
+    }
+
+    @Test
+    void noCpgTest() throws Exception {
+        // without a .cpg file, text is read as ISO-8859-1
+        Path dbf = writePlaces("latin1", StandardCharsets.ISO_8859_1, null);
+
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        assertArrayEquals(PLACES, table.getColumnData("NAME"), "columnar table");
+        try (InputStream is = Files.newInputStream(dbf)) {
+            assertArrayEquals(PLACES, new DBASEReader().readColumn(is, "NAME"), "reader");
+        }
+    }
+}
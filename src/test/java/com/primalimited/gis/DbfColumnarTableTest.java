@@ -0,0 +1,197 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfColumnarTableTest {
+
+    @Test
+    void matchesTableDataTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        DBASETableData expected = new DBASEReader().read(is);
+        is.close();
+
+        DbfColumnarTable table = DbfColumnarTable.read(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION));
+        assertEquals(expected.getNRecords(), table.getNRecords(), "number of records");
+        assertArrayEquals(expected.getColumnNames(), table.getColumnNames(), "column names");
+
+        for (int row = 0; row < table.getNRecords(); row++) {
+            for (int col = 0; col < table.getNFields(); col++) {
+                Object expectedValue = expected.getData()[row][col];
+                Object value = table.getValueAt(row, col);
+                if (expectedValue instanceof Number number)
+                    assertEquals(number.doubleValue(), ((Number) value).doubleValue(), "row " + row + ", col " + col);
+                else
+                    assertEquals(expectedValue, value, "row " + row + ", col " + col);
+            }
+        }
+    }
+
+    @Test
+    void primitiveColumnsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        DbfColumnarTable table = DbfColumnarTable.read(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION));
+
+        int objectId = table.getColumnIndex("ObjectID");
+        assertEquals(Long.class, table.getColumnClass(objectId), "whole number column");
+        long[] objectIds = table.getLongData("ObjectID");
+        assertEquals(table.getNRecords(), objectIds.length, "long column length");
+        assertSame(objectIds, table.getLongData("ObjectID"), "backing array");
+        assertEquals(objectIds[5], table.getValueAt(5, objectId), "long value");
+
+        int shapeLength = table.getColumnIndex("shape_Leng");
+        assertEquals(Double.class, table.getColumnClass(shapeLength), "floating point column");
+        double[] lengths = table.getRealData("shape_Leng");
+        assertSame(lengths, table.getRealData("shape_Leng"), "backing array");
+        assertEquals(lengths[7], table.getDouble(7, shapeLength), "double value");
+
+        assertEquals(String.class, table.getColumnClass(table.getColumnIndex("humod")), "character column");
+        assertEquals("NM", table.getValueAt(4, table.getColumnIndex("humod")), "character value");
+        assertNull(table.getLongData("humod"), "not a whole number column");
+        assertNull(table.getRealData("nosuchcolumn"), "no such column");
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getValueAt(table.getNRecords(), 0));
+    }
+
+    @Test
+    void dictionaryColumnsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        DbfColumnarTable table = DbfColumnarTable.read(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION));
+
+        // few distinct values
+        String[] dictionary = table.getDictionary("humod");
+        int[] codes = table.getDictionaryCodes("humod");
+        assertNotNull(dictionary, "humod is dictionary-encoded");
+        assertTrue(dictionary.length < 50, "distinct humod values: " + dictionary.length);
+        assertEquals(table.getNRecords(), codes.length, "one code per row");
+        int humod = table.getColumnIndex("humod");
+        for (int row = 0; row < table.getNRecords(); row++)
+            assertSame(dictionary[codes[row]], table.getValueAt(row, humod), "shared value of row " + row);
+
+        // a distinct value in every row
+        assertNull(table.getDictionaryCodes("tnmid"), "tnmid falls back");
+        assertEquals(String.class, table.getColumnClass(table.getColumnIndex("tnmid")), "still a character column");
+        assertNull(table.getDictionary("ObjectID"), "not a character column");
+    }
+
+    @Test
+    void nullsAndLogicalTest() throws Exception {
+        // one record each: "  12", "2.5", blank; 'T', '?', 'n'
+        Path dbf = Files.createTempFile("columnar", ".dbf");
+        try {
+            Files.write(dbf, TestHelper.dbfBytes(
+                    new String[] {"NUM", "FLAG", "NAME", "MEMO"},
+                    new char[] {'N', 'L', 'C', 'M'},
+                    new int[] {4, 1, 4, 10},
+                    new String[][] {{"  12", "T", "a", "1"}, {" 2.5", "?", "", "2"}, {"    ", "n", "b", "3"}}
+            ));
+            DbfColumnarTable table = DbfColumnarTable.read(dbf);
+
+            assertEquals(3, table.getNRecords(), "number of records");
+            assertEquals(Double.class, table.getColumnClass(0), "widened to double");
+            assertArrayEquals(new double[] {12.0, 2.5, DBASETableData.DVAL_DOUBLE}, table.getRealData("NUM"), "numeric values");
+            assertTrue(table.isNull(2, 0), "blank number");
+            assertNull(table.getValueAt(2, 0), "blank number");
+
+            assertEquals(Boolean.TRUE, table.getValueAt(0, 1), "true");
+            assertNull(table.getValueAt(1, 1), "unknown");
+            assertEquals(Boolean.FALSE, table.getValueAt(2, 1), "false");
+            assertEquals(1, table.getLogicalData("FLAG").cardinality(), "true values");
+            assertEquals(1, table.getNulls("FLAG").cardinality(), "null values");
+            assertTrue(table.getNulls("NAME").isEmpty(), "text is never null");
+            assertSame(table.getNulls("NAME"), table.getNulls("NAME"), "backing set of a text column");
+            assertEquals(3, table.getNulls("MEMO").cardinality(), "unsupported values");
+            assertSame(table.getNulls("MEMO"), table.getNulls("MEMO"), "backing set of an unsupported column");
+        } finally {
+            Files.delete(dbf);
+        }
+    }
+
+    private static void assertSameTable(DbfColumnarTable expected, DbfColumnarTable table) {
+        assertEquals(expected.getNRecords(), table.getNRecords(), "number of records");
+        assertArrayEquals(expected.getColumnNames(), table.getColumnNames(), "column names");
+        for (int col = 0; col < table.getNFields(); col++) {
+            assertEquals(expected.getColumnClass(col), table.getColumnClass(col), "class of col " + col);
+            String columnName = table.getColumnName(col);
+            assertArrayEquals(expected.getColumnData(columnName), table.getColumnData(columnName), "col " + col);
+            assertEquals(expected.getNulls(columnName), table.getNulls(columnName), "nulls of col " + col);
+        }
+    }
+
+    @Test
+    void readParallelTest() throws Exception {
+        Path dbf = new TestHelper().getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        DbfColumnarTable expected = DbfColumnarTable.read(dbf);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameTable(expected, DbfColumnarTable.readParallel(dbf));
+            DbfColumnarTable table = DbfColumnarTable.readParallel(dbf, pool, 500);
+            assertSameTable(expected, table);
+            assertArrayEquals(expected.getDictionaryCodes("humod"), table.getDictionaryCodes("humod"), "dictionary codes");
+            assertArrayEquals(expected.getDictionary("humod"), table.getDictionary("humod"), "dictionary");
+
+            // a dictionary that falls back to plain text part way through a later range
+            Path text = Files.createTempFile("columnar", ".dbf");
+            try {
+                String[][] records = new String[1200][];
+                for (int record = 0; record < records.length; record++) {
+                    String kind = record < 300 ? "kind " + record % 7 : "kind " + record;
+                    records[record] = new String[] {kind, "name " + record, String.format("2024%02d%02d", 1 + record % 12, 1 + record % 28)};
+                }
+                Files.write(text, TestHelper.dbfBytes(new String[] {"KIND", "NAME", "DAY"}, new char[] {'C', 'C', 'D'}, new int[] {12, 12, 8}, records));
+                DbfColumnarTable expectedText = DbfColumnarTable.read(text);
+                for (int recordsPerRange : new int[] {100, 512, 1000}) {
+                    DbfColumnarTable textTable = DbfColumnarTable.readParallel(text, pool, recordsPerRange);
+                    assertSameTable(expectedText, textTable);
+                    for (String columnName : new String[] {"KIND", "NAME"}) {
+                        assertArrayEquals(expectedText.getDictionary(columnName), textTable.getDictionary(columnName), columnName + " dictionary");
+                        assertArrayEquals(expectedText.getDictionaryCodes(columnName), textTable.getDictionaryCodes(columnName), columnName + " dictionary codes");
+                    }
+                }
+            } finally {
+                Files.delete(text);
+            }
+
+            // the file ends inside the third of five records
+            Path truncated = Files.createTempFile("columnar", ".dbf");
+            try {
+                byte[] bytes = TestHelper.dbfBytes(new String[] {"NAME", "NUM"}, new char[] {'C', 'N'}, new int[] {4, 3},
+                        new String[][] {{"a", "1"}, {"b", "2"}, {"c", "3"}, {"d", "4"}, {"e", "5"}});
+                Files.write(truncated, Arrays.copyOf(bytes, 32 * 3 + 1 + 2 * 8 + 5));
+                DbfColumnarTable expectedTruncated = DbfColumnarTable.read(truncated);
+                assertEquals(2, expectedTruncated.getNRecords(), "whole records present");
+                assertSameTable(expectedTruncated, DbfColumnarTable.readParallel(truncated, pool, 1));
+                assertSameTable(expectedTruncated, DbfColumnarTable.readParallel(truncated, pool));
+            } finally {
+                Files.delete(truncated);
+            }
+
+            // widened to double in the second range only
+            Path widened = Files.createTempFile("columnar", ".dbf");
+            try {
+                Files.write(widened, TestHelper.dbfBytes(
+                        new String[] {"NUM", "FLAG"},
+                        new char[] {'N', 'L'},
+                        new int[] {4, 1},
+                        new String[][] {{"  12", "T"}, {" 2.5", "?"}, {"    ", "n"}}
+                ));
+                assertSameTable(DbfColumnarTable.read(widened), DbfColumnarTable.readParallel(widened, pool, 1));
+            } finally {
+                Files.delete(widened);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfCursorTest {
+
+    @Test
+    void walkAllRecordsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        DBASEReader reader = new DBASEReader();
+
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        Object[] expected = reader.readColumn(is, "ObjectID");
+        is.close();
+
+        // 3072 records of 236 bytes span several blocks
+        try (DbfCursor cursor = DbfCursor.open(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            assertEquals(3072, cursor.getRecordCount(), "record count");
+            assertEquals(8, cursor.getFieldCount(), "field count");
+
+            int count = 0;
+            while (cursor.next()) {
+                assertEquals(count, cursor.getRecordIndex(), "record index");
+                assertFalse(cursor.isDeleted(), "deleted flag");
+                assertEquals(expected[count], cursor.getValue("ObjectID"), "ObjectID of record " + count);
+                count++;
+            }
+            assertEquals(3072, count, "records visited");
+            assertFalse(cursor.next(), "stays at the end");
+        }
+    }
+
+    @Test
+    void recordFieldsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        InputStream is = testHelper.getDbfInputStream(TestHelper.CITIES_SHAPEFILE_BASE_NAME);
+        DbfCursor cursor = new DbfCursor(is);
+        assertTrue(cursor.moveTo(3), "move to record 3");
+        List<DBField> fields = cursor.getFields();
+        is.close();
+
+        assertEquals(
+                "[DBRecord{name='AREA', type='N', value=0}, DBRecord{name='PERIMETER', type='N', value=0}, DBRecord{name='CITIES_', type='N', value=35}, DBRecord{name='CITIES_ID', type='N', value=70}, DBRecord{name='CITY_NAME', type='C', value=Oakland}, DBRecord{name='GMI_ADMIN', type='C', value=USA-CAL}, DBRecord{name='ADMIN_NAME', type='C', value=California}, DBRecord{name='FIPS_CNTRY', type='C', value=US}, DBRecord{name='CNTRY_NAME', type='C', value=United States}, DBRecord{name='STATUS', type='C', value=Other}, DBRecord{name='POP_RANK', type='N', value=4}, DBRecord{name='POP_CLASS', type='C', value=250,000 to 500,000}, DBRecord{name='PORT_ID', type='N', value=16340}]",
+                Arrays.toString(fields.toArray()),
+                "database record"
+        );
+    }
+
+    @Test
+    void moveToTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        try (DbfCursor cursor = DbfCursor.open(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            assertTrue(cursor.moveTo(4), "move to record 4");
+            assertEquals("NM", cursor.getValue("humod"), "humod");
+            assertTrue(cursor.moveTo(3000), "jump past the current block");
+            assertEquals(3000, cursor.getRecordIndex(), "record index");
+            assertTrue(cursor.next(), "next after a jump");
+            assertEquals(3001, cursor.getRecordIndex(), "record index");
+            assertThrows(IllegalArgumentException.class, () -> cursor.moveTo(4), "cannot move back");
+            assertFalse(cursor.moveTo(3072), "past the last record");
+        }
+    }
+
+    @Test
+    void fieldTypeByteTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        // co.dbf has a non-zero byte after each field type; the cursor reads the type byte alone
+        try (DbfCursor cursor = DbfCursor.open(testHelper.getPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            assertTrue(cursor.moveTo(60), "move to record 60");
+            assertEquals("C", cursor.getFields().get(0).getType(), "NAME field type");
+            assertInstanceOf(String.class, cursor.getValue("NAME"), "NAME value");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfFileTest {
+
+    @Test
+    void readRecordTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        DBASEReader reader = new DBASEReader();
+
+        try (DbfFile dbfFile = DbfFile.open(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            assertEquals(3072, dbfFile.getRecordCount(), "record count");
+            assertEquals(8, dbfFile.getFieldCount(), "field count");
+
+            for (int record : new int[] {0, 4, 1500, 3071}) {
+                InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+                List<DBField> expected = reader.readRecord(is, record);
+                is.close();
+                assertEquals(expected.toString(), dbfFile.readRecord(record).toString(), "record " + record);
+            }
+
+            assertEquals("NM", dbfFile.readValue(4, "humod"), "humod");
+            assertFalse(dbfFile.isDeleted(4), "deleted flag");
+            assertThrows(IndexOutOfBoundsException.class, () -> dbfFile.readRecord(3072));
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.readValue(4, "nosuchfield"));
+        }
+    }
+
+    @Test
+    void sharedNamesAndTypesTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        try (DbfFile dbfFile = DbfFile.open(testHelper.getPath(TestHelper.CITIES_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            List<DBField> first = dbfFile.readRecord(3);
+            List<DBField> second = dbfFile.readRecord(7);
+            for (int field = 0; field < first.size(); field++) {
+                assertSame(first.get(field).getName(), second.get(field).getName(), "name of field " + field);
+                assertSame(first.get(field).getType(), second.get(field).getType(), "type of field " + field);
+            }
+            assertEquals(
+                    "[DBRecord{name='AREA', type='N', value=0}, DBRecord{name='PERIMETER', type='N', value=0}, DBRecord{name='CITIES_', type='N', value=35}, DBRecord{name='CITIES_ID', type='N', value=70}, DBRecord{name='CITY_NAME', type='C', value=Oakland}, DBRecord{name='GMI_ADMIN', type='C', value=USA-CAL}, DBRecord{name='ADMIN_NAME', type='C', value=California}, DBRecord{name='FIPS_CNTRY', type='C', value=US}, DBRecord{name='CNTRY_NAME', type='C', value=United States}, DBRecord{name='STATUS', type='C', value=Other}, DBRecord{name='POP_RANK', type='N', value=4}, DBRecord{name='POP_CLASS', type='C', value=250,000 to 500,000}, DBRecord{name='PORT_ID', type='N', value=16340}]",
+                    Arrays.toString(first.toArray()),
+                    "database record"
+            );
+        }
+    }
+
+    @Test
+    void readColumnsTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        DBASEReader reader = new DBASEReader();
+
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        Object[][] expected = reader.readColumns(is, "ObjectID", "humod", "loaddate");
+        is.close();
+
+        try (DbfFile dbfFile = DbfFile.open(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            Object[][] columns = dbfFile.readColumns("ObjectID", "humod", "loaddate");
+            assertEquals(3, columns.length, "number of columns");
+            for (int column = 0; column < columns.length; column++)
+                assertArrayEquals(expected[column], columns[column], "column " + column);
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.readColumns("humod", "nosuchfield"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfFilterTest {
+
+    private static int[] expectedMatches(DbfColumnarTable table, IntPredicate predicate) {
+        return IntStream.range(0, table.getNRecords()).filter(predicate).toArray();
+    }
+
+    @Test
+    void scanTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        Path dbf = testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        int humod = table.getColumnIndex("humod");
+        int hudigit = table.getColumnIndex("hudigit");
+
+        DbfFilter filter = DbfFilter.where("humod").eq("NM").and("hudigit").between(2, 4);
+        int[] expected = expectedMatches(table, row -> "NM".equals(table.getValueAt(row, humod))
+                && table.getDouble(row, hudigit) >= 2 && table.getDouble(row, hudigit) <= 4);
+        assertTrue(expected.length > 0 && expected.length < table.getNRecords(), "some records match");
+
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertArrayEquals(expected, dbfFile.scan(filter), "DbfFile.scan");
+        }
+
+        try (DbfCursor cursor = DbfCursor.open(dbf)) {
+            cursor.setFilter(filter);
+            for (int record : expected) {
+                assertTrue(cursor.next(), "cursor finds record " + record);
+                assertEquals(record, cursor.getRecordIndex(), "record index");
+                assertEquals("NM", cursor.getValue("humod"), "humod");
+            }
+            assertFalse(cursor.next(), "no more matches");
+        }
+
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        DBASETableData data = new DBASEReader().scan(is, filter);
+        is.close();
+        assertEquals(expected.length, data.getNRecords(), "DBASEReader.scan rows");
+        for (int row = 0; row < expected.length; row++)
+            assertEquals(expected[row] + 1, data.getData()[row][0], "record number of row " + row);
+    }
+
+    @Test
+    void prefixAndDateTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        Path dbf = testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        int linesource = table.getColumnIndex("linesource");
+        int loaddate = table.getColumnIndex("loaddate");
+
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertArrayEquals(
+                    expectedMatches(table, row -> ((String) table.getValueAt(row, linesource)).startsWith("DRG24")),
+                    dbfFile.scan(DbfFilter.where("linesource").startsWith("DRG24")),
+                    "prefix"
+            );
+            assertArrayEquals(
+                    expectedMatches(table, row -> ((String) table.getValueAt(row, loaddate)).compareTo("20220101") >= 0
+                            && ((String) table.getValueAt(row, loaddate)).compareTo("20221231") <= 0),
+                    dbfFile.scan(DbfFilter.where("loaddate").between("20220101", "20221231")),
+                    "date range"
+            );
+            assertEquals(0, dbfFile.scan(DbfFilter.where("humod").eq("no such value")).length, "no match");
+        }
+    }
+
+    @Test
+    void invalidFilterTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        try (DbfFile dbfFile = DbfFile.open(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION))) {
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.scan(DbfFilter.where("nosuchfield").eq("NM")), "missing field");
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.scan(DbfFilter.where("humod").between(2, 4)), "number on text");
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.scan(DbfFilter.where("hudigit").startsWith("4")), "prefix on number");
+            assertThrows(IllegalArgumentException.class, () -> dbfFile.scan(DbfFilter.where("hudigit").eq("four")), "text on number");
+        }
+    }
+}
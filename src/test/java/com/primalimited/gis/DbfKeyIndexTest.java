@@ -0,0 +1,97 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfKeyIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path copyLineDbf() throws Exception {
+        Path dbf = tempDir.resolve("WBDLine.dbf");
+        Files.copy(new TestHelper().getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION), dbf);
+        return dbf;
+    }
+
+    @Test
+    void textKeyTest() throws Exception {
+        Path dbf = copyLineDbf();
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        int tnmid = table.getColumnIndex("tnmid");
+
+        try (DbfKeyIndex index = DbfKeyIndex.build(dbf, "tnmid")) {
+            assertTrue(Files.isRegularFile(tempDir.resolve("WBDLine.tnmid.kix")), "index file");
+            assertEquals(table.getNRecords(), index.getKeyCount(), "key count");
+            for (int record : new int[] {0, 4, 1500, 3071})
+                assertEquals(record, index.find((String) table.getValueAt(record, tnmid)), "record " + record);
+            assertEquals(-1, index.find("{00000000-0000-0000-0000-000000000000}"), "missing key");
+            assertEquals(-1, index.find("a key longer than the forty bytes of the tnmid field"), "key too long");
+        }
+
+        try (DbfKeyIndex index = DbfKeyIndex.build(dbf, "humod")) {
+            int humod = table.getColumnIndex("humod");
+            int[] expected = IntStream.range(0, table.getNRecords()).filter(row -> "NM".equals(table.getValueAt(row, humod))).toArray();
+            assertArrayEquals(expected, index.findAll("NM"), "all records with a key");
+        }
+    }
+
+    @Test
+    void numericKeyTest() throws Exception {
+        Path dbf = copyLineDbf();
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        long[] objectIds = table.getLongData("ObjectID");
+
+        try (DbfKeyIndex index = DbfKeyIndex.openOrBuild(dbf, "ObjectID")) {
+            for (int record : new int[] {0, 7, 2048, 3071}) {
+                assertEquals(record, index.find(objectIds[record]), "record " + record);
+                assertEquals(record, index.find(Long.toString(objectIds[record])), "record " + record + " by text");
+            }
+            assertEquals(-1, index.find(-1), "missing key");
+            assertEquals(-1, index.find("not a number"), "not a number");
+        }
+
+        assertThrows(IOException.class, () -> DbfKeyIndex.open(dbf, "tnmid"), "no index was built for tnmid");
+    }
+
+    @Test
+    void staleIndexTest() throws Exception {
+        Path dbf = copyLineDbf();
+        DbfKeyIndex.build(dbf, "ObjectID").close();
+
+        // a new last update date in the .dbf header
+        try (RandomAccessFile file = new RandomAccessFile(dbf.toFile(), "rw")) {
+            file.seek(3);
+            int day = file.read();
+            file.seek(3);
+            file.write(day == 1 ? 2 : 1);
+        }
+
+        assertThrows(IOException.class, () -> DbfKeyIndex.open(dbf, "ObjectID"), "stale index");
+        try (DbfKeyIndex index = DbfKeyIndex.openOrBuild(dbf, "ObjectID")) {
+            assertEquals(5, index.find(DbfColumnarTable.read(dbf).getLongData("ObjectID")[5]), "rebuilt index");
+        }
+        DbfKeyIndex.open(dbf, "ObjectID").close();
+    }
+
+    @Test
+    void failedBuildTest() throws Exception {
+        Path dbf = copyLineDbf();
+        // a directory in the way of the index file
+        Path blocker = Files.createDirectories(DbfKeyIndex.indexPath(dbf, "humod").resolve("blocker"));
+
+        assertThrows(IOException.class, () -> DbfKeyIndex.build(dbf, "humod"));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(path -> path.toString().endsWith(".tmp")).count(), "no temporary file left");
+        }
+        Files.delete(blocker);
+    }
+}
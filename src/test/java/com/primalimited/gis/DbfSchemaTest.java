@@ -0,0 +1,77 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfSchemaTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void declaredTypesTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        DbfSchema schema = DbfSchema.read(testHelper.getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION));
+
+        assertEquals(3072, schema.getRecordCount(), "number of records");
+        assertEquals(236, schema.getRecordSize(), "record size");
+        assertArrayEquals(
+                new String[] {"tnmid", "hudigit", "humod", "linesource", "metasource", "loaddate", "shape_Leng", "ObjectID"},
+                schema.getNames(),
+                "field names"
+        );
+        assertEquals('D', schema.getType(5), "loaddate type");
+        assertEquals(24, schema.getLength(6), "shape_Leng length");
+        assertEquals(15, schema.getDecimalCount(6), "shape_Leng decimals");
+        assertEquals(203, schema.getOffset(6), "shape_Leng offset");
+        assertEquals(7, schema.indexOf("ObjectID"), "ObjectID index");
+        assertNotNull(schema.getLastUpdateDate(), "last update");
+
+        // the header declares the types DBASETableData infers from the values
+        InputStream is = testHelper.getDbfInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        DBASETableData data = new DBASEReader().read(is);
+        is.close();
+        assertArrayEquals(schema.getFieldTypes(), data.getColumnTypes(), "declared types");
+        assertArrayEquals(
+                schema.getFieldTypes(),
+                new DBASETableData(data.getData(), data.getNRecords(), data.getNFields(), data.getColumnNames()).getColumnTypes(),
+                "inferred types"
+        );
+    }
+
+    @Test
+    void rewrittenFileTest() throws Exception {
+        Path dbf = tempDir.resolve("layer.dbf");
+        Files.write(dbf, TestHelper.dbfBytes(new String[] {"NAME"}, new char[] {'C'}, new int[] {8}, new String[][] {{"a"}}));
+
+        DbfSchema schema = DbfSchema.read(dbf);
+
+        // rewritten with the same size and modification time
+        FileTime lastModified = Files.getLastModifiedTime(dbf);
+        Files.write(dbf, TestHelper.dbfBytes(new String[] {"CODE"}, new char[] {'N'}, new int[] {8}, new String[][] {{"1"}}));
+        Files.setLastModifiedTime(dbf, lastModified);
+
+        DbfSchema changed = DbfSchema.read(dbf);
+        assertEquals("NAME", schema.getName(0), "original field name");
+        assertEquals("CODE", changed.getName(0), "field name");
+        assertEquals(DBASETableData.FieldType.Number, changed.getFieldType(0), "field type");
+
+        // only the date of last update changes
+        Files.write(dbf, TestHelper.dbfBytes(new String[] {"CODE"}, new char[] {'N'}, new int[] {8}, new String[][] {{"1"}, {"2"}}));
+        int recordCount = DbfSchema.read(dbf).getRecordCount();
+        byte[] bytes = Files.readAllBytes(dbf);
+        bytes[3] = (byte) (bytes[3] == 1 ? 2 : 1);
+        lastModified = Files.getLastModifiedTime(dbf);
+        Files.write(dbf, bytes);
+        Files.setLastModifiedTime(dbf, lastModified);
+        assertEquals(bytes[3], DbfSchema.read(dbf).getLastUpdateDate().getDayOfMonth(), "new date of last update");
+        assertEquals(recordCount, DbfSchema.read(dbf).getRecordCount(), "number of records");
+    }
+}
@@ -0,0 +1,57 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfUpdaterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void setValueTest() throws Exception {
+        Path dbf = tempDir.resolve("WBDLine.dbf");
+        Files.copy(new TestHelper().getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION), dbf);
+        byte[] before = Files.readAllBytes(dbf);
+        DbfKeyIndex.build(dbf, "humod").close();
+        DbfKeyIndex.build(dbf, "tnmid").close();
+
+        try (DbfUpdater updater = DbfUpdater.open(dbf)) {
+            updater.setValue(5, "humod", "XX");
+            updater.setValue(5, "ObjectID", 123456789L);
+            updater.setValue(6, "shape_Leng", 0.25);
+            updater.setValue(7, "hudigit", null);
+            assertThrows(IllegalArgumentException.class, () -> updater.setValue(8, "ObjectID", 1234567890L), "too wide");
+            assertThrows(IllegalArgumentException.class, () -> updater.setValue(8, "nosuchfield", 1), "missing field");
+            assertThrows(IndexOutOfBoundsException.class, () -> updater.setValue(3072, "ObjectID", 1), "missing record");
+            updater.setDeleted(9, true);
+        }
+
+        byte[] after = Files.readAllBytes(dbf);
+        assertEquals(before.length, after.length, "file size");
+        DbfSchema schema = DbfSchema.read(dbf);
+        int firstChanged = schema.getHeaderSize() + 5 * schema.getRecordSize();
+        int lastChanged = schema.getHeaderSize() + 10 * schema.getRecordSize();
+        for (int index = 4; index < after.length; index++) {
+            if (index < firstChanged || index >= lastChanged)
+                assertEquals(before[index], after[index], "byte " + index);
+        }
+
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertEquals("XX", dbfFile.readValue(5, "humod"), "humod");
+            assertEquals(123456789L, dbfFile.readValue(5, "ObjectID"), "ObjectID");
+            assertEquals(0.25, dbfFile.readValue(6, "shape_Leng"), "shape_Leng");
+            assertNull(dbfFile.readValue(7, "hudigit"), "blank hudigit");
+            assertTrue(dbfFile.isDeleted(9), "deleted");
+            assertFalse(dbfFile.isDeleted(8), "not deleted");
+        }
+
+        assertFalse(Files.exists(DbfKeyIndex.indexPath(dbf, "humod")), "stale humod index deleted");
+        assertTrue(Files.exists(DbfKeyIndex.indexPath(dbf, "tnmid")), "tnmid index kept");
+    }
+}
@@ -0,0 +1,134 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DbfWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeRecordsTest() throws Exception {
+        Path dbf = tempDir.resolve("written.dbf");
+        try (DbfWriter writer = DbfWriter.create(dbf, List.of(
+                DbfWriter.Field.of("NAME", DBASETableData.FieldType.String, 10),
+                DbfWriter.Field.of("COUNT", DBASETableData.FieldType.Number),
+                DbfWriter.Field.of("LENGTH", DBASETableData.FieldType.Float),
+                new DbfWriter.Field("DONE", 'L', 1, 0),
+                new DbfWriter.Field("UPDATED", 'D', 8, 0)
+        ))) {
+            writer.writeRecord("Rio Grande", 42, 3051.5, true, LocalDate.of(2022, 3, 4));
+            writer.writeRecord("a name longer than ten", null, DBASETableData.DVAL_DOUBLE, null, null);
+            assertThrows(IllegalArgumentException.class, () -> writer.writeRecord("x", 1234567890L, 1.0, false, null), "too wide");
+            assertThrows(IllegalArgumentException.class, () -> writer.writeRecord("x", 1), "too few values");
+            writer.writeRecord(" Pecos ", -7L, -0.125, false, "20210101");
+            assertEquals(3, writer.getRecordCount(), "records written");
+        }
+
+        DbfSchema schema = DbfSchema.read(dbf);
+        assertEquals(3, schema.getRecordCount(), "record count patched on close");
+        assertArrayEquals(new String[] {"NAME", "COUNT", "LENGTH", "DONE", "UPDATED"}, schema.getNames(), "field names");
+        assertEquals(19, schema.getLength(2), "Float width");
+        assertEquals(6, schema.getDecimalCount(2), "Float decimals");
+        assertEquals(schema.getHeaderSize() + 3L * schema.getRecordSize() + 1, Files.size(dbf), "file size with end marker");
+
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertEquals(List.of("Rio Grande", 42L, 3051.5, Boolean.TRUE, "20220304"), values(dbfFile.readRecord(0)), "record 0");
+            assertEquals("a name lon", dbfFile.readValue(1, "NAME"), "truncated");
+            assertNull(dbfFile.readValue(1, "COUNT"), "blank number");
+            assertNull(dbfFile.readValue(1, "LENGTH"), "DVAL_DOUBLE written blank");
+            assertEquals(List.of("Pecos", -7L, -0.125, Boolean.FALSE, "20210101"), values(dbfFile.readRecord(2)), "record 2");
+        }
+        assertNull(DbfColumnarTable.read(dbf).getValueAt(1, 3), "unknown logical");
+    }
+
+    @Test
+    void copyTest() throws Exception {
+        Path source = new TestHelper().getPath(TestHelper.LINE_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        DbfSchema schema = DbfSchema.read(source);
+        List<DbfWriter.Field> fields = new ArrayList<>();
+        for (int field = 0; field < schema.getFieldCount(); field++)
+            fields.add(new DbfWriter.Field(schema.getName(field), schema.getType(field), schema.getLength(field), schema.getDecimalCount(field)));
+
+        Path copy = tempDir.resolve("copy.dbf");
+        try (DbfCursor cursor = DbfCursor.open(source); DbfWriter writer = DbfWriter.create(copy, fields)) {
+            Object[] values = new Object[schema.getFieldCount()];
+            while (cursor.next()) {
+                for (int field = 0; field < values.length; field++)
+                    values[field] = cursor.getValue(field);
+                writer.writeRecord(values);
+            }
+        }
+
+        DbfColumnarTable expected = DbfColumnarTable.read(source);
+        DbfColumnarTable table = DbfColumnarTable.read(copy);
+        assertEquals(expected.getNRecords(), table.getNRecords(), "number of records");
+        for (String columnName : expected.getColumnNames())
+            assertArrayEquals(expected.getColumnData(columnName), table.getColumnData(columnName), columnName);
+    }
+
+    @Test
+    void codePageTest() throws Exception {
+        Path dbf = tempDir.resolve("utf8.dbf");
+        try (DbfWriter writer = DbfWriter.create(dbf, List.of(DbfWriter.Field.of("NAME", DBASETableData.FieldType.String, 7)), StandardCharsets.UTF_8)) {
+            writer.writeRecord("Río");
+            writer.writeRecord("ññññ"); // 8 bytes: cut before the character that does not fit
+        }
+
+        assertEquals("UTF-8", Files.readString(tempDir.resolve("utf8.cpg")), ".cpg file");
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertEquals("Río", dbfFile.readValue(0, "NAME"), "decoded with the .cpg character set");
+            assertEquals("ñññ", dbfFile.readValue(1, "NAME"), "truncated on a character boundary");
+        }
+
+        // rewritten without a character set: the stale .cpg file goes with the old file
+        try (DbfWriter writer = DbfWriter.create(dbf, List.of(DbfWriter.Field.of("NAME", DBASETableData.FieldType.String, 7)))) {
+            writer.writeRecord("Río");
+        }
+        assertFalse(Files.exists(tempDir.resolve("utf8.cpg")), "stale .cpg file deleted");
+        try (DbfFile dbfFile = DbfFile.open(dbf)) {
+            assertEquals("Río", dbfFile.readValue(0, "NAME"), "decoded as ISO-8859-1");
+        }
+    }
+
+    @Test
+    void keyIndexTest() throws Exception {
+        Path dbf = tempDir.resolve("nightly.dbf");
+        List<DbfWriter.Field> fields = List.of(DbfWriter.Field.of("CODE", DBASETableData.FieldType.String, 4));
+        try (DbfWriter writer = DbfWriter.create(dbf, fields)) {
+            writer.writeRecord("a");
+            writer.writeRecord("b");
+        }
+        DbfKeyIndex.build(dbf, "CODE").close();
+        Path other = tempDir.resolve("nightly.old.CODE.kix");
+        Files.write(other, new byte[] {1});
+
+        // the same day, with the same number of records: the old index would pass as up to date
+        try (DbfWriter writer = DbfWriter.create(dbf, fields)) {
+            writer.writeRecord("b");
+            writer.writeRecord("a");
+        }
+        assertFalse(Files.exists(DbfKeyIndex.indexPath(dbf, "CODE")), "stale key index deleted");
+        assertTrue(Files.exists(other), "index of nightly.old.dbf kept");
+        try (DbfKeyIndex index = DbfKeyIndex.openOrBuild(dbf, "CODE")) {
+            assertEquals(1, index.find("a"), "record of a");
+        }
+    }
+
+    private static List<Object> values(List<DBField> fields) {
+        List<Object> values = new ArrayList<>();
+        for (DBField field : fields)
+            values.add(field.getValue());
+        return values;
+    }
+}
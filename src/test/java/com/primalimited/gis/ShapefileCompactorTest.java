@@ -0,0 +1,111 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShapefileCompactorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compactTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        String baseName = TestHelper.COLORADO_SHAPEFILE_BASE_NAME;
+        for (String extension : new String[] {ShapefileConstants.SHAPEFILE_EXTENSION, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION, ShapefileConstants.SHAPEFILE_DBF_EXTENSION})
+            Files.copy(testHelper.getPath(baseName, extension), tempDir.resolve(baseName + "." + extension));
+        Path shp = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_EXTENSION);
+        Path shx = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_INDEX_EXTENSION);
+        Path dbf = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+
+        GeometryCollection expectedGeometries = Shapefile.open(shp).read(new GeometryFactory());
+        DbfColumnarTable expectedTable = DbfColumnarTable.read(dbf);
+        assertEquals(0, ShapefileCompactor.compact(shp), "nothing deleted");
+
+        int[] deleted = {0, 5, 31, expectedTable.getNRecords() - 1};
+        try (DbfUpdater updater = DbfUpdater.open(dbf)) {
+            for (int record : deleted)
+                updater.setDeleted(record, true);
+        }
+        assertEquals(deleted.length, ShapefileCompactor.compact(shp), "records removed");
+        int[] kept = IntStream.range(0, expectedTable.getNRecords()).filter(record -> Arrays.binarySearch(deleted, record) < 0).toArray();
+
+        Shapefile shapefile = Shapefile.open(shp);
+        GeometryCollection geometries = shapefile.read(new GeometryFactory());
+        assertEquals(kept.length, geometries.getNumGeometries(), "number of geometries");
+        Envelope envelope = new Envelope();
+        for (int record = 0; record < kept.length; record++) {
+            assertEquals(expectedGeometries.getGeometryN(kept[record]).toText(), geometries.getGeometryN(record).toText(), "record " + record);
+            envelope.expandToInclude(geometries.getGeometryN(record).getEnvelopeInternal());
+        }
+        assertEquals(expectedGeometries.getGeometryN(kept[40]).toText(), shapefile.readRecord(40).toText(), "record read through the .shx file");
+
+        DbfColumnarTable table = DbfColumnarTable.read(dbf);
+        assertEquals(kept.length, table.getNRecords(), "number of .dbf records");
+        for (int record = 0; record < kept.length; record++) {
+            for (int col = 0; col < table.getNFields(); col++)
+                assertEquals(expectedTable.getValueAt(kept[record], col), table.getValueAt(record, col), "record " + record + ", col " + col);
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(shp));
+        assertEquals(Files.size(shp), 2L * header.getInt(24), ".shp file length");
+        assertEquals(ShapefileConstants.N_HEADER_BYTES + 8L * kept.length, Files.size(shx), ".shx file size");
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(envelope, new Envelope(header.getDouble(36), header.getDouble(52), header.getDouble(44), header.getDouble(60)), "bounding box");
+
+        assertEquals(0, ShapefileCompactor.compact(shp), "already compacted");
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(path -> path.toString().endsWith(".tmp")).count(), "no temporary files left");
+        }
+    }
+
+    @Test
+    void failedReplaceTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        String baseName = TestHelper.COLORADO_SHAPEFILE_BASE_NAME;
+        String[] extensions = {ShapefileConstants.SHAPEFILE_EXTENSION, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION, ShapefileConstants.SHAPEFILE_DBF_EXTENSION};
+        byte[][] before = new byte[extensions.length][];
+        for (int file = 0; file < extensions.length; file++) {
+            Path path = tempDir.resolve(baseName + "." + extensions[file]);
+            Files.copy(testHelper.getPath(baseName, extensions[file]), path);
+            before[file] = Files.readAllBytes(path);
+        }
+        Path shp = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_EXTENSION);
+        Path dbf = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_DBF_EXTENSION);
+        try (DbfUpdater updater = DbfUpdater.open(dbf)) {
+            updater.setDeleted(2, true);
+        }
+        before[2] = Files.readAllBytes(dbf);
+
+        // the .dbf file cannot be backed up, after the .shp and .shx files have been
+        Path blocker = Files.createDirectories(tempDir.resolve(baseName + ".dbf.bak").resolve("blocker"));
+        assertThrows(IOException.class, () -> ShapefileCompactor.compact(shp));
+
+        for (int file = 0; file < extensions.length; file++)
+            assertArrayEquals(before[file], Files.readAllBytes(tempDir.resolve(baseName + "." + extensions[file])), extensions[file] + " left as it was");
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(path -> path.toString().endsWith(".tmp")).count(), "no temporary files left");
+        }
+        assertFalse(Files.exists(tempDir.resolve(baseName + ".shp.bak")), "backup restored");
+
+        Files.delete(blocker);
+        Files.delete(blocker.getParent());
+        assertEquals(1, ShapefileCompactor.compact(shp), "record removed");
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.filter(path -> path.toString().endsWith(".bak")).count(), "no backups left");
+        }
+    }
+}
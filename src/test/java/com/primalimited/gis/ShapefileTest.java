@@ -1,19 +1,42 @@
 package com.primalimited.gis;
 
+import com.mapbox.geojson.Feature;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.locationtech.jts.io.kml.KMLWriter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ShapefileTest {
 
@@ -86,6 +109,424 @@ class ShapefileTest {
         }
     }
 
+    @Test
+    void openMappedMatchesStreamTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            InputStream is = testHelper.getMainInputStream(baseName);
+            GeometryCollection expected = new Shapefile(is).read(new GeometryFactory());
+            is.close();
+
+            Shapefile shapefile = Shapefile.open(testHelper.getMainPath(baseName));
+            GeometryCollection mapped = shapefile.read(new GeometryFactory());
+            assertEquals(expected.getNumGeometries(), mapped.getNumGeometries(), "number of records for " + baseName);
+            for (int i = 0; i < expected.getNumGeometries(); i++) {
+                assertEquals(expected.getGeometryN(i).toText(), mapped.getGeometryN(i).toText(), baseName + " record " + i);
+                assertEquals(i, new UserData(mapped.getGeometryN(i).getUserData()).toInt(), "user data");
+            }
+
+            // a mapped shapefile can be read again
+            assertEquals(expected.getNumGeometries(), shapefile.read(new GeometryFactory()).getNumGeometries());
+        }
+    }
+
+    @Test
+    void segmentedMappingTest() throws Exception {
+        // segments small enough that records cross from one into the next, as they do past 1GB
+        TestHelper testHelper = new TestHelper();
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            Shapefile whole = Shapefile.open(testHelper.getMainPath(baseName));
+            GeometryCollection expected = whole.read(new GeometryFactory());
+            List<LazyGeometry> expectedLazy = whole.readLazy(new GeometryFactory());
+
+            Shapefile segmented = Shapefile.open(testHelper.getMainPath(baseName), 1000);
+            GeometryCollection sequential = segmented.read(new GeometryFactory());
+            GeometryCollection parallel = segmented.readParallel(new GeometryFactory());
+            List<LazyGeometry> lazy = segmented.readLazy(new GeometryFactory());
+            assertEquals(expected.getNumGeometries(), sequential.getNumGeometries(), "number of records for " + baseName);
+            for (int i = 0; i < expected.getNumGeometries(); i++) {
+                String text = expected.getGeometryN(i).toText();
+                assertEquals(text, sequential.getGeometryN(i).toText(), baseName + " record " + i);
+                assertEquals(text, parallel.getGeometryN(i).toText(), baseName + " parallel record " + i);
+                assertEquals(expectedLazy.get(i).getEnvelope(), lazy.get(i).getEnvelope(), baseName + " envelope " + i);
+            }
+        }
+    }
+
+    @Test
+    void readRecordTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        InputStream is = testHelper.getMainInputStream(TestHelper.COLORADO_SHAPEFILE_BASE_NAME);
+        GeometryCollection expected = new Shapefile(is).read(new GeometryFactory());
+        is.close();
+
+        Shapefile shapefile = Shapefile.open(testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME));
+        for (int recordIndex : new int[] {60, 0, 62, 31}) {
+            Geometry geometry = shapefile.readRecord(recordIndex);
+            assertEquals(expected.getGeometryN(recordIndex).toText(), geometry.toText(), "record " + recordIndex);
+            assertEquals(recordIndex, new UserData(geometry.getUserData()).toInt(), "user data");
+        }
+
+        assertThrows(IndexOutOfBoundsException.class, () -> shapefile.readRecord(63));
+    }
+
+    @Test
+    void readParallelTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            InputStream is = testHelper.getMainInputStream(baseName);
+            GeometryCollection expected = new Shapefile(is).read(new GeometryFactory());
+            is.close();
+
+            ForkJoinPool pool = new ForkJoinPool(4);
+            GeometryCollection parallel = Shapefile.open(testHelper.getMainPath(baseName)).readParallel(new GeometryFactory(), pool);
+            pool.shutdown();
+
+            assertEquals(expected.getNumGeometries(), parallel.getNumGeometries(), "number of records for " + baseName);
+            for (int i = 0; i < expected.getNumGeometries(); i++) {
+                assertEquals(expected.getGeometryN(i).toText(), parallel.getGeometryN(i).toText(), baseName + " record " + i);
+                assertEquals(i, new UserData(parallel.getGeometryN(i).getUserData()).toInt(), "user data");
+            }
+        }
+    }
+
+    @Test
+    void geometriesStreamTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        InputStream is = testHelper.getMainInputStream(TestHelper.COLORADO_SHAPEFILE_BASE_NAME);
+        GeometryCollection expected = new Shapefile(is).read(new GeometryFactory());
+        is.close();
+
+        Shapefile shapefile = Shapefile.open(testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME));
+        assertEquals(63, shapefile.geometries().count(), "sized stream");
+
+        List<Geometry> parallel = shapefile.geometries().parallel().collect(Collectors.toList());
+        assertEquals(expected.getNumGeometries(), parallel.size(), "number of records");
+        for (int i = 0; i < parallel.size(); i++) {
+            assertEquals(expected.getGeometryN(i).toText(), parallel.get(i).toText(), "record " + i);
+            assertEquals(i, new UserData(parallel.get(i).getUserData()).toInt(), "user data");
+        }
+
+        Geometry first = shapefile.geometries().skip(60).findFirst().orElseThrow();
+        assertEquals(expected.getGeometryN(60).toText(), first.toText(), "skip and findFirst");
+        assertEquals(5, shapefile.geometries().limit(5).count(), "limit");
+    }
+
+    @Test
+    void streamInEnvelopeTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            InputStream is = testHelper.getMainInputStream(baseName);
+            GeometryCollection all = new Shapefile(is).read(new GeometryFactory());
+            is.close();
+
+            Envelope filter = new Envelope(all.getEnvelopeInternal().centre());
+            filter.expandBy(all.getEnvelopeInternal().getWidth() / 8, all.getEnvelopeInternal().getHeight() / 8);
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < all.getNumGeometries(); i++) {
+                if (all.getGeometryN(i).getEnvelopeInternal().intersects(filter))
+                    expected.add(i + ":" + all.getGeometryN(i).toText());
+            }
+
+            // stream-backed and mapped shapefiles
+            List<String> streamed = new ArrayList<>();
+            is = testHelper.getMainInputStream(baseName);
+            new Shapefile(is).stream(filter, new GeometryFactory(), (geometry) -> streamed.add(geometry.getUserData() + ":" + geometry.toText()));
+            is.close();
+            assertEquals(expected, streamed, "filtered stream for " + baseName);
+
+            List<String> mapped = new ArrayList<>();
+            Shapefile.open(testHelper.getMainPath(baseName))
+                    .stream(filter, new GeometryFactory(), (geometry) -> mapped.add(geometry.getUserData() + ":" + geometry.toText()));
+            assertEquals(expected, mapped, "filtered mapped stream for " + baseName);
+        }
+    }
+
+    @Test
+    void holeOutsideShellTest(@TempDir Path directory) throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Polygon polygon = geometryFactory.createPolygon(
+                geometryFactory.createLinearRing(new Coordinate[] {
+                        new Coordinate(0, 0), new Coordinate(0, 10), new Coordinate(10, 10), new Coordinate(10, 0), new Coordinate(0, 0)}),
+                new LinearRing[] {geometryFactory.createLinearRing(new Coordinate[] {
+                        new Coordinate(20, 20), new Coordinate(22, 20), new Coordinate(22, 22), new Coordinate(20, 22), new Coordinate(20, 20)})});
+        Path path = directory.resolve("holes.shp");
+        try (ShapefileWriter writer = ShapefileWriter.create(path, Shapefile.POLYGON)) {
+            writer.write(polygon);
+        }
+
+        Shapefile shapefile = Shapefile.open(path);
+        List<String> warnings = new ArrayList<>();
+        shapefile.setRecordErrorListener(new RecordErrorListener() {
+            @Override
+            public void recordFailed(int recordIndex, Exception cause) {
+                warnings.add("failed " + recordIndex);
+            }
+
+            @Override
+            public void recordWarning(int recordIndex, String message) {
+                warnings.add(recordIndex + ": " + message);
+            }
+        });
+        PrintStream err = System.err;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(console, true));
+        Geometry read;
+        try {
+            read = shapefile.read(new GeometryFactory()).getGeometryN(0);
+            assertEquals(0, ((Polygon) shapefile.readRecord(0)).getNumInteriorRing(), "random access read");
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals(0, ((Polygon) read).getNumInteriorRing(), "hole left out");
+        assertEquals(List.of("0: hole 0 is not inside a shell; it was left out", "0: hole 0 is not inside a shell; it was left out"),
+                warnings, "warnings");
+        assertEquals("", console.toString(), "console output");
+    }
+
+    @Test
+    void otherVersionTest(@TempDir Path directory) throws Exception {
+        // a file of another version is read without console output, by every sequential read
+        TestHelper testHelper = new TestHelper();
+        byte[] bytes = Files.readAllBytes(testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME));
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(28, 999);
+        Path path = directory.resolve("version.shp");
+        Files.write(path, bytes);
+        Shapefile shapefile = Shapefile.open(path);
+
+        PrintStream err = System.err;
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(console, true));
+        try {
+            assertEquals(63, shapefile.read(new GeometryFactory()).getNumGeometries(), "read");
+            AtomicInteger streamed = new AtomicInteger();
+            shapefile.stream(new GeometryFactory(), geometry -> streamed.incrementAndGet());
+            shapefile.stream(new Envelope(-180, 180, -90, 90), new GeometryFactory(), geometry -> streamed.incrementAndGet());
+            shapefile.streamFeatures(feature -> streamed.incrementAndGet());
+            assertEquals(3 * 63, streamed.get(), "streamed");
+            shapefile.readStream(new GeometryFactory());
+            assertNotNull(shapefile.next(), "first record");
+            shapefile.close();
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals("", console.toString(), "console output");
+    }
+
+    @Test
+    void streamMatchesReadTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            InputStream is = testHelper.getMainInputStream(baseName);
+            GeometryCollection expected = new Shapefile(is).read(new GeometryFactory());
+            is.close();
+
+            List<Geometry> streamed = new ArrayList<>();
+            is = testHelper.getMainInputStream(baseName);
+            new Shapefile(is).stream(new GeometryFactory(), streamed::add);
+            is.close();
+
+            assertEquals(expected.getNumGeometries(), streamed.size(), "one geometry per record for " + baseName);
+            for (int i = 0; i < streamed.size(); i++) {
+                assertEquals(expected.getGeometryN(i).toText(), streamed.get(i).toText(), baseName + " record " + i);
+                assertEquals(i, new UserData(streamed.get(i).getUserData()).toInt(), "user data");
+            }
+        }
+    }
+
+    @Test
+    void packedCoordinateSequenceTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        GeometryFactory packedFactory = new GeometryFactory(PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            Shapefile shapefile = Shapefile.open(testHelper.getMainPath(baseName));
+            GeometryCollection expected = shapefile.read(new GeometryFactory());
+            GeometryCollection packed = shapefile.read(packedFactory);
+
+            assertEquals(expected.getNumGeometries(), packed.getNumGeometries(), "number of records in " + baseName);
+            for (int i = 0; i < packed.getNumGeometries(); i++)
+                assertEquals(expected.getGeometryN(i).toText(), packed.getGeometryN(i).toText(), baseName + " record " + i);
+
+            Geometry first = packed.getGeometryN(0).getGeometryN(0);
+            if (first instanceof Polygon polygon)
+                assertInstanceOf(PackedCoordinateSequence.Double.class, polygon.getExteriorRing().getCoordinateSequence());
+            else
+                assertInstanceOf(PackedCoordinateSequence.Double.class, ((Point) first).getCoordinateSequence());
+        }
+    }
+
+    @Test
+    void readLazyTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            Shapefile shapefile = Shapefile.open(testHelper.getMainPath(baseName));
+            GeometryCollection expected = shapefile.read(new GeometryFactory());
+
+            List<LazyGeometry> lazyGeometries = shapefile.readLazy(new GeometryFactory());
+            assertEquals(expected.getNumGeometries(), lazyGeometries.size(), "one lazy geometry per record for " + baseName);
+            for (int i = 0; i < lazyGeometries.size(); i++) {
+                LazyGeometry lazyGeometry = lazyGeometries.get(i);
+                assertEquals(i, lazyGeometry.getRecordIndex(), "record index");
+                assertFalse(lazyGeometry.isDecoded(), "not decoded before first access");
+                assertEquals(expected.getGeometryN(i).getEnvelopeInternal(), lazyGeometry.getEnvelope(), baseName + " record " + i + " envelope");
+            }
+
+            final int recordIndex = lazyGeometries.size() - 3;
+            LazyGeometry selected = lazyGeometries.get(recordIndex);
+            Geometry geometry = selected.getGeometry();
+            assertTrue(selected.isDecoded(), "decoded after first access");
+            assertSame(geometry, selected.getGeometry(), "decoded geometry is cached");
+            assertEquals(expected.getGeometryN(recordIndex).toText(), geometry.toText(), baseName + " record " + recordIndex);
+            assertEquals(recordIndex, new UserData(geometry.getUserData()).toInt(), "user data");
+            assertFalse(lazyGeometries.get(0).isDecoded(), "other records stay undecoded");
+        }
+    }
+
+    /**
+     * Copy of co.shp with the shape type of one record overwritten, so that record cannot be decoded.
+     */
+    private static Path corruptShapeType(Path directory, int recordIndex) throws Exception {
+        TestHelper testHelper = new TestHelper();
+        ShxIndex index = ShxIndex.open(testHelper.getPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION));
+        byte[] bytes = Files.readAllBytes(testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME));
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt((int) index.offset(recordIndex) + ShapefileConstants.RECORD_HEADER_LENGTH, 99);
+        Path path = directory.resolve("corrupt.shp");
+        Files.write(path, bytes);
+        Files.copy(testHelper.getPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION), directory.resolve("corrupt.shx"));
+        return path;
+    }
+
+    @Test
+    void recordErrorPolicyTest(@TempDir Path directory) throws Exception {
+        final int badRecordIndex = 3;
+        Path path = corruptShapeType(directory, badRecordIndex);
+        TestHelper testHelper = new TestHelper();
+        GeometryCollection expected = Shapefile.open(testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME)).read(new GeometryFactory());
+
+        List<Integer> failed = new ArrayList<>();
+        Shapefile shapefile = Shapefile.open(path);
+        shapefile.setRecordErrorListener((recordIndex, cause) -> failed.add(recordIndex));
+
+        GeometryCollection empty = shapefile.read(new GeometryFactory());
+        assertEquals(63, empty.getNumGeometries(), "EMPTY keeps a slot for the bad record");
+        assertTrue(empty.getGeometryN(badRecordIndex).isEmpty(), "bad record is empty");
+        assertEquals(List.of(badRecordIndex), failed, "listener told about the bad record");
+
+        shapefile.setRecordErrorPolicy(RecordErrorPolicy.SKIP);
+        GeometryCollection skipped = shapefile.read(new GeometryFactory());
+        assertEquals(62, skipped.getNumGeometries(), "SKIP leaves the bad record out");
+        assertEquals(expected.getGeometryN(badRecordIndex + 1).toText(), skipped.getGeometryN(badRecordIndex).toText(), "records after the bad one");
+        assertEquals(62, shapefile.geometries().count(), "SKIP also applies to streams");
+
+        shapefile.setRecordErrorPolicy(RecordErrorPolicy.FAIL_FAST);
+        IOException e = assertThrows(IOException.class, () -> shapefile.read(new GeometryFactory()));
+        assertInstanceOf(InvalidShapefileException.class, e.getCause(), "cause");
+        assertThrows(IOException.class, () -> shapefile.readParallel(new GeometryFactory()));
+    }
+
+    @Test
+    void resyncOnTruncatedRecordTest(@TempDir Path directory) throws Exception {
+        final int truncatedRecordIndex = 5;
+        TestHelper testHelper = new TestHelper();
+        Path original = testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME);
+        GeometryCollection expected = Shapefile.open(original).read(new GeometryFactory());
+
+        // drop the last point of one record, leaving its header length unchanged
+        ShxIndex index = ShxIndex.open(testHelper.getPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION));
+        byte[] bytes = Files.readAllBytes(original);
+        int cut = (int) index.offset(truncatedRecordIndex + 1) - 16;
+        byte[] truncated = new byte[bytes.length - 16];
+        System.arraycopy(bytes, 0, truncated, 0, cut);
+        System.arraycopy(bytes, cut + 16, truncated, cut, bytes.length - cut - 16);
+        Path path = directory.resolve("truncated.shp");
+        Files.write(path, truncated);
+
+        List<Integer> failed = new ArrayList<>();
+        List<Geometry> geometries = new ArrayList<>();
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Shapefile shapefile = new Shapefile(inputStream);
+            shapefile.setResyncOnCorruptRecords(true);
+            shapefile.setRecordErrorListener((recordIndex, cause) -> failed.add(recordIndex));
+            shapefile.stream(new GeometryFactory(), geometries::add);
+        }
+
+        assertEquals(expected.getNumGeometries(), geometries.size(), "one geometry per record, lost ones empty " + failed);
+        assertTrue(failed.contains(truncatedRecordIndex + 1), "record after the truncated one is lost: " + failed);
+        for (int i = truncatedRecordIndex + 2; i < geometries.size(); i++)
+            assertEquals(expected.getGeometryN(i).toText(), geometries.get(i).toText(), "record " + i + " after resync");
+    }
+
+    @Test
+    void corruptContentLengthTest(@TempDir Path directory) throws Exception {
+        final int badRecordIndex = 5;
+        TestHelper testHelper = new TestHelper();
+        Path original = testHelper.getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME);
+        GeometryCollection expected = Shapefile.open(original).read(new GeometryFactory());
+
+        // a content length far past the end of the file
+        ShxIndex index = ShxIndex.open(testHelper.getPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION));
+        byte[] bytes = Files.readAllBytes(original);
+        ByteBuffer.wrap(bytes).putInt((int) index.offset(badRecordIndex) + 4, Integer.MAX_VALUE);
+        Path path = directory.resolve("badlength.shp");
+        Files.write(path, bytes);
+
+        for (boolean resync : new boolean[] {false, true}) {
+            List<Integer> failed = new ArrayList<>();
+            List<Geometry> geometries = new ArrayList<>();
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                Shapefile shapefile = new Shapefile(inputStream);
+                shapefile.setResyncOnCorruptRecords(resync);
+                shapefile.setRecordErrorListener((recordIndex, cause) -> failed.add(recordIndex));
+                shapefile.stream(new GeometryFactory(), geometries::add);
+            }
+            assertEquals(List.of(badRecordIndex), failed, "listener told about the bad length, resync " + resync);
+            assertEquals(resync ? expected.getNumGeometries() : badRecordIndex + 1, geometries.size(), "geometries, resync " + resync);
+            assertTrue(geometries.get(badRecordIndex).isEmpty(), "bad record is empty");
+            for (int i = 0; i < geometries.size(); i++) {
+                if (i != badRecordIndex)
+                    assertEquals(expected.getGeometryN(i).toText(), geometries.get(i).toText(), "record " + i + ", resync " + resync);
+            }
+        }
+
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            Shapefile shapefile = new Shapefile(inputStream);
+            shapefile.setRecordErrorPolicy(RecordErrorPolicy.FAIL_FAST);
+            assertThrows(IOException.class, () -> shapefile.stream(new GeometryFactory(), geometry -> {}), "FAIL_FAST");
+        }
+    }
+
+    @Test
+    void streamFeaturesErrorPolicyTest() throws Exception {
+        // the shape handlers do not decode features yet, so every record fails
+        Path path = new TestHelper().getMainPath(TestHelper.COLORADO_SHAPEFILE_BASE_NAME);
+        List<Integer> failed = new ArrayList<>();
+        List<Feature> features = new ArrayList<>();
+        Shapefile shapefile = Shapefile.open(path);
+        shapefile.setRecordErrorListener((recordIndex, cause) -> failed.add(recordIndex));
+        shapefile.streamFeatures(features::add);
+        assertEquals(63, features.size(), "EMPTY keeps a feature per record");
+        assertNull(features.get(0).geometry(), "failed record has no geometry");
+        assertEquals(63, failed.size(), "listener told about each record");
+        assertEquals(4, failed.get(4), "record index");
+
+        shapefile.setRecordErrorPolicy(RecordErrorPolicy.SKIP);
+        features.clear();
+        shapefile.streamFeatures(features::add);
+        assertTrue(features.isEmpty(), "SKIP leaves failed records out");
+
+        shapefile.setRecordErrorPolicy(RecordErrorPolicy.FAIL_FAST);
+        assertThrows(IOException.class, () -> shapefile.streamFeatures(feature -> {}), "FAIL_FAST");
+    }
+
     @Test
     void streamTest() throws Exception {
         TestHelper testHelper = new TestHelper();
@@ -0,0 +1,103 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShapefileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void copyTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+        for (String baseName : new String[] {TestHelper.COLORADO_SHAPEFILE_BASE_NAME, TestHelper.CITIES_SHAPEFILE_BASE_NAME}) {
+            Path source = testHelper.getPath(baseName, ShapefileConstants.SHAPEFILE_EXTENSION);
+            int shapeType = ByteBuffer.wrap(Files.readAllBytes(source)).order(ByteOrder.LITTLE_ENDIAN).getInt(32);
+            GeometryCollection expected = Shapefile.open(source).read(new GeometryFactory());
+
+            Path shp = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_EXTENSION);
+            Path shx = tempDir.resolve(baseName + "." + ShapefileConstants.SHAPEFILE_INDEX_EXTENSION);
+            try (ShapefileWriter writer = ShapefileWriter.create(shp, shapeType)) {
+                for (int record = 0; record < expected.getNumGeometries(); record++)
+                    writer.write(expected.getGeometryN(record));
+                assertEquals(expected.getNumGeometries(), writer.getRecordCount(), baseName + " record count");
+            }
+
+            Shapefile shapefile = Shapefile.open(shp);
+            GeometryCollection geometries = shapefile.read(new GeometryFactory());
+            assertEquals(expected.getNumGeometries(), geometries.getNumGeometries(), baseName + " number of geometries");
+            for (int record = 0; record < expected.getNumGeometries(); record++)
+                assertEquals(expected.getGeometryN(record).toText(), geometries.getGeometryN(record).toText(), baseName + " record " + record);
+            int last = expected.getNumGeometries() - 1;
+            assertEquals(expected.getGeometryN(last).toText(), shapefile.readRecord(last).toText(), baseName + " record read through the .shx file");
+
+            ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(shp));
+            assertEquals(Files.size(shp), 2L * header.getInt(24), baseName + " .shp file length");
+            assertEquals(ShapefileConstants.N_HEADER_BYTES + 8L * expected.getNumGeometries(), Files.size(shx), baseName + " .shx file size");
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(shapeType, header.getInt(32), baseName + " shape type");
+            assertEquals(expected.getEnvelopeInternal(),
+                    new Envelope(header.getDouble(36), header.getDouble(52), header.getDouble(44), header.getDouble(60)), baseName + " bounding box");
+        }
+    }
+
+    @Test
+    void writeTest() throws Exception {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Path shp = tempDir.resolve("lines.shp");
+        LineString line = geometryFactory.createLineString(new Coordinate[] {
+                new Coordinate(1, 2, 10), new Coordinate(3, 4, 30), new Coordinate(5, 1, 20)});
+        Geometry multiLine = geometryFactory.createMultiLineString(new LineString[] {line,
+                geometryFactory.createLineString(new Coordinate[] {new Coordinate(-1, -2, 5), new Coordinate(0, 0, 6)})});
+        try (ShapefileWriter writer = ShapefileWriter.create(shp, Shapefile.ARCZ)) {
+            writer.write(line);
+            writer.write(null);
+            writer.write(multiLine);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(geometryFactory.createPoint(new Coordinate(1, 1))), "wrong shape type");
+        }
+        GeometryCollection lines = Shapefile.open(shp).read(new GeometryFactory());
+        assertEquals(3, lines.getNumGeometries(), "number of lines");
+        assertEquals(line, lines.getGeometryN(0), "line");
+        assertEquals(30, lines.getGeometryN(0).getCoordinates()[1].getZ(), "z");
+        assertTrue(lines.getGeometryN(1).isEmpty(), "null shape");
+        assertEquals(multiLine, lines.getGeometryN(2), "multi-line");
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(shp)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(new Envelope(-1, 5, -2, 4),
+                new Envelope(header.getDouble(36), header.getDouble(52), header.getDouble(44), header.getDouble(60)), "bounding box");
+        assertEquals(5, header.getDouble(68), "z min");
+        assertEquals(30, header.getDouble(76), "z max");
+
+        // counter-clockwise shell with a clockwise hole: both rings are reversed
+        Path polygonShp = tempDir.resolve("polygons.shp");
+        Polygon polygon = geometryFactory.createPolygon(
+                geometryFactory.createLinearRing(new Coordinate[] {
+                        new Coordinate(0, 0), new Coordinate(10, 0), new Coordinate(10, 10), new Coordinate(0, 10), new Coordinate(0, 0)}),
+                new LinearRing[] {geometryFactory.createLinearRing(new Coordinate[] {
+                        new Coordinate(2, 2), new Coordinate(2, 4), new Coordinate(4, 4), new Coordinate(4, 2), new Coordinate(2, 2)})});
+        try (ShapefileWriter writer = ShapefileWriter.create(polygonShp, Shapefile.POLYGON)) {
+            writer.write(polygon);
+        }
+        Geometry read = Shapefile.open(polygonShp).read(new GeometryFactory()).getGeometryN(0);
+        assertTrue(read instanceof Polygon, "polygon");
+        assertEquals(1, ((Polygon) read).getNumInteriorRing(), "hole");
+        assertTrue(polygon.equalsTopo(read), "same polygon");
+
+        assertThrows(IllegalArgumentException.class, () -> ShapefileWriter.create(tempDir.resolve("bad.shp"), 31), "multipatch");
+    }
+}
@@ -0,0 +1,52 @@
+package com.primalimited.gis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShxIndexTest {
+
+    @Test
+    void matchesIndexEntriesTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        InputStream is = testHelper.getIndexInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        ShxIndex index = ShxIndex.read(is);
+        is.close();
+
+        is = testHelper.getIndexInputStream(TestHelper.LINE_SHAPEFILE_BASE_NAME);
+        ByteBuffer entries = ByteBuffer.wrap(is.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+        is.close();
+
+        assertEquals(3072, index.recordCount(), "record count");
+        for (int recordIndex = 0; recordIndex < index.recordCount(); recordIndex++) {
+            int position = ShapefileConstants.N_HEADER_BYTES + ShapefileConstants.RECORD_HEADER_LENGTH * recordIndex;
+            assertEquals(entries.getInt(position) * 2L, index.offset(recordIndex), "offset for record index " + recordIndex);
+            assertEquals(entries.getInt(position + 4) * 2, index.length(recordIndex), "length for record index " + recordIndex);
+        }
+
+        assertEquals(3582170 * 2, index.offset(3070), "offset of record number 3071");
+        assertEquals(1728 * 2, index.length(3070), "length of record number 3071");
+    }
+
+    @Test
+    void openTest() throws Exception {
+        TestHelper testHelper = new TestHelper();
+
+        ShxIndex index = ShxIndex.open(testHelper.getPath(TestHelper.CITIES_SHAPEFILE_BASE_NAME, ShapefileConstants.SHAPEFILE_INDEX_EXTENSION));
+        assertEquals(35, index.recordCount(), "record count");
+        assertEquals(100, index.offset(0), "first record follows the main file header");
+        for (int recordIndex = 1; recordIndex < index.recordCount(); recordIndex++) {
+            assertEquals(
+                    index.offset(recordIndex - 1) + ShapefileConstants.RECORD_HEADER_LENGTH + index.length(recordIndex - 1),
+                    index.offset(recordIndex),
+                    "records are contiguous"
+            );
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> index.offset(35));
+    }
+}
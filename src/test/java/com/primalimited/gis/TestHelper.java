@@ -2,6 +2,12 @@ package com.primalimited.gis;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 class TestHelper {
     static String LINE_SHAPEFILE_BASE_NAME = "WBDLine";
@@ -32,6 +38,17 @@ class TestHelper {
                 .getResourceAsStream(baseFilename + "." + ShapefileConstants.SHAPEFILE_PROJECTION_EXTENSION);
     }
 
+    Path getPath(String baseFilename, String extension) throws URISyntaxException {
+        return Path.of(getClass()
+                .getClassLoader()
+                .getResource(baseFilename + "." + extension)
+                .toURI());
+    }
+
+    Path getMainPath(String baseFilename) throws URISyntaxException {
+        return getPath(baseFilename, ShapefileConstants.SHAPEFILE_EXTENSION);
+    }
+
     DBASEReader.DBASEHeaderInfo readDbfHeader(String baseFilename) throws IOException, ShapefileException {
         InputStream is = getDbfInputStream(baseFilename);
         DBASEReader reader = new DBASEReader();
@@ -40,4 +57,47 @@ class TestHelper {
         is.close();
         return data;
     }
+
+    /**
+     * A minimal dBASE III file; each value is encoded with the charset and padded with spaces to the field length.
+     */
+    static byte[] dbfBytes(String[] names, char[] types, int[] lengths, String[][] records, Charset charset) {
+        int headerSize = 32 * (names.length + 1) + 1;
+        int recordSize = 1;
+        for (int length : lengths)
+            recordSize += length;
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(headerSize + records.length * recordSize + 1).order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer.put((byte) 3);
+        byteBuffer.put(new byte[] {124, 1, 1});
+        byteBuffer.putInt(records.length);
+        byteBuffer.putShort((short) headerSize);
+        byteBuffer.putShort((short) recordSize);
+        byteBuffer.position(32);
+        for (int field = 0; field < names.length; field++) {
+            int descriptor = byteBuffer.position();
+            byteBuffer.put(names[field].getBytes(StandardCharsets.US_ASCII));
+            byteBuffer.position(descriptor + DbfSchema.FIELD_NAME_LENGTH);
+            byteBuffer.put((byte) types[field]);
+            byteBuffer.position(descriptor + 16);
+            byteBuffer.put((byte) lengths[field]);
+            byteBuffer.position(descriptor + 32);
+        }
+        byteBuffer.put(DbfSchema.HEADER_TERMINATOR);
+        for (String[] record : records) {
+            byteBuffer.put((byte) ' ');
+            for (int field = 0; field < record.length; field++) {
+                byte[] value = record[field].getBytes(charset);
+                byteBuffer.put(value);
+                for (int pad = value.length; pad < lengths[field]; pad++)
+                    byteBuffer.put((byte) ' ');
+            }
+        }
+        byteBuffer.put((byte) 0x1A);
+        return byteBuffer.array();
+    }
+
+    static byte[] dbfBytes(String[] names, char[] types, int[] lengths, String[][] records) {
+        return dbfBytes(names, types, lengths, records, StandardCharsets.US_ASCII);
+    }
 }